@@ -0,0 +1,607 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.pageseeder.diffx.algorithm.DataLengthException;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.core.AdaptiveXMLProcessor;
+import org.pageseeder.diffx.core.OptimisticXMLProcessor;
+import org.pageseeder.diffx.core.XMLDiffProcessor;
+import org.pageseeder.diffx.format.*;
+import org.pageseeder.diffx.load.SAXLoader;
+import org.pageseeder.diffx.token.TokenPool;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A service running diff jobs concurrently on a bounded number of threads.
+ *
+ * <p>Each {@link Job} specifies the documents to compare, the configuration used to load them, the
+ * processor and the output format; the result is the diff output as a string.
+ *
+ * <p>The number of jobs accepted by the service is bounded: once the queue is full,
+ * {@link #submit(Job)} blocks until a job completes and {@link #trySubmit(Job)} rejects the job, so
+ * that producers are slowed down rather than exhausting the memory.
+ *
+ * <p>Each job can be given a timeout which starts when the job is submitted. A job which expires
+ * before it starts fails with a {@link DeadlineExceededException}, a job which expires while it is
+ * compared produces the coarse result of the processor. Cancelling the future of a job also
+ * cancels its deadline and removes it from the queue if it has not started.
+ *
+ * <p>When running on Java 21 or later, the jobs run on virtual threads; the service uses reflection
+ * so that it remains compatible with Java 8.
+ *
+ * <p>The service keeps counters of the jobs which can be retrieved at any time using
+ * {@link #getStatistics()}.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class DiffService implements AutoCloseable {
+
+  /**
+   * The executor running the jobs.
+   */
+  private final ThreadPoolExecutor executor;
+
+  /**
+   * The permits for the jobs which are queued or running.
+   */
+  private final Semaphore permits;
+
+  /**
+   * Whether the threads are virtual threads.
+   */
+  private final boolean virtual;
+
+  /**
+   * When the service was created, to compute the throughput.
+   */
+  private final long started = System.nanoTime();
+
+  /**
+   * The default timeout in milliseconds, 0 for none.
+   */
+  private volatile long timeout = 0;
+
+  /**
+   * The pool shared by all the jobs, <code>null</code> to use a pool for each job.
+   */
+  private volatile TokenPool pool = null;
+
+  private final LongAdder submitted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder fallbacks = new LongAdder();
+  private final LongAdder dataLength = new LongAdder();
+
+  /**
+   * Creates a new service using virtual threads when available.
+   *
+   * @param parallelism The maximum number of jobs running at the same time
+   * @param capacity    The maximum number of jobs waiting to run
+   */
+  public DiffService(int parallelism, int capacity) {
+    this(parallelism, capacity, null);
+  }
+
+  /**
+   * Creates a new service using the specified thread factory.
+   *
+   * @param parallelism The maximum number of jobs running at the same time
+   * @param capacity    The maximum number of jobs waiting to run
+   * @param factory     The factory for the threads running the jobs, <code>null</code> to use the default
+   *
+   * @throws IllegalArgumentException If the parallelism is lower than 1 or the capacity is negative
+   */
+  public DiffService(int parallelism, int capacity, ThreadFactory factory) {
+    if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1");
+    if (capacity < 0) throw new IllegalArgumentException("Capacity must not be negative");
+    ThreadFactory virtualFactory = factory == null ? newVirtualThreadFactory() : null;
+    this.virtual = virtualFactory != null;
+    ThreadFactory actual = factory != null ? factory : this.virtual ? virtualFactory : newPlatformThreadFactory();
+    // The queue is bounded by the permits
+    this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), actual);
+    this.permits = new Semaphore(parallelism + capacity);
+  }
+
+  /**
+   * Set the pool used to intern the tokens of the documents loaded by all the jobs.
+   *
+   * <p>By default, each job uses its own pool so that the tokens common to the two documents being
+   * compared are the same instance. Sharing a pool across jobs is useful when the service compares
+   * successive revisions of similar documents.
+   *
+   * @param pool The pool to share between jobs or <code>null</code> to use a pool for each job (default)
+   */
+  public void setTokenPool(@Nullable TokenPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Set the timeout for the jobs which do not specify one.
+   *
+   * @param duration The maximum duration of each job, 0 for no timeout (default)
+   * @param unit     The unit of the duration
+   */
+  public void setTimeout(long duration, TimeUnit unit) {
+    this.timeout = unit.toMillis(duration);
+  }
+
+  /**
+   * @return <code>true</code> if the jobs run on virtual threads.
+   */
+  public boolean isUsingVirtualThreads() {
+    return this.virtual;
+  }
+
+  /**
+   * Submit a job, waiting for the queue to have room for it if necessary.
+   *
+   * @param job The job to run
+   *
+   * @return The future diff output
+   *
+   * @throws InterruptedException       If interrupted while waiting for the queue
+   * @throws RejectedExecutionException If the service is closed
+   */
+  public Future<String> submit(@NotNull Job job) throws InterruptedException {
+    this.permits.acquire();
+    return execute(job);
+  }
+
+  /**
+   * Submit a job only if the queue has room for it.
+   *
+   * @param job The job to run
+   *
+   * @return The future diff output
+   *
+   * @throws RejectedExecutionException If the queue is full or the service is closed
+   */
+  public Future<String> trySubmit(@NotNull Job job) {
+    if (!this.permits.tryAcquire()) {
+      this.rejected.increment();
+      throw new RejectedExecutionException("Diff service queue is full");
+    }
+    return execute(job);
+  }
+
+  /**
+   * @return the counters of this service at this point in time.
+   */
+  public Statistics getStatistics() {
+    return new Statistics(this);
+  }
+
+  /**
+   * Stop accepting jobs and wait for the submitted jobs to complete.
+   */
+  @Override
+  public void close() {
+    this.executor.shutdown();
+    try {
+      while (!this.executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        // Keep waiting for the jobs to complete
+      }
+    } catch (InterruptedException ex) {
+      this.executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private Future<String> execute(Job job) {
+    long millis = job.timeout > 0 ? job.timeout : this.timeout;
+    Deadline timer = millis > 0 ? Deadline.after(millis, TimeUnit.MILLISECONDS) : Deadline.none();
+    // Cancelled with the future so that a running job stops as soon as possible
+    Deadline deadline = Deadline.cancellable(timer);
+    AtomicBoolean released = new AtomicBoolean();
+    Runnable release = () -> {
+      if (released.compareAndSet(false, true)) this.permits.release();
+    };
+    FutureTask<String> task = new FutureTask<String>(() -> run(job, timer, deadline)) {
+      @Override
+      public void run() {
+        try {
+          super.run();
+        } finally {
+          release.run();
+        }
+      }
+
+      @Override
+      public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+          deadline.cancel();
+          // A job which has not started yet no longer takes up room in the queue
+          if (DiffService.this.executor.remove(this)) release.run();
+        }
+        return cancelled;
+      }
+    };
+    this.submitted.increment();
+    try {
+      this.executor.execute(task);
+    } catch (RejectedExecutionException ex) {
+      this.submitted.decrement();
+      release.run();
+      this.rejected.increment();
+      throw ex;
+    }
+    return task;
+  }
+
+  private String run(Job job, Deadline timer, Deadline deadline) throws LoadingException, IOException {
+    try {
+      // The job may have expired while waiting in the queue
+      deadline.check();
+      TokenPool pool = this.pool != null ? this.pool : new TokenPool();
+      Sequence from = job.from.load(job.config, pool);
+      Sequence to = job.to.load(job.config, pool);
+      XMLDiffProcessor processor = job.processor.get();
+      StringWriter out = new StringWriter();
+      XMLDiffOutput output = job.format.newOutput(out);
+      output.setNamespaces(NamespaceSet.merge(from.getNamespaces(), to.getNamespaces()));
+      processor.diff(from.tokens(), to.tokens(), output, deadline);
+      if (processor.isTruncated() && timer.isExpired()) this.timeouts.increment();
+      if (hasFallenBack(processor)) this.fallbacks.increment();
+      this.completed.increment();
+      return out.toString();
+    } catch (DeadlineExceededException ex) {
+      if (timer.isExpired()) this.timeouts.increment();
+      this.failed.increment();
+      throw ex;
+    } catch (DataLengthException ex) {
+      this.dataLength.increment();
+      this.failed.increment();
+      throw ex;
+    } catch (LoadingException | IOException | RuntimeException | Error ex) {
+      this.failed.increment();
+      throw ex;
+    }
+  }
+
+  private static boolean hasFallenBack(XMLDiffProcessor processor) {
+    if (processor instanceof OptimisticXMLProcessor) return ((OptimisticXMLProcessor) processor).hasFallenBack();
+    if (processor instanceof AdaptiveXMLProcessor) return ((AdaptiveXMLProcessor) processor).hasFallenBack();
+    return false;
+  }
+
+  /**
+   * @return a factory of virtual threads or <code>null</code> if they are not supported.
+   */
+  private static ThreadFactory newVirtualThreadFactory() {
+    try {
+      Class<?> type = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = type.getMethod("name", String.class, long.class).invoke(builder, "diffx-service-", 1L);
+      return (ThreadFactory) type.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException ex) {
+      // Before Java 21 or with preview features disabled
+      return null;
+    }
+  }
+
+  private static ThreadFactory newPlatformThreadFactory() {
+    AtomicInteger count = new AtomicInteger();
+    return runnable -> {
+      Thread thread = new Thread(runnable, "diffx-service-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  @Override
+  public String toString() {
+    return "DiffService{" +
+        "parallelism=" + this.executor.getMaximumPoolSize() +
+        ", virtual=" + this.virtual +
+        ", timeout=" + this.timeout +
+        '}';
+  }
+
+  /**
+   * The output formats available to the jobs.
+   */
+  public enum Format {
+
+    /**
+     * Using the {@link DefaultXMLDiffOutput}.
+     */
+    DEFAULT,
+
+    /**
+     * Using the {@link CompleteXMLDiffOutput}.
+     */
+    COMPLETE,
+
+    /**
+     * Using the {@link StrictXMLDiffOutput}.
+     */
+    STRICT,
+
+    /**
+     * Using the {@link XMLDiffReporter}.
+     */
+    REPORT;
+
+    XMLDiffOutput newOutput(Writer out) {
+      switch (this) {
+        case COMPLETE:
+          return new CompleteXMLDiffOutput(out);
+        case STRICT:
+          return new StrictXMLDiffOutput(out);
+        case REPORT:
+          return new XMLDiffReporter(out);
+        default:
+          return new DefaultXMLDiffOutput(out);
+      }
+    }
+  }
+
+  /**
+   * A diff job.
+   *
+   * <p>Jobs are immutable, each method returns a new job with the specified option.
+   */
+  public static final class Job {
+
+    private final Input from;
+    private final Input to;
+    private final DiffConfig config;
+    private final Supplier<? extends XMLDiffProcessor> processor;
+    private final Format format;
+    private final long timeout;
+
+    private Job(Input from, Input to, DiffConfig config, Supplier<? extends XMLDiffProcessor> processor, Format format, long timeout) {
+      this.from = from;
+      this.to = to;
+      this.config = config;
+      this.processor = processor;
+      this.format = format;
+      this.timeout = timeout;
+    }
+
+    /**
+     * Creates a job comparing two XML documents with the optimistic processor and the default
+     * configuration and output.
+     *
+     * @param from The first XML document
+     * @param to   The second XML document
+     *
+     * @return a new job
+     */
+    public static Job of(@NotNull String from, @NotNull String to) {
+      return new Job((config, pool) -> load(from, config, pool), (config, pool) -> load(to, config, pool), DiffConfig.getDefault(), OptimisticXMLProcessor::new, Format.DEFAULT, 0);
+    }
+
+    /**
+     * Creates a job comparing two sequences with the optimistic processor and the default output.
+     *
+     * <p>The configuration is ignored since the sequences are already loaded.
+     *
+     * @param from The first sequence
+     * @param to   The second sequence
+     *
+     * @return a new job
+     */
+    public static Job of(@NotNull Sequence from, @NotNull Sequence to) {
+      return new Job((config, pool) -> from, (config, pool) -> to, DiffConfig.getDefault(), OptimisticXMLProcessor::new, Format.DEFAULT, 0);
+    }
+
+    /**
+     * @param config The configuration used to load the documents
+     *
+     * @return a new job using the specified configuration.
+     */
+    public Job config(@NotNull DiffConfig config) {
+      return new Job(this.from, this.to, config, this.processor, this.format, this.timeout);
+    }
+
+    /**
+     * @param processor The supplier of a new processor for the job
+     *
+     * @return a new job using the specified processor.
+     */
+    public Job processor(@NotNull Supplier<? extends XMLDiffProcessor> processor) {
+      return new Job(this.from, this.to, this.config, processor, this.format, this.timeout);
+    }
+
+    /**
+     * @param format The output format
+     *
+     * @return a new job using the specified output format.
+     */
+    public Job format(@NotNull Format format) {
+      return new Job(this.from, this.to, this.config, this.processor, format, this.timeout);
+    }
+
+    /**
+     * @param duration The maximum duration of the job, 0 to use the service timeout
+     * @param unit     The unit of the duration
+     *
+     * @return a new job using the specified timeout.
+     */
+    public Job timeout(long duration, TimeUnit unit) {
+      return new Job(this.from, this.to, this.config, this.processor, this.format, unit.toMillis(duration));
+    }
+
+    private static Sequence load(String xml, DiffConfig config, TokenPool pool) throws LoadingException, IOException {
+      SAXLoader loader = new SAXLoader();
+      loader.setConfig(config);
+      loader.setTokenPool(pool);
+      return loader.load(new InputSource(new StringReader(xml)));
+    }
+  }
+
+  /**
+   * The input of a job.
+   */
+  @FunctionalInterface
+  private interface Input {
+    Sequence load(DiffConfig config, TokenPool pool) throws LoadingException, IOException;
+  }
+
+  /**
+   * The counters of a service at a point in time.
+   */
+  public static final class Statistics {
+
+    private final long submitted;
+    private final long rejected;
+    private final long completed;
+    private final long failed;
+    private final long timeouts;
+    private final long fallbacks;
+    private final long dataLength;
+    private final int queueDepth;
+    private final int active;
+    private final long elapsed;
+
+    private Statistics(DiffService service) {
+      this.submitted = service.submitted.sum();
+      this.rejected = service.rejected.sum();
+      this.completed = service.completed.sum();
+      this.failed = service.failed.sum();
+      this.timeouts = service.timeouts.sum();
+      this.fallbacks = service.fallbacks.sum();
+      this.dataLength = service.dataLength.sum();
+      this.queueDepth = service.executor.getQueue().size();
+      this.active = service.executor.getActiveCount();
+      this.elapsed = System.nanoTime() - service.started;
+    }
+
+    /**
+     * @return The number of jobs accepted by the service.
+     */
+    public long getSubmittedCount() {
+      return this.submitted;
+    }
+
+    /**
+     * @return The number of jobs rejected because the queue was full or the service was closed.
+     */
+    public long getRejectedCount() {
+      return this.rejected;
+    }
+
+    /**
+     * @return The number of jobs which produced a result.
+     */
+    public long getCompletedCount() {
+      return this.completed;
+    }
+
+    /**
+     * @return The number of jobs which failed.
+     */
+    public long getFailedCount() {
+      return this.failed;
+    }
+
+    /**
+     * @return The number of jobs which exceeded their timeout, whether they produced a coarse result or failed.
+     */
+    public long getTimeoutCount() {
+      return this.timeouts;
+    }
+
+    /**
+     * @return The number of completed jobs for which the processor had to fall back on another algorithm.
+     */
+    public long getFallbackCount() {
+      return this.fallbacks;
+    }
+
+    /**
+     * @return The number of jobs which failed because the documents were too large for the processor.
+     */
+    public long getDataLengthExceptionCount() {
+      return this.dataLength;
+    }
+
+    /**
+     * @return The number of jobs waiting to run.
+     */
+    public int getQueueDepth() {
+      return this.queueDepth;
+    }
+
+    /**
+     * @return The number of jobs running.
+     */
+    public int getActiveCount() {
+      return this.active;
+    }
+
+    /**
+     * @return The number of jobs completed per second since the service was created.
+     */
+    public double getThroughput() {
+      return this.elapsed > 0 ? this.completed * 1_000_000_000.0 / this.elapsed : 0;
+    }
+
+    /**
+     * @return The proportion of completed jobs which used a fallback.
+     */
+    public double getFallbackRate() {
+      return this.completed > 0 ? (double) this.fallbacks / this.completed : 0;
+    }
+
+    /**
+     * @return The proportion of finished jobs which failed with a {@link DataLengthException}.
+     */
+    public double getDataLengthExceptionRate() {
+      long finished = this.completed + this.failed;
+      return finished > 0 ? (double) this.dataLength / finished : 0;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics{" +
+          "submitted=" + submitted +
+          ", rejected=" + rejected +
+          ", completed=" + completed +
+          ", failed=" + failed +
+          ", timeouts=" + timeouts +
+          ", fallbacks=" + fallbacks +
+          ", dataLength=" + dataLength +
+          ", queueDepth=" + queueDepth +
+          ", active=" + active +
+          ", throughput=" + getThroughput() +
+          '}';
+    }
+  }
+}
@@ -21,6 +21,7 @@ import org.pageseeder.diffx.config.WhiteSpaceProcessing;
 import org.pageseeder.diffx.core.OptimisticXMLProcessor;
 import org.pageseeder.diffx.format.DefaultXMLDiffOutput;
 import org.pageseeder.diffx.load.DOMLoader;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.xml.NamespaceSet;
 import org.pageseeder.diffx.xml.Sequence;
 import org.w3c.dom.Document;
@@ -95,6 +96,7 @@ public final class Extension {
 
     // Get Sequences
     DOMLoader loader = new DOMLoader();
+    loader.setTokenPool(new TokenPool());
     loader.setConfig(config);
     Sequence seq1 = loader.load(xml1);
     Sequence seq2 = loader.load(xml2);
@@ -24,6 +24,7 @@ import org.pageseeder.diffx.core.OptimisticXMLProcessor;
 import org.pageseeder.diffx.core.TextOnlyProcessor;
 import org.pageseeder.diffx.format.*;
 import org.pageseeder.diffx.load.*;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.XMLToken;
 import org.pageseeder.diffx.util.CommandLine;
 import org.pageseeder.diffx.xml.NamespaceSet;
@@ -36,6 +37,7 @@ import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.function.Supplier;
 
 /**
  * Utility class to centralise the access to this API from the command line.
@@ -124,6 +126,7 @@ public final class Main {
       throws DiffException, IOException {
     // records the tokens from the XML
     DOMLoader loader = new DOMLoader();
+    loader.setTokenPool(new TokenPool());
     if (config != null) {
       loader.setConfig(config);
     }
@@ -150,6 +153,7 @@ public final class Main {
       throws DiffException, IOException {
     // records the tokens from the XML
     DOMLoader loader = new DOMLoader();
+    loader.setTokenPool(new TokenPool());
     if (config != null) {
       loader.setConfig(config);
     }
@@ -173,14 +177,9 @@ public final class Main {
   public static void diff(Reader xmlA, Reader xmlB, Writer out, DiffConfig config)
       throws DiffException, IOException {
     // records the tokens from the XML
-    SAXLoader loader = new SAXLoader();
-    if (config != null) {
-      loader.setConfig(config);
-    }
-    Sequence seq1 = loader.load(new InputSource(xmlA));
-    Sequence seq2 = loader.load(new InputSource(xmlB));
+    Sequence[] sequences = load(new InputSource(xmlA), new InputSource(xmlB), config);
     // start slicing
-    diff(seq1, seq2, out);
+    diff(sequences[0], sequences[1], out);
   }
 
   /**
@@ -195,11 +194,9 @@ public final class Main {
    */
   public static void diff(Reader xmlA, Reader xmlB, Writer out) throws DiffException, IOException {
     // records the tokens from the XML
-    SAXLoader loader = new SAXLoader();
-    Sequence seq1 = loader.load(new InputSource(xmlA));
-    Sequence seq2 = loader.load(new InputSource(xmlB));
+    Sequence[] sequences = load(new InputSource(xmlA), new InputSource(xmlB), null);
     // start slicing
-    diff(seq1, seq2, out);
+    diff(sequences[0], sequences[1], out);
   }
 
   /**
@@ -215,10 +212,27 @@ public final class Main {
   public static void diff(InputStream xmlA, InputStream xmlB, OutputStream out)
       throws DiffException, IOException {
     // records the tokens from the XML
-    SAXLoader loader = new SAXLoader();
-    Sequence seq1 = loader.load(new InputSource(xmlA));
-    Sequence seq2 = loader.load(new InputSource(xmlB));
-    diff(seq1, seq2, new OutputStreamWriter(out));
+    Sequence[] sequences = load(new InputSource(xmlA), new InputSource(xmlB), null);
+    diff(sequences[0], sequences[1], new OutputStreamWriter(out));
+  }
+
+  /**
+   * Loads the two specified documents concurrently using SAX.
+   *
+   * @param xmlA   The first XML input source.
+   * @param xmlB   The second XML input source.
+   * @param config The DiffX configuration to use (may be <code>null</code>).
+   */
+  private static Sequence[] load(InputSource xmlA, InputSource xmlB, DiffConfig config)
+      throws DiffException, IOException {
+    ConcurrentLoader loader = new ConcurrentLoader(() -> {
+      SAXLoader sax = new SAXLoader();
+      if (config != null) {
+        sax.setConfig(config);
+      }
+      return sax;
+    });
+    return loader.load(xmlA, xmlB);
   }
 
   /**
@@ -260,10 +274,11 @@ public final class Main {
       // loading
       // TODO Use nanotime for profiling
       long t0 = System.currentTimeMillis();
-      XMLLoader loader = getLoader(args);
-      if (loader == null) return;
-      Sequence seq1 = loader.load(xmlA);
-      Sequence seq2 = loader.load(xmlB);
+      Supplier<XMLLoader> loaders = getLoaders(args);
+      if (loaders == null) return;
+      Sequence[] sequences = new ConcurrentLoader(loaders).load(xmlA, xmlB);
+      Sequence seq1 = sequences[0];
+      Sequence seq2 = sequences[1];
       long t1 = System.currentTimeMillis();
       if (profile) {
         System.err.println("Loaded files in " + (t1 - t0) + "ms");
@@ -334,20 +349,20 @@ public final class Main {
   /**
    * @param args The command line arguments.
    *
-   * @return The loader to use.
+   * @return The supplier of a new loader for each document.
    */
-  private static XMLLoader getLoader(String[] args) {
+  private static Supplier<XMLLoader> getLoaders(String[] args) {
     String loaderArg = CommandLine.getParameter("-l", args);
     if (loaderArg == null || "sax".equals(loaderArg))
-      return new SAXLoader();
+      return SAXLoader::new;
     if ("dom".equals(loaderArg))
-      return new DOMLoader();
+      return DOMLoader::new;
 //    if ("text".equals(loaderArg))
-//      return new LineLoader();
+//      return LineLoader::new;
     if ("stream".equals(loaderArg))
-      return new XMLStreamLoader();
+      return XMLStreamLoader::new;
     if ("stax".equals(loaderArg))
-      return new XMLEventLoader();
+      return XMLEventLoader::new;
     usage();
     return null;
   }
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Computes one row of the LCS matrix at a time using the bit-parallel algorithm of Allison-Dix
+ * and Hyyrö.
+ *
+ * <p>The columns of the row correspond to a range of symbols of the second sequence, each symbol
+ * of the first sequence is processed with {@link #advance(int)} to compute the next row.
+ *
+ * <p>When reversed, the columns are numbered from the end of the range so that the rows correspond
+ * to the LCS of suffixes provided the symbols of the first sequence are processed backwards.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+final class BitVectorLCS {
+
+  /**
+   * Number of 64-bit words for each row.
+   */
+  private final int words;
+
+  /**
+   * Number of columns.
+   */
+  private final int length;
+
+  /**
+   * Index in <code>positions</code> of the first position of each symbol.
+   */
+  private final int[] start;
+
+  /**
+   * The bit positions of each symbol in the range, grouped by symbol.
+   */
+  private final int[] positions;
+
+  /**
+   * The bit vector V: zeros mark the columns where the LCS length increments.
+   */
+  private final long[] v;
+
+  /**
+   * Scratch match mask for the current symbol.
+   */
+  private final long[] match;
+
+  /**
+   * @param b       The symbols of the second sequence
+   * @param from    The start index of the range (inclusive)
+   * @param to      The end index of the range (exclusive)
+   * @param reverse Whether to number the columns from the end of the range
+   */
+  BitVectorLCS(int[] b, int from, int to, boolean reverse) {
+    this.length = to - from;
+    this.words = (this.length + 63) >>> 6;
+    int alphabet = 0;
+    for (int j = from; j < to; j++) alphabet = Math.max(alphabet, b[j] + 1);
+    this.start = new int[alphabet + 1];
+    for (int j = from; j < to; j++) this.start[b[j] + 1]++;
+    for (int s = 0; s < alphabet; s++) this.start[s + 1] += this.start[s];
+    this.positions = new int[this.length];
+    int[] next = Arrays.copyOf(this.start, alphabet);
+    for (int j = from; j < to; j++) {
+      this.positions[next[b[j]]++] = reverse ? to - 1 - j : j - from;
+    }
+    this.v = new long[this.words];
+    this.match = new long[this.words];
+    reset();
+  }
+
+  /**
+   * Reset to the first row (all LCS lengths are 0).
+   */
+  void reset() {
+    Arrays.fill(this.v, -1L);
+  }
+
+  /**
+   * @return the number of 64-bit words for each row.
+   */
+  int words() {
+    return this.words;
+  }
+
+  /**
+   * Compute the next row for the specified symbol of the first sequence.
+   *
+   * @param symbol The next symbol
+   */
+  void advance(int symbol) {
+    if (symbol + 1 >= this.start.length) return;
+    final int from = this.start[symbol];
+    final int to = this.start[symbol + 1];
+    if (from == to) return;
+    final long[] v = this.v;
+    final long[] match = this.match;
+    for (int p = from; p < to; p++) {
+      match[this.positions[p] >>> 6] |= 1L << this.positions[p];
+    }
+    // V' = (V + (V & M)) | (V & ~M) with carry propagated across words
+    long carry = 0;
+    for (int k = 0; k < this.words; k++) {
+      long x = v[k];
+      long u = x & match[k];
+      long sum = x + u + carry;
+      carry = ((x & u) | ((x | u) & ~sum)) >>> 63;
+      v[k] = sum | (x & ~match[k]);
+    }
+    for (int p = from; p < to; p++) {
+      match[this.positions[p] >>> 6] = 0;
+    }
+  }
+
+  /**
+   * Returns the bits marking where the LCS length increments in the current row.
+   *
+   * @param k The index of the 64-bit word
+   *
+   * @return the increments for columns <code>64*k</code> to <code>64*k+63</code>
+   */
+  long increments(int k) {
+    return ~this.v[k];
+  }
+
+  /**
+   * Returns the LCS lengths for the current row.
+   *
+   * @return An array of length + 1 where the value at index <code>k</code> is the LCS length for the
+   * first <code>k</code> columns.
+   */
+  int[] lengths() {
+    int[] lengths = new int[this.length + 1];
+    for (int k = 1; k <= this.length; k++) {
+      lengths[k] = lengths[k - 1] + (int) ((~this.v[(k - 1) >>> 6] >>> (k - 1)) & 1L);
+    }
+    return lengths;
+  }
+
+}
@@ -24,31 +24,54 @@ package org.pageseeder.diffx.algorithm;
  */
 public final class DataLengthException extends IllegalArgumentException {
 
-  private final int size;
+  private final long size;
 
-  private final int threshold;
+  private final long threshold;
+
+  private final boolean memory;
 
   public DataLengthException(int size, int threshold) {
-    super(toMessage(size, threshold));
+    this(size, threshold, false);
+  }
+
+  /**
+   * @param size      The offending size
+   * @param threshold The maximum size allowed (inclusive)
+   * @param memory    <code>true</code> if the size and threshold are a number of bytes;
+   *                  <code>false</code> for a number of comparisons.
+   */
+  public DataLengthException(long size, long threshold, boolean memory) {
+    super(toMessage(size, threshold, memory));
     this.size = size;
     this.threshold = threshold;
+    this.memory = memory;
   }
 
   /**
-   * @return The offending length of the data.
+   * @return The offending length of the data (capped to <code>Integer.MAX_VALUE</code>).
    */
   public int getSize() {
-    return this.size;
+    return (int) Math.min(this.size, Integer.MAX_VALUE);
   }
 
   /**
-   * @return maximum size allowed (inclusive)
+   * @return maximum size allowed (inclusive, capped to <code>Integer.MAX_VALUE</code>)
    */
   public int getThreshold() {
-    return this.threshold;
+    return (int) Math.min(this.threshold, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @return <code>true</code> if the size and threshold are a number of bytes;
+   * <code>false</code> for a number of comparisons.
+   */
+  public boolean isMemory() {
+    return this.memory;
   }
 
-  private static String toMessage(int size, int threshold) {
+  private static String toMessage(long size, long threshold, boolean memory) {
+    if (memory)
+      return String.format("Too much memory required: %d bytes is greater than maximum allowed (%d).", size, threshold);
     return String.format("Too many points of comparison: %d is greater than maximum allowed (%d).", size, threshold);
   }
 
@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.algorithm;
 
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -46,48 +47,16 @@ public final class HirschbergAlgorithm<T> implements DiffAlgorithm<T> {
 
   @Override
   public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler) {
-    // It is more efficient to supply the sizes than retrieve from lists
-    algorithmC(from.size(), to.size(), from, to, handler);
+    diff(from, to, handler, Deadline.none());
   }
 
-  /**
-   * Algorithm B as described by Hirschberg
-   *
-   * @return the last line of the Needleman-Wunsch score matrix
-   */
-  private static <T> int[] algorithmB(int m, int n, List<? extends T> a, List<? extends T> b) {
-    int[][] k = new int[2][n + 1];
-    for (int i = 1; i <= m; i++) {
-      if (n + 1 >= 0) System.arraycopy(k[1], 0, k[0], 0, n + 1);
-      for (int j = 1; j <= n; j++) {
-        if (a.get(i - 1).equals(b.get(j - 1))) {
-          k[1][j] = k[0][j - 1] + 1;
-        } else {
-          k[1][j] = Math.max(k[1][j - 1], k[0][j]);
-        }
-      }
-    }
-    return k[1];
-  }
-
-  /**
-   * Algorithm B as described by Hirschberg (in reverse)
-   *
-   * <p>Implementation note: we traverse the list in reverse, it is more efficient than reversing the lists.
-   */
-  private static <T> int[] algorithmBRev(int m, int n, List<? extends T> a, List<? extends T> b) {
-    int[][] k = new int[2][n + 1];
-    for (int i = m - 1; i >= 0; i--) {
-      if (n + 1 >= 0) System.arraycopy(k[1], 0, k[0], 0, n + 1);
-      for (int j = n - 1; j >= 0; j--) {
-        if (a.get(i).equals(b.get(j))) {
-          k[1][n - j] = k[0][n - j - 1] + 1;
-        } else {
-          k[1][n - j] = Math.max(k[1][n - j - 1], k[0][n - j]);
-        }
-      }
+  @Override
+  public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler, Deadline deadline) {
+    try (Workspace workspace = Workspace.acquire()) {
+      int[][] symbols = workspace.intern(from, to);
+      Instance<T> instance = new Instance<>(from, to, symbols[0], symbols[1], handler, deadline, workspace);
+      instance.algorithmC(0, from.size(), 0, to.size());
     }
-    return k[1];
   }
 
   /**
@@ -107,48 +76,129 @@ public final class HirschbergAlgorithm<T> implements DiffAlgorithm<T> {
   }
 
   /**
-   * Algorithm C as described by Hirschberg
+   * An instance of this algorithm for the sequences being compared.
+   *
+   * <p>Subsequences are identified by their start index and length in the original lists, and the
+   * comparison is performed on the symbols of the tokens.
+   *
+   * @param <T> The type of token
    */
-  private static <T> void algorithmC(int m, int n, List<? extends T> a, List<? extends T> b, DiffHandler<T> handler) {
-    if (DEBUG) System.out.print("[m=" + m + ",n=" + n + "," + a + "," + b + "] ->");
+  private static final class Instance<T> {
+
+    private final List<? extends T> a;
+    private final List<? extends T> b;
+    private final int[] symbolsA;
+    private final int[] symbolsB;
+    private final DiffHandler<T> handler;
+    private final Deadline deadline;
+    private final Workspace workspace;
+
+    Instance(List<? extends T> a, List<? extends T> b, int[] symbolsA, int[] symbolsB, DiffHandler<T> handler, Deadline deadline, Workspace workspace) {
+      this.a = a;
+      this.b = b;
+      this.symbolsA = symbolsA;
+      this.symbolsB = symbolsB;
+      this.handler = handler;
+      this.deadline = deadline;
+      this.workspace = workspace;
+    }
 
-    if (n == 0) {
-      if (DEBUG) System.out.println(" Step1 N=0");
-      for (T token : a) {
-        handler.handle(Operator.DEL, token);
+    /**
+     * Algorithm B as described by Hirschberg
+     *
+     * <p>The rows are borrowed from the workspace, so the returned row is only valid until the next call.
+     *
+     * @return the last line of the Needleman-Wunsch score matrix
+     */
+    private int[] algorithmB(int startA, int m, int startB, int n) {
+      int[] previous = this.workspace.ints(0, n + 1);
+      int[] current = this.workspace.ints(1, n + 1);
+      for (int i = 1; i <= m; i++) {
+        this.deadline.check();
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+        int symbol = this.symbolsA[startA + i - 1];
+        for (int j = 1; j <= n; j++) {
+          if (symbol == this.symbolsB[startB + j - 1]) {
+            current[j] = previous[j - 1] + 1;
+          } else {
+            current[j] = Math.max(current[j - 1], previous[j]);
+          }
+        }
       }
+      return current;
+    }
 
-    } else if (m == 0) {
-      if (DEBUG) System.out.println(" Step1 M=0");
-      for (T token : b) {
-        handler.handle(Operator.INS, token);
+    /**
+     * Algorithm B as described by Hirschberg (in reverse)
+     *
+     * <p>Implementation note: we traverse the list in reverse, it is more efficient than reversing the lists.
+     */
+    private int[] algorithmBRev(int startA, int m, int startB, int n) {
+      int[] previous = this.workspace.ints(2, n + 1);
+      int[] current = this.workspace.ints(3, n + 1);
+      for (int i = m - 1; i >= 0; i--) {
+        this.deadline.check();
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+        int symbol = this.symbolsA[startA + i];
+        for (int j = n - 1; j >= 0; j--) {
+          if (symbol == this.symbolsB[startB + j]) {
+            current[n - j] = previous[n - j - 1] + 1;
+          } else {
+            current[n - j] = Math.max(current[n - j - 1], previous[n - j]);
+          }
+        }
       }
+      return current;
+    }
 
-    } else if (m == 1) {
-      if (DEBUG) System.out.println(" Step1 M=1");
-      boolean match = false;
-      T a0 = a.get(0);
-      for (int j = 0; j < n; j++) {
-        if (a0.equals(b.get(j)) && !match) {
-          handler.handle(Operator.MATCH, a0);
-          match = true;
-        } else {
-          handler.handle(Operator.INS, b.get(j));
+    /**
+     * Algorithm C as described by Hirschberg
+     */
+    private void algorithmC(int startA, int m, int startB, int n) {
+      if (DEBUG) System.out.print("[m=" + m + ",n=" + n + "," + this.a.subList(startA, startA + m) + "," + this.b.subList(startB, startB + n) + "] ->");
+
+      if (n == 0) {
+        if (DEBUG) System.out.println(" Step1 N=0");
+        for (int i = startA; i < startA + m; i++) {
+          this.handler.handle(Operator.DEL, this.a.get(i));
         }
-      }
-      if (!match) handler.handle(Operator.DEL, a0);
 
-    } else {
-      if (DEBUG) System.out.println(" Step2");
-      int h = (int) Math.floor(((double) m) / 2);
+      } else if (m == 0) {
+        if (DEBUG) System.out.println(" Step1 M=0");
+        for (int j = startB; j < startB + n; j++) {
+          this.handler.handle(Operator.INS, this.b.get(j));
+        }
 
-      int[] l1 = algorithmB(h, n, a.subList(0, h), b);
-      int[] l2 = algorithmBRev(m - h, n, a.subList(h, a.size()), b);
-      int k = findK(l1, l2, n);
+      } else if (m == 1) {
+        if (DEBUG) System.out.println(" Step1 M=1");
+        boolean match = false;
+        int a0 = this.symbolsA[startA];
+        for (int j = startB; j < startB + n; j++) {
+          if (a0 == this.symbolsB[j] && !match) {
+            this.handler.handle(Operator.MATCH, this.a.get(startA));
+            match = true;
+          } else {
+            this.handler.handle(Operator.INS, this.b.get(j));
+          }
+        }
+        if (!match) this.handler.handle(Operator.DEL, this.a.get(startA));
 
-      // Recursive call
-      algorithmC(h, k, a.subList(0, h), b.subList(0, k), handler);
-      algorithmC(m - h, n - k, a.subList(h, a.size()), b.subList(k, b.size()), handler);
+      } else {
+        if (DEBUG) System.out.println(" Step2");
+        int h = m / 2;
+
+        int[] l1 = algorithmB(startA, h, startB, n);
+        int[] l2 = algorithmBRev(startA + h, m - h, startB, n);
+        int k = findK(l1, l2, n);
+
+        // Recursive call
+        algorithmC(startA, h, startB, k);
+        algorithmC(startA + h, m - h, startB + k, n - k);
+      }
     }
   }
 
@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.sequence.TokenListSlicer;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An XML-aware algorithm which computes the edit path in linear space.
+ *
+ * <p>Like Hirschberg's algorithm, it recursively finds where an optimal edit path crosses the middle
+ * row until the sub-problems are smaller than the block size. This produces a chain of checkpoints
+ * from the start to the end of both sequences.
+ *
+ * <p>Each block between two checkpoints is then walked using a matrix and a stack to eliminate
+ * invalid paths in the same way as the {@link MatrixXMLAlgorithm}; the stack is shared between blocks
+ * so that the output is well-formed. Since every optimal path within a block is part of an optimal
+ * path for the whole sequences, the result is the same quality as the matrix algorithm.
+ *
+ * <p>When the walk leaves a block on one side or cannot proceed because of the stack, it continues
+ * with the next block from where it is.
+ *
+ * <p>The memory used is proportional to the block size and the length of the sequences, so that
+ * it can process sequences that exceed the threshold of the matrix algorithm at the cost of
+ * computing the LCS lengths more than once.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ *
+ * @see MatrixXMLAlgorithm
+ * @see HirschbergAlgorithm
+ */
+public final class HirschbergXMLAlgorithm implements DiffAlgorithm<XMLToken> {
+
+  /**
+   * The default maximum number of comparisons in each block.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 4_000_000;
+
+  /**
+   * Set to <code>true</code> to allow sequence slicing.
+   */
+  private boolean slice = true;
+
+  /**
+   * The maximum number of comparisons in each block.
+   */
+  private int blockSize = DEFAULT_BLOCK_SIZE;
+
+  /**
+   * Set whether common tokens at the beginning or the end of the sequences can be removed from the diff.
+   *
+   * @param slice <code>true</code> to slice; <code>false</code> otherwise.
+   */
+  public void setSlice(boolean slice) {
+    this.slice = slice;
+  }
+
+  /**
+   * Set the maximum number of comparisons for each block walked with a matrix.
+   *
+   * @param blockSize Max number of token comparisons in each block
+   */
+  public void setBlockSize(int blockSize) {
+    this.blockSize = blockSize;
+  }
+
+  @Override
+  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    // handle the case when one of the two sequences is empty
+    if (from.isEmpty() || to.isEmpty()) {
+      for (XMLToken token : to) {
+        handler.handle(Operator.INS, token);
+      }
+      for (XMLToken token : from) {
+        handler.handle(Operator.DEL, token);
+      }
+      return;
+    }
+
+    ElementStackFilter filter = new ElementStackFilter(handler);
+    TokenListSlicer slicer = new TokenListSlicer(from, to);
+    int common = this.slice ? slicer.analyze() : 0;
+    if (common > 0) {
+      slicer.handleStart(filter);
+      List<? extends XMLToken> subA = slicer.getSubSequence1();
+      List<? extends XMLToken> subB = slicer.getSubSequence2();
+      if (subA.isEmpty() || subB.isEmpty()) {
+        for (XMLToken token : subB) filter.handle(Operator.INS, token);
+        for (XMLToken token : subA) filter.handle(Operator.DEL, token);
+      } else {
+        processDiff(subA, subB, filter, deadline);
+      }
+      slicer.handleEnd(filter);
+    } else {
+      processDiff(from, to, filter, deadline);
+    }
+  }
+
+  private void processDiff(List<? extends XMLToken> A, List<? extends XMLToken> B, ElementStackFilter handler, Deadline deadline) {
+    final int lengthA = A.size();
+    final int lengthB = B.size();
+    int[][] symbols = SymbolTable.intern(A, B);
+
+    // Find the checkpoints on an optimal path
+    List<Point> checkpoints = new ArrayList<>();
+    split(symbols[0], 0, lengthA, symbols[1], 0, lengthB, checkpoints, deadline);
+    checkpoints.add(new Point(lengthA, lengthB));
+
+    // Walk each block
+    int i = 0;
+    int j = 0;
+    int c = 0;
+    while (c < checkpoints.size()) {
+      Point end = checkpoints.get(c);
+      if (i < end.x() && j < end.y()) {
+        deadline.check();
+        MatrixBitVector matrix = new MatrixBitVector(true);
+        matrix.compute(Arrays.copyOfRange(symbols[0], i, end.x()), Arrays.copyOfRange(symbols[1], j, end.y()));
+        Point walked = MatrixXMLAlgorithm.walk(A.subList(i, end.x()), B.subList(j, end.y()), matrix, handler);
+        i += walked.x();
+        j += walked.y();
+      }
+      // Continue with the next block unless we're stuck in the last one
+      if (c == checkpoints.size() - 1 && end.isNotSame(i, j)) break;
+      c++;
+    }
+
+    // finish off: delete remaining tokens from A
+    for (; i < lengthA; i++) {
+      handler.handle(Operator.DEL, A.get(i));
+    }
+    // finish off: insert remaining tokens from B
+    for (; j < lengthB; j++) {
+      handler.handle(Operator.INS, B.get(j));
+    }
+  }
+
+  /**
+   * Recursively find where an optimal path crosses the middle row until blocks are small enough.
+   */
+  private void split(int[] a, int startA, int endA, int[] b, int startB, int endB, List<Point> checkpoints, Deadline deadline) {
+    final int m = endA - startA;
+    final int n = endB - startB;
+    if ((long) m * n <= this.blockSize || m < 2) return;
+    final int middle = startA + m / 2;
+
+    // LCS lengths of the first half with prefixes of B
+    BitVectorLCS forward = new BitVectorLCS(b, startB, endB, false);
+    for (int i = startA; i < middle; i++) {
+      deadline.check();
+      forward.advance(a[i]);
+    }
+    int[] l1 = forward.lengths();
+
+    // LCS lengths of the second half with suffixes of B
+    BitVectorLCS backward = new BitVectorLCS(b, startB, endB, true);
+    for (int i = endA - 1; i >= middle; i--) {
+      deadline.check();
+      backward.advance(a[i]);
+    }
+    int[] l2 = backward.lengths();
+
+    int max = -1;
+    int k = 0;
+    for (int j = 0; j <= n; j++) {
+      int sum = l1[j] + l2[n - j];
+      if (sum > max) {
+        max = sum;
+        k = j;
+      }
+    }
+
+    split(a, startA, middle, b, startB, startB + k, checkpoints, deadline);
+    checkpoints.add(new Point(middle, startB + k));
+    split(a, middle, endA, b, startB + k, endB, checkpoints, deadline);
+  }
+
+  @Override
+  public String toString() {
+    return "HirschbergXMLAlgorithm{" +
+        "slice=" + slice +
+        ", blockSize=" + blockSize +
+        '}';
+  }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An implementation of the histogram diff algorithm, an extension of the patience diff algorithm.
+ *
+ * <p>The algorithm looks for the common region containing the tokens with the lowest number of occurrences
+ * in the first sequence, ideally unique tokens (anchors), and uses it to split the problem into two
+ * independent sub-problems before and after that region, recursively.
+ *
+ * <p>When there are no common tokens with fewer occurrences than the maximum chain length, the
+ * remaining region is processed using {@link MyersGreedyAlgorithm}.
+ *
+ * <p>This algorithm does not always produce the shortest edit script, but it performs well on sequences
+ * with many unique tokens such as XML documents including identifiers or headings, even when sections
+ * have been moved around.
+ *
+ * @param <T> The type of token being compared
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ * @see <a href="https://git-scm.com/docs/git-diff#Documentation/git-diff.txt---histogram">Git diff --histogram</a>
+ */
+public final class HistogramAlgorithm<T> implements DiffAlgorithm<T> {
+
+  /**
+   * The default maximum number of occurrences of a token for it to be considered as an anchor.
+   */
+  public static final int DEFAULT_MAX_CHAIN_LENGTH = 64;
+
+  private int maxChainLength = DEFAULT_MAX_CHAIN_LENGTH;
+
+  /**
+   * Set the maximum number of occurrences in the first sequence of a token for it to be considered
+   * as an anchor.
+   *
+   * @param maxChainLength The maximum number of occurrences of anchor tokens
+   */
+  public void setMaxChainLength(int maxChainLength) {
+    this.maxChainLength = maxChainLength;
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler) {
+    int[][] symbols = SymbolTable.intern(from, to);
+    Instance<T> instance = new Instance<>(from, to, symbols[0], symbols[1], handler, this.maxChainLength);
+    instance.process();
+  }
+
+  @Override
+  public String toString() {
+    return "HistogramAlgorithm{maxChainLength=" + this.maxChainLength + '}';
+  }
+
+  /**
+   * An instance of this algorithm for the sequences being compared.
+   *
+   * <p>To avoid deep recursions, regions left to process and matches left to report are kept on a stack
+   * of tasks.
+   *
+   * @param <T> The type of token
+   */
+  private static final class Instance<T> {
+
+    private static final int TASK_DIFF = 0;
+    private static final int TASK_MATCH = 1;
+
+    private final List<? extends T> from;
+    private final List<? extends T> to;
+    private final int[] a;
+    private final int[] b;
+    private final DiffHandler<T> handler;
+    private final int maxChainLength;
+
+    /**
+     * Number of occurrences of each symbol in the current region of A.
+     */
+    private final int[] counts;
+
+    /**
+     * The index of the first occurrence of each symbol in the current region of A.
+     */
+    private final int[] heads;
+
+    /**
+     * The index of the next occurrence of the symbol at each index of A.
+     */
+    private final int[] next;
+
+    /**
+     * Stack of tasks, each task uses 5 consecutive ints.
+     */
+    private int[] tasks = new int[5 * 16];
+
+    private int taskCount = 0;
+
+    // Best region found by the last call to findRegion
+    private int regionStartA;
+    private int regionStartB;
+    private int regionLength;
+
+    Instance(List<? extends T> from, List<? extends T> to, int[] a, int[] b, DiffHandler<T> handler, int maxChainLength) {
+      this.from = from;
+      this.to = to;
+      this.a = a;
+      this.b = b;
+      this.handler = handler;
+      this.maxChainLength = maxChainLength;
+      int alphabet = 0;
+      for (int symbol : a) alphabet = Math.max(alphabet, symbol + 1);
+      this.counts = new int[alphabet];
+      this.heads = new int[alphabet];
+      Arrays.fill(this.heads, -1);
+      this.next = new int[a.length];
+    }
+
+    void process() {
+      push(TASK_DIFF, 0, this.a.length, 0, this.b.length);
+      while (this.taskCount > 0) {
+        int offset = --this.taskCount * 5;
+        int type = this.tasks[offset];
+        int startA = this.tasks[offset + 1];
+        int endA = this.tasks[offset + 2];
+        int startB = this.tasks[offset + 3];
+        int endB = this.tasks[offset + 4];
+        if (type == TASK_MATCH) {
+          for (int i = startA; i < endA; i++) this.handler.handle(Operator.MATCH, this.from.get(i));
+        } else {
+          diff(startA, endA, startB, endB);
+        }
+      }
+    }
+
+    private void diff(int startA, int endA, int startB, int endB) {
+      // Common prefix is reported straight away
+      while (startA < endA && startB < endB && this.a[startA] == this.b[startB]) {
+        this.handler.handle(Operator.MATCH, this.from.get(startA));
+        startA++;
+        startB++;
+      }
+      // Common suffix is reported after the rest
+      int suffix = 0;
+      while (startA < endA - suffix && startB < endB - suffix && this.a[endA - suffix - 1] == this.b[endB - suffix - 1]) {
+        suffix++;
+      }
+      if (suffix > 0) {
+        push(TASK_MATCH, endA - suffix, endA, endB - suffix, endB);
+        endA -= suffix;
+        endB -= suffix;
+      }
+
+      if (startA == endA || startB == endB) {
+        for (int i = startA; i < endA; i++) this.handler.handle(Operator.DEL, this.from.get(i));
+        for (int j = startB; j < endB; j++) this.handler.handle(Operator.INS, this.to.get(j));
+      } else if (findRegion(startA, endA, startB, endB)) {
+        int regionEndA = this.regionStartA + this.regionLength;
+        int regionEndB = this.regionStartB + this.regionLength;
+        push(TASK_DIFF, regionEndA, endA, regionEndB, endB);
+        push(TASK_MATCH, this.regionStartA, regionEndA, this.regionStartB, regionEndB);
+        push(TASK_DIFF, startA, this.regionStartA, startB, this.regionStartB);
+      } else {
+        MyersGreedyAlgorithm<T> fallback = new MyersGreedyAlgorithm<>();
+        fallback.diff(this.from.subList(startA, endA), this.to.subList(startB, endB), this.handler);
+      }
+    }
+
+    /**
+     * Find the longest common region with the lowest occurrence count.
+     *
+     * @return <code>true</code> if a region was found; <code>false</code> otherwise.
+     */
+    private boolean findRegion(int startA, int endA, int startB, int endB) {
+      // Index the occurrences of each symbol in A
+      for (int i = endA - 1; i >= startA; i--) {
+        int symbol = this.a[i];
+        this.next[i] = this.heads[symbol];
+        this.heads[symbol] = i;
+        this.counts[symbol]++;
+      }
+
+      int bestCount = this.maxChainLength + 1;
+      this.regionLength = 0;
+      int j = startB;
+      while (j < endB) {
+        int symbol = this.b[j];
+        int nextJ = j + 1;
+        int count = symbol < this.counts.length ? this.counts[symbol] : 0;
+        if (count > 0 && count <= this.maxChainLength && count <= bestCount) {
+          for (int i = this.heads[symbol]; i != -1; i = this.next[i]) {
+            // Extend the region both ways
+            int s = 0;
+            while (i - s > startA && j - s > startB && this.a[i - s - 1] == this.b[j - s - 1]) s++;
+            int e = 1;
+            while (i + e < endA && j + e < endB && this.a[i + e] == this.b[j + e]) e++;
+            int lowest = count;
+            for (int k = i - s; k < i + e; k++) lowest = Math.min(lowest, this.counts[this.a[k]]);
+            int length = s + e;
+            if (lowest < bestCount || (lowest == bestCount && length > this.regionLength)) {
+              bestCount = lowest;
+              this.regionStartA = i - s;
+              this.regionStartB = j - s;
+              this.regionLength = length;
+            }
+            nextJ = Math.max(nextJ, j + e);
+          }
+        }
+        j = nextJ;
+      }
+
+      // Reset the index
+      for (int i = startA; i < endA; i++) {
+        this.heads[this.a[i]] = -1;
+        this.counts[this.a[i]] = 0;
+      }
+      return this.regionLength > 0;
+    }
+
+    private void push(int type, int startA, int endA, int startB, int endB) {
+      if (this.tasks.length < (this.taskCount + 1) * 5) {
+        this.tasks = Arrays.copyOf(this.tasks, this.tasks.length * 2);
+      }
+      int offset = this.taskCount++ * 5;
+      this.tasks[offset] = type;
+      this.tasks[offset + 1] = startA;
+      this.tasks[offset + 2] = endA;
+      this.tasks[offset + 3] = startB;
+      this.tasks[offset + 4] = endB;
+    }
+  }
+
+}
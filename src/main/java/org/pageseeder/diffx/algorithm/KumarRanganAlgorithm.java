@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.algorithm;
 
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -45,7 +46,12 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
 
   @Override
   public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler) {
-    Instance<T> instance = new Instance<>(from, to);
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler, Deadline deadline) {
+    Instance<T> instance = new Instance<>(from, to, deadline);
     instance.process(handler);
   }
 
@@ -84,14 +90,29 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
     private final List<? extends T> A;
     private final List<? extends T> B;
 
+    /**
+     * The symbols of the tokens in each sequence, used for comparisons.
+     */
+    private final int[] symbolsA;
+    private final int[] symbolsB;
+
     /**
      * Events are reported here.
      */
     private DiffHandler<T> handler;
 
-    Instance(List<? extends T> from, List<? extends T> to) {
+    /**
+     * The deadline to check while computing the LCS.
+     */
+    private final Deadline deadline;
+
+    Instance(List<? extends T> from, List<? extends T> to, Deadline deadline) {
       this.A = Objects.requireNonNull(from);
       this.B = Objects.requireNonNull(to);
+      this.deadline = deadline;
+      int[][] symbols = SymbolTable.intern(from, to);
+      this.symbolsA = symbols[0];
+      this.symbolsB = symbols[1];
     }
 
     /**
@@ -233,8 +254,8 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
 
         // The real index in the global char table is:
         // current_index * sign + beginning index of the sub-char array
-        while (posB > lowerB && !this.A.get((i - 1) * sign + startA)
-            .equals(this.B.get((posB - 1) * sign + startB))) {
+        int symbol = this.symbolsA[(i - 1) * sign + startA];
+        while (posB > lowerB && symbol != this.symbolsB[(posB - 1) * sign + startB]) {
           posB--;
         }
         int temp = Math.max(posB, lowerB);
@@ -294,6 +315,7 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
       this.LL = new int[n + 1];
       this.R = 0;
       for (this.S = m; this.S >= m - x; this.S--) {
+        this.deadline.check();
         fillOne(startA, endA, startB, endB, m, n, sign);
         copyUpTo(this.R2, this.R1, this.R);
       }
@@ -359,7 +381,7 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
       int i = 0;
 
       // 2. Start in order for the A subsequence and get the index of the B subsequence
-      while (i < p && this.A.get(i + startA).equals(this.B.get(this.LL[p - i] - 1 + startB))) {
+      while (i < p && this.symbolsA[i + startA] == this.symbolsB[this.LL[p - i] - 1 + startB]) {
         this.handler.handle(Operator.MATCH, this.A.get(i + startA));
         this.J++;
         i++;
@@ -383,7 +405,7 @@ public final class KumarRanganAlgorithm<T> implements DiffAlgorithm<T> {
         this.J++;
         i++;
 
-        while (i < m && this.J < endB && !this.A.get(i + startA).equals(this.B.get(this.J))) {
+        while (i < m && this.J < endB && this.symbolsA[i + startA] != this.symbolsB[this.J]) {
           insertUpTo(this.J + 1);
         }
       }
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
+
+/**
+ * A matrix implementation computed with a bit-parallel LCS algorithm.
+ *
+ * <p>Instead of storing the LCS length for each cell, this matrix stores for each row a bit vector
+ * of the horizontal increments of the LCS length, computing 64 columns per machine word using the
+ * bit-vector algorithm described by Allison-Dix and Hyyrö.
+ *
+ * <p>The value of any cell is recovered in constant time from the bit vector of the row and a running
+ * count of the bits set in the preceding words, so that this matrix uses about 1.5 bits per cell
+ * instead of 16 or 32 bits for the {@link MatrixShort} and {@link MatrixInt} implementations.
+ *
+ * <p>This matrix cannot be modified cell by cell: the values must be computed using the
+ * {@link #compute(int[], int[])} method and the <code>set</code> and <code>increment</code>
+ * methods throw an <code>UnsupportedOperationException</code>.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ *
+ * @see <a href="https://doi.org/10.1016/0020-0190(86)90091-8">Allison L., Dix T.I. A bit-string longest-common-subsequence algorithm</a>
+ * @see <a href="https://doi.org/10.1007/978-3-540-27801-6_28">Hyyrö H. Bit-parallel LCS-length computation revisited</a>
+ */
+public final class MatrixBitVector implements Matrix {
+
+  /**
+   * <code>true</code> if values correspond to the LCS of suffixes (like {@link InvMatrixShort});
+   * <code>false</code> for the LCS of prefixes (like {@link MatrixShort}).
+   */
+  private final boolean inverse;
+
+  /**
+   * Number of columns (length of first sequence + 1).
+   */
+  private int width;
+
+  /**
+   * Number of rows (length of second sequence + 1).
+   */
+  private int height;
+
+  /**
+   * Number of 64-bit words required for each row.
+   */
+  private int words;
+
+  /**
+   * The horizontal increment bits for each processed token of the first sequence.
+   */
+  private long[] bits;
+
+  /**
+   * The number of bits set in the row before each word (and in total for the last entry)
+   */
+  private int[] counts;
+
+  /**
+   * The workspace to borrow the arrays from, may be <code>null</code>.
+   */
+  private final Workspace workspace;
+
+  /**
+   * @param inverse <code>true</code> to compute the LCS of suffixes; <code>false</code> for prefixes.
+   */
+  public MatrixBitVector(boolean inverse) {
+    this(inverse, null);
+  }
+
+  /**
+   * @param inverse   <code>true</code> to compute the LCS of suffixes; <code>false</code> for prefixes.
+   * @param workspace The workspace to borrow the arrays from, which must stay open while the matrix is used.
+   */
+  MatrixBitVector(boolean inverse, Workspace workspace) {
+    this.inverse = inverse;
+    this.workspace = workspace;
+  }
+
+  /**
+   * @see Matrix#setup(int, int)
+   */
+  @Override
+  public void setup(int width, int height) {
+    this.width = width;
+    this.height = height;
+    this.words = (height - 1 + 63) >>> 6;
+    if (this.workspace != null) {
+      this.bits = this.workspace.longs(0, width * this.words);
+      this.counts = this.workspace.ints(0, width * (this.words + 1));
+    } else {
+      this.bits = new long[width * this.words];
+      this.counts = new int[width * (this.words + 1)];
+    }
+  }
+
+  /**
+   * Compute the matrix for the specified sequences of symbols.
+   *
+   * <p>The symbols must come from the same {@link SymbolTable} so that equal tokens have equal symbols.
+   *
+   * @param a The symbols of the first sequence
+   * @param b The symbols of the second sequence
+   */
+  public void compute(int[] a, int[] b) {
+    compute(a, b, Deadline.none());
+  }
+
+  /**
+   * Compute the matrix for the specified sequences of symbols within the specified deadline.
+   *
+   * @param a        The symbols of the first sequence
+   * @param b        The symbols of the second sequence
+   * @param deadline The deadline checked for each row
+   *
+   * @throws DeadlineExceededException If the deadline expired before the matrix was computed
+   */
+  public void compute(int[] a, int[] b, Deadline deadline) {
+    final int m = a.length;
+    final int n = b.length;
+    if (this.bits == null || this.width != m + 1 || this.height != n + 1)
+      setup(m + 1, n + 1);
+    final int w = this.words;
+
+    BitVectorLCS lcs = new BitVectorLCS(b, 0, n, this.inverse);
+    for (int r = 1; r <= m; r++) {
+      deadline.check();
+      lcs.advance(this.inverse ? a[m - r] : a[r - 1]);
+      int offset = r * w;
+      int countOffset = r * (w + 1);
+      int count = 0;
+      for (int k = 0; k < w; k++) {
+        long h = lcs.increments(k);
+        this.bits[offset + k] = h;
+        this.counts[countOffset + k] = count;
+        count += Long.bitCount(h);
+      }
+      this.counts[countOffset + w] = count;
+    }
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void set(int i, int j, int x) {
+    throw new UnsupportedOperationException("Bit vector matrix values must be computed");
+  }
+
+  /**
+   * @see Matrix#get(int, int)
+   */
+  @Override
+  public int get(int i, int j) {
+    return this.inverse ? value(this.width - 1 - i, this.height - 1 - j) : value(i, j);
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void incrementPath(int i, int j) {
+    throw new UnsupportedOperationException("Bit vector matrix values must be computed");
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void incrementByMaxPath(int i, int j) {
+    throw new UnsupportedOperationException("Bit vector matrix values must be computed");
+  }
+
+  /**
+   * @see Matrix#isGreaterX(int, int)
+   */
+  @Override
+  public boolean isGreaterX(int i, int j) {
+    return get(i + 1, j) > get(i, j + 1);
+  }
+
+  /**
+   * @see Matrix#isGreaterY(int, int)
+   */
+  @Override
+  public boolean isGreaterY(int i, int j) {
+    return get(i + 1, j) < get(i, j + 1);
+  }
+
+  /**
+   * @see Matrix#isSameXY(int, int)
+   */
+  @Override
+  public boolean isSameXY(int i, int j) {
+    return get(i + 1, j) == get(i, j + 1);
+  }
+
+  /**
+   * Gets rid of the underlying arrays so that garbage collector can do its work.
+   *
+   * @see Matrix#release()
+   */
+  @Override
+  public void release() {
+    this.bits = null;
+    this.counts = null;
+  }
+
+  @Override
+  public int lengthX() {
+    return this.width;
+  }
+
+  @Override
+  public int lengthY() {
+    return this.height;
+  }
+
+  @Override
+  public int getLCSLength() {
+    return value(this.width - 1, this.height - 1);
+  }
+
+  /**
+   * @see Object#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    for (int j = 0; j < this.height; j++) {
+      for (int i = 0; i < this.width; i++) {
+        out.append(get(i, j)).append("\t");
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+  /**
+   * Returns the LCS length after processing <code>r</code> tokens from the first sequence
+   * and <code>c</code> tokens of the second sequence.
+   */
+  private int value(int r, int c) {
+    int k = c >>> 6;
+    int count = this.counts[r * (this.words + 1) + k];
+    int bit = c & 63;
+    return bit == 0 ? count : count + Long.bitCount(this.bits[r * this.words + k] & ((1L << bit) - 1));
+  }
+
+}
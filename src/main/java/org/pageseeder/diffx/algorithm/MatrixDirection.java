@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
+
+/**
+ * A matrix implementation which only stores the direction to follow from each cell.
+ *
+ * <p>The algorithms walking the matrix only need to know whether the value of the cell on the
+ * X axis is greater, lower or the same as the value of the cell on the Y axis, so this matrix stores
+ * the outcome of that comparison using 2 bits per cell instead of the actual values; that is 8 times
+ * less memory than the {@link MatrixShort}.
+ *
+ * <p>The LCS values are computed two rows at a time using the same dynamic programming as the other
+ * matrices, but since they are not kept, the {@link #get(int, int)} method is not supported and the
+ * comparison methods can only be called for the cells before the last row and column.
+ *
+ * <p>This matrix cannot be modified cell by cell: the values must be computed using the
+ * {@link #compute(int[], int[])} method and the <code>set</code> and <code>increment</code>
+ * methods throw an <code>UnsupportedOperationException</code>.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MatrixDirection implements Matrix {
+
+  /**
+   * Moving on the X or Y directions is equivalent.
+   */
+  private static final int SAME_XY = 0;
+
+  /**
+   * Moving on the X direction (value(i+1, j) &gt; value(i, j+1))
+   */
+  private static final int GREATER_X = 1;
+
+  /**
+   * Moving on the Y direction (value(i+1, j) &lt; value(i, j+1))
+   */
+  private static final int GREATER_Y = 2;
+
+  /**
+   * <code>true</code> if values correspond to the LCS of suffixes (like {@link InvMatrixShort});
+   * <code>false</code> for the LCS of prefixes (like {@link MatrixShort}).
+   */
+  private final boolean inverse;
+
+  /**
+   * Number of columns (length of first sequence + 1).
+   */
+  private int width;
+
+  /**
+   * Number of rows (length of second sequence + 1).
+   */
+  private int height;
+
+  /**
+   * The directions, 32 cells per long.
+   */
+  private long[] directions;
+
+  /**
+   * The length of the LCS.
+   */
+  private int length;
+
+  /**
+   * The workspace to borrow the arrays from, may be <code>null</code>.
+   */
+  private final Workspace workspace;
+
+  /**
+   * @param inverse <code>true</code> to compute the LCS of suffixes; <code>false</code> for prefixes.
+   */
+  public MatrixDirection(boolean inverse) {
+    this(inverse, null);
+  }
+
+  /**
+   * @param inverse   <code>true</code> to compute the LCS of suffixes; <code>false</code> for prefixes.
+   * @param workspace The workspace to borrow the arrays from, which must stay open while the matrix is used.
+   */
+  MatrixDirection(boolean inverse, Workspace workspace) {
+    this.inverse = inverse;
+    this.workspace = workspace;
+  }
+
+  /**
+   * @see Matrix#setup(int, int)
+   */
+  @Override
+  public void setup(int width, int height) {
+    this.width = width;
+    this.height = height;
+    long cells = (long) Math.max(width - 1, 0) * Math.max(height - 1, 0);
+    int size = (int) ((cells + 31) >>> 5);
+    this.directions = this.workspace != null ? this.workspace.longs(1, size) : new long[size];
+    this.length = 0;
+  }
+
+  /**
+   * Compute the matrix for the specified sequences of symbols.
+   *
+   * <p>The symbols must come from the same {@link SymbolTable} so that equal tokens have equal symbols.
+   *
+   * @param a The symbols of the first sequence
+   * @param b The symbols of the second sequence
+   */
+  public void compute(int[] a, int[] b) {
+    compute(a, b, Deadline.none());
+  }
+
+  /**
+   * Compute the matrix for the specified sequences of symbols within the specified deadline.
+   *
+   * @param a        The symbols of the first sequence
+   * @param b        The symbols of the second sequence
+   * @param deadline The deadline checked for each row
+   *
+   * @throws DeadlineExceededException If the deadline expired before the matrix was computed
+   */
+  public void compute(int[] a, int[] b, Deadline deadline) {
+    final int m = a.length;
+    final int n = b.length;
+    setup(m + 1, n + 1);
+    int[] previous = this.workspace != null ? this.workspace.ints(1, n + 1) : new int[n + 1];
+    int[] current = this.workspace != null ? this.workspace.ints(2, n + 1) : new int[n + 1];
+    if (this.inverse) {
+      // Rows of LCS of suffixes from the end: value(i+1, j) in previous, value(i, j) in current
+      for (int i = m - 1; i >= 0; i--) {
+        deadline.check();
+        for (int j = n - 1; j >= 0; j--) {
+          current[j] = a[i] == b[j] ? previous[j + 1] + 1 : Math.max(previous[j], current[j + 1]);
+          setDirection(i, j, previous[j], current[j + 1]);
+        }
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+      }
+      this.length = previous[0];
+    } else {
+      // Rows of LCS of prefixes from the start: value(i, j) in previous, value(i+1, j) in current
+      for (int i = 0; i < m; i++) {
+        deadline.check();
+        for (int j = 1; j <= n; j++) {
+          current[j] = a[i] == b[j - 1] ? previous[j - 1] + 1 : Math.max(previous[j], current[j - 1]);
+          setDirection(i, j - 1, current[j - 1], previous[j]);
+        }
+        int[] swap = previous;
+        previous = current;
+        current = swap;
+      }
+      this.length = previous[n];
+    }
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void set(int i, int j, int x) {
+    throw new UnsupportedOperationException("Direction matrix values must be computed");
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values are not stored
+   */
+  @Override
+  public int get(int i, int j) {
+    throw new UnsupportedOperationException("Direction matrix does not store values");
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void incrementPath(int i, int j) {
+    throw new UnsupportedOperationException("Direction matrix values must be computed");
+  }
+
+  /**
+   * @throws UnsupportedOperationException Values can only be computed
+   */
+  @Override
+  public void incrementByMaxPath(int i, int j) {
+    throw new UnsupportedOperationException("Direction matrix values must be computed");
+  }
+
+  /**
+   * @see Matrix#isGreaterX(int, int)
+   */
+  @Override
+  public boolean isGreaterX(int i, int j) {
+    return getDirection(i, j) == GREATER_X;
+  }
+
+  /**
+   * @see Matrix#isGreaterY(int, int)
+   */
+  @Override
+  public boolean isGreaterY(int i, int j) {
+    return getDirection(i, j) == GREATER_Y;
+  }
+
+  /**
+   * @see Matrix#isSameXY(int, int)
+   */
+  @Override
+  public boolean isSameXY(int i, int j) {
+    return getDirection(i, j) == SAME_XY;
+  }
+
+  /**
+   * Gets rid of the underlying array so that garbage collector can do its work.
+   *
+   * @see Matrix#release()
+   */
+  @Override
+  public void release() {
+    this.directions = null;
+  }
+
+  @Override
+  public int lengthX() {
+    return this.width;
+  }
+
+  @Override
+  public int lengthY() {
+    return this.height;
+  }
+
+  @Override
+  public int getLCSLength() {
+    return this.length;
+  }
+
+  /**
+   * @see Object#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    for (int j = 0; j < this.height - 1; j++) {
+      for (int i = 0; i < this.width - 1; i++) {
+        int direction = getDirection(i, j);
+        out.append(direction == GREATER_X ? '>' : direction == GREATER_Y ? 'v' : '=').append("\t");
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+  private void setDirection(int i, int j, int x, int y) {
+    long cell = (long) i * (this.height - 1) + j;
+    int direction = x > y ? GREATER_X : x < y ? GREATER_Y : SAME_XY;
+    this.directions[(int) (cell >>> 5)] |= (long) direction << ((cell & 31) << 1);
+  }
+
+  private int getDirection(int i, int j) {
+    long cell = (long) i * (this.height - 1) + j;
+    return (int) (this.directions[(int) (cell >>> 5)] >>> ((cell & 31) << 1)) & 3;
+  }
+
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+/**
+ * A matrix implementation backed by a single contiguous array of short numbers so that it takes half the memory of the {@link MatrixFlatInt}.
+ *
+ * <p>It can only be used when the max value to store is 32767.
+ *
+ * <p>Unlike the {@link MatrixShort} and {@link InvMatrixShort}, the values are stored in one array rather than
+ * one array per column, so that there is only one allocation and the cells computed one after the
+ * other are next to each other in memory.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MatrixFlatShort implements Matrix {
+
+  /**
+   * The maximum number of cells that can be stored in a single array.
+   */
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+  /**
+   * <code>true</code> if values correspond to the LCS of suffixes (like {@link InvMatrixShort});
+   * <code>false</code> for the LCS of prefixes (like {@link MatrixShort}).
+   */
+  private final boolean inverse;
+
+  /**
+   * Number of columns.
+   */
+  private int width;
+
+  /**
+   * Number of rows.
+   */
+  private int height;
+
+  /**
+   * The values for each column one after the other.
+   */
+  private short[] values;
+
+  /**
+   * @param inverse <code>true</code> to compute the LCS of suffixes; <code>false</code> for prefixes.
+   */
+  public MatrixFlatShort(boolean inverse) {
+    this.inverse = inverse;
+  }
+
+  /**
+   * @see Matrix#setup(int, int)
+   *
+   * @throws DataLengthException If the matrix cannot be stored in a single array
+   */
+  @Override
+  public void setup(int width, int height) {
+    long size = (long) width * height;
+    if (size > MAX_ARRAY_SIZE)
+      throw new DataLengthException(size, MAX_ARRAY_SIZE, false);
+    this.width = width;
+    this.height = height;
+    this.values = new short[(int) size];
+  }
+
+  /**
+   * @see Matrix#set(int, int, int)
+   */
+  @Override
+  public void set(int i, int j, int x) {
+    this.values[i * this.height + j] = (short) x;
+  }
+
+  /**
+   * @see Matrix#get(int, int)
+   */
+  @Override
+  public int get(int i, int j) {
+    return this.values[i * this.height + j];
+  }
+
+  /**
+   * @see Matrix#incrementPath(int, int)
+   */
+  @Override
+  public void incrementPath(int i, int j) {
+    int diagonal = this.inverse ? (i + 1) * this.height + j + 1 : (i - 1) * this.height + j - 1;
+    this.values[i * this.height + j] = (short) (this.values[diagonal] + 1);
+  }
+
+  /**
+   * @see Matrix#incrementByMaxPath(int, int)
+   */
+  @Override
+  public void incrementByMaxPath(int i, int j) {
+    int index = i * this.height + j;
+    short x = this.inverse ? this.values[index + this.height] : this.values[index - this.height];
+    short y = this.inverse ? this.values[index + 1] : this.values[index - 1];
+    this.values[index] = x >= y ? x : y;
+  }
+
+  /**
+   * @see Matrix#isGreaterX(int, int)
+   */
+  @Override
+  public boolean isGreaterX(int i, int j) {
+    int index = i * this.height + j;
+    return this.values[index + this.height] > this.values[index + 1];
+  }
+
+  /**
+   * @see Matrix#isGreaterY(int, int)
+   */
+  @Override
+  public boolean isGreaterY(int i, int j) {
+    int index = i * this.height + j;
+    return this.values[index + this.height] < this.values[index + 1];
+  }
+
+  /**
+   * @see Matrix#isSameXY(int, int)
+   */
+  @Override
+  public boolean isSameXY(int i, int j) {
+    int index = i * this.height + j;
+    return this.values[index + this.height] == this.values[index + 1];
+  }
+
+  /**
+   * Gets rid of the underlying array so that garbage collector can do its work.
+   *
+   * @see Matrix#release()
+   */
+  @Override
+  public void release() {
+    this.values = null;
+  }
+
+  @Override
+  public int lengthX() {
+    return this.width;
+  }
+
+  @Override
+  public int lengthY() {
+    return this.height;
+  }
+
+  @Override
+  public int getLCSLength() {
+    return this.inverse ? get(0, 0) : get(this.width - 1, this.height - 1);
+  }
+
+  /**
+   * @see Object#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder out = new StringBuilder();
+    for (int j = 0; j < this.height; j++) {
+      for (int i = 0; i < this.width; i++) {
+        out.append(get(i, j)).append("\t");
+      }
+      out.append('\n');
+    }
+    return out.toString();
+  }
+
+}
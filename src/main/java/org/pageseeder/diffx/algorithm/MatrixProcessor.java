@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.algorithm;
 
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.xml.Sequence;
 
 import java.io.PrintStream;
@@ -35,10 +36,83 @@ public final class MatrixProcessor<T> {
 
   private boolean inverse = false;
 
+  private boolean bitVector = true;
+
+  private boolean directionOnly = false;
+
+  private Deadline deadline = Deadline.none();
+
+  private Workspace workspace;
+
   public void setInverse(boolean inverse) {
     this.inverse = inverse;
   }
 
+  /**
+   * Indicates whether to compute the matrix using the bit-parallel LCS algorithm (default).
+   *
+   * <p>When <code>false</code>, the matrix is computed cell by cell into a matrix of short or int
+   * numbers; this uses about 10 to 20 times more memory.
+   *
+   * @param bitVector <code>true</code> to use the bit-parallel algorithm; <code>false</code> otherwise.
+   */
+  public void setBitVector(boolean bitVector) {
+    this.bitVector = bitVector;
+  }
+
+  /**
+   * Indicates whether the matrix is only used to compare adjacent cells, so that it only needs to store
+   * the direction to follow from each cell using 2 bits per cell.
+   *
+   * <p>The resulting matrix does not support the <code>get</code> method. This option only applies when
+   * the bit-parallel algorithm is not used.
+   *
+   * @param directionOnly <code>true</code> to store only directions; <code>false</code> to store the values.
+   */
+  public void setDirectionOnly(boolean directionOnly) {
+    this.directionOnly = directionOnly;
+  }
+
+  /**
+   * Set the deadline to check for each row while computing the matrix.
+   *
+   * @param deadline The deadline for the computation (none by default)
+   */
+  public void setDeadline(Deadline deadline) {
+    this.deadline = deadline;
+  }
+
+  /**
+   * Set the workspace to borrow the arrays of the bit vector and direction matrices from.
+   *
+   * <p>The workspace must remain open for as long as the matrix returned by this processor is used,
+   * and it should not be used by another matrix in the meantime.
+   *
+   * @param workspace The workspace to use or <code>null</code> to allocate new arrays (default)
+   */
+  public void setWorkspace(Workspace workspace) {
+    this.workspace = workspace;
+  }
+
+  /**
+   * Returns the approximate number of bytes required by the matrix for sequences of the specified lengths.
+   *
+   * @param lengthA The length of the first sequence
+   * @param lengthB The length of the second sequence
+   *
+   * @return the number of bytes used by the matrix chosen for these lengths.
+   */
+  public long getMemoryEstimate(int lengthA, int lengthB) {
+    long width = lengthA + 1L;
+    long height = lengthB + 1L;
+    if (this.bitVector) {
+      long words = (height - 1 + 63) >>> 6;
+      return width * words * Long.BYTES + width * (words + 1) * Integer.BYTES;
+    }
+    if (this.directionOnly) return ((long) lengthA * lengthB + 3) / 4;
+    return width * height * (isShort(lengthA, lengthB) ? Short.BYTES : Integer.BYTES);
+  }
+
   /**
    * @param first  The first sequence of tokens to test.
    * @param second The second sequence of tokens to test.
@@ -46,7 +120,7 @@ public final class MatrixProcessor<T> {
    * @return the matrix using dynamic programming
    */
   public Matrix process(Sequence first, Sequence second) {
-    Matrix matrix = this.inverse ? computeInverse(first.tokens(), second.tokens()) : compute(first.tokens(), second.tokens());
+    Matrix matrix = compute(first.tokens(), second.tokens());
     if (DEBUG) {
       printDebug(first.tokens(), second.tokens(), matrix, System.err);
     }
@@ -60,26 +134,45 @@ public final class MatrixProcessor<T> {
    * @return the matrix using dynamic programming
    */
   public Matrix process(List<? extends T> first, List<? extends T> second) {
-    Matrix matrix = this.inverse ? computeInverse(first, second) : compute(first, second);
+    Matrix matrix = compute(first, second);
     if (DEBUG) {
       printDebug(first, second, matrix, System.err);
     }
     return matrix;
   }
 
-  private static <T> Matrix compute(List<? extends T> first, List<? extends T> second) {
-    Matrix matrix = getMatrix(first, second, false);
-    int length1 = first.size();
-    int length2 = second.size();
+  private <X> Matrix compute(List<? extends X> first, List<? extends X> second) {
+    // Do not allocate the matrix if the comparison was already cancelled
+    this.deadline.check();
+    Matrix matrix = getMatrix(first, second);
+    int[][] symbols = this.workspace != null ? this.workspace.intern(first, second) : SymbolTable.intern(first, second);
+    if (matrix instanceof MatrixBitVector) {
+      ((MatrixBitVector) matrix).compute(symbols[0], symbols[1], this.deadline);
+    } else if (matrix instanceof MatrixDirection) {
+      ((MatrixDirection) matrix).compute(symbols[0], symbols[1], this.deadline);
+    } else if (this.inverse) {
+      computeInverse(matrix, symbols, this.deadline);
+    } else {
+      computeForward(matrix, symbols, this.deadline);
+    }
+    return matrix;
+  }
+
+  private static void computeForward(Matrix matrix, int[][] symbols, Deadline deadline) {
+    int[] a = symbols[0];
+    int[] b = symbols[1];
+    int length1 = a.length;
+    int length2 = b.length;
     matrix.setup(length1 + 1, length2 + 1);
     // allocate storage for array L;
     for (int i = 0; i < length1 + 1; i++) {
+      deadline.check();
       for (int j = 0; j < length2 + 1; j++) {
         // we reach the end of the sequence (fill with 0)
         if (i == 0 || j == 0) {
           matrix.set(i, j, 0);
         } else {
-          if (first.get(i - 1).equals(second.get(j - 1))) {
+          if (a[i - 1] == b[j - 1]) {
             // the tokens are the same
             matrix.incrementPath(i, j);
           } else {
@@ -89,22 +182,23 @@ public final class MatrixProcessor<T> {
         }
       }
     }
-    return matrix;
   }
 
-  private static <T> Matrix computeInverse(List<? extends T> first, List<? extends T> second) {
-    Matrix matrix = getMatrix(first, second, true);
-    int length1 = first.size();
-    int length2 = second.size();
+  private static void computeInverse(Matrix matrix, int[][] symbols, Deadline deadline) {
+    int[] a = symbols[0];
+    int[] b = symbols[1];
+    int length1 = a.length;
+    int length2 = b.length;
     matrix.setup(length1 + 1, length2 + 1);
     // allocate storage for array L;
     for (int i = length1; i >= 0; i--) {
+      deadline.check();
       for (int j = length2; j >= 0; j--) {
         // we reach the end of the sequence (fill with 0)
         if (i >= length1 || j >= length2) {
           matrix.set(i, j, 0);
         } else {
-          if (first.get(i).equals(second.get(j))) {
+          if (a[i] == b[j]) {
             // the tokens are the same
             matrix.incrementPath(i, j);
           } else {
@@ -114,7 +208,6 @@ public final class MatrixProcessor<T> {
         }
       }
     }
-    return matrix;
   }
 
   private static <T> void printDebug(List<? extends T> first, List<? extends T> second, Matrix matrix, PrintStream out) {
@@ -132,18 +225,32 @@ public final class MatrixProcessor<T> {
   }
 
   /**
-   * Determines the most appropriate matrix to use based on the length of the sequences.
+   * Determines the most appropriate matrix to use based on the options and the length of the sequences.
+   *
+   * <p>Unless the bit-parallel algorithm or direction only are used, the values are stored in a
+   * single array of short numbers when they fit or int numbers otherwise.
    *
    * @param first  The first sequence.
    * @param second The second sequence.
    *
    * @return The most appropriate matrix.
    */
-  private static <T> Matrix getMatrix(List<? extends T> first, List<? extends T> second, boolean inverse) {
-    if (first.size() + 1 > Short.MAX_VALUE || second.size() + 1 > Short.MAX_VALUE)
-      return inverse ? new InvMatrixInt() : new MatrixInt();
+  private <T> Matrix getMatrix(List<? extends T> first, List<? extends T> second) {
+    if (this.bitVector)
+      return new MatrixBitVector(this.inverse, this.workspace);
+    else if (this.directionOnly)
+      return new MatrixDirection(this.inverse, this.workspace);
+    else if (isShort(first.size(), second.size()))
+      return new MatrixFlatShort(this.inverse);
     else
-      return inverse ? new InvMatrixShort() : new MatrixShort();
+      return new MatrixFlatInt(this.inverse);
+  }
+
+  /**
+   * @return <code>true</code> if the LCS length for sequences of these lengths can be stored as short numbers.
+   */
+  private static boolean isShort(int lengthA, int lengthB) {
+    return lengthA + 1 <= Short.MAX_VALUE && lengthB + 1 <= Short.MAX_VALUE;
   }
 
 }
@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.algorithm;
 
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -36,8 +37,10 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
 
   /**
    * The default maximum number of comparisons allowed for this algorithm.
+   *
+   * <p>The matrix is computed using bit vectors, so this is about 48MB of memory.
    */
-  public static final int DEFAULT_THRESHOLD = 64_000_000;
+  public static final int DEFAULT_THRESHOLD = 256_000_000;
 
   /**
    * Set to <code>true</code> to show debug info.
@@ -51,6 +54,8 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
 
   private int threshold = DEFAULT_THRESHOLD;
 
+  private long memoryThreshold = Long.MAX_VALUE;
+
   /**
    * Set whether common tokens at the beginning or the end of the sequences can be removed from the diff.
    *
@@ -72,25 +77,53 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
     this.threshold = threshold;
   }
 
+  /**
+   * Set the maximum number of bytes that the matrix can use.
+   *
+   * <p>If the matrix for the tokens post-slicing requires more memory, it will throw a
+   * <code>DataLengthException</code>. The memory is not limited by default.
+   *
+   * @param memoryThreshold Max number of bytes used by the matrix
+   */
+  public void setMemoryThreshold(long memoryThreshold) {
+    this.memoryThreshold = memoryThreshold;
+  }
+
   /**
    * Indicates whether the diff between the two sequences can be computed.
    *
-   * <p>This method from checks that size of (A) x size of B is below the threshold.
+   * <p>This method from checks that size of (A) x size of B and the memory required by the matrix are
+   * below the thresholds.
    *
-   * <p>If it is above the threshold, it checks again after slicing.
+   * <p>If it is above the thresholds, it checks again after slicing.
    */
   public boolean isDiffComputable(List<? extends XMLToken> from, List<? extends XMLToken> to) {
     // Check without slicer from
-    if (from.size() * to.size() <= this.threshold) return true;
+    if (isWithinThresholds(from.size(), to.size())) return true;
     // Check if possible after slicing
     TokenListSlicer slicer = new TokenListSlicer(from, to);
     int commonCount = this.slice ? slicer.analyze() : 0;
-    int matrixSize = (from.size() - commonCount) * (to.size() - commonCount);
-    return matrixSize > this.threshold;
+    return isWithinThresholds(from.size() - commonCount, to.size() - commonCount);
+  }
+
+  private boolean isWithinThresholds(int lengthA, int lengthB) {
+    return (long) lengthA * lengthB <= this.threshold
+        && newMatrixProcessor().getMemoryEstimate(lengthA, lengthB) <= this.memoryThreshold;
+  }
+
+  private static MatrixProcessor<XMLToken> newMatrixProcessor() {
+    MatrixProcessor<XMLToken> builder = new MatrixProcessor<>();
+    builder.setInverse(true);
+    return builder;
   }
 
   @Override
   public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
     final int lengthA = from.size();
     final int lengthB = to.size();
 
@@ -109,10 +142,10 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
 
     // Initialize state
     ElementStackFilter estate = new ElementStackFilter(handler);
-    diff(from, to, estate);
+    diff(from, to, estate, deadline);
   }
 
-  private void diff(List<? extends XMLToken> A, List<? extends XMLToken> B, ElementStackFilter handler) {
+  private void diff(List<? extends XMLToken> A, List<? extends XMLToken> B, ElementStackFilter handler, Deadline deadline) {
     TokenListSlicer slicer = new TokenListSlicer(A, B);
     int common = this.slice ? slicer.analyze() : 0;
 
@@ -125,27 +158,72 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
         for (XMLToken token : subB) handler.handle(Operator.INS, token);
         for (XMLToken token : subA) handler.handle(Operator.DEL, token);
       } else {
-        processDiff(subA, subB, handler);
+        processDiff(subA, subB, handler, deadline);
       }
       slicer.handleEnd(handler);
     } else {
-      processDiff(A, B, handler);
+      processDiff(A, B, handler, deadline);
     }
   }
 
-  private void processDiff(List<? extends XMLToken> A, List<? extends XMLToken> B, ElementStackFilter handler) {
+  private void processDiff(List<? extends XMLToken> A, List<? extends XMLToken> B, ElementStackFilter handler, Deadline deadline) {
     final int lengthA = A.size();
     final int lengthB = B.size();
 
     // Throws error if we can't process
-    if (lengthA * lengthB > this.threshold)
-      throw new DataLengthException(lengthA * lengthB, this.threshold);
+    long size = (long) lengthA * lengthB;
+    if (size > this.threshold)
+      throw new DataLengthException(size, this.threshold, false);
+    MatrixProcessor<XMLToken> builder = newMatrixProcessor();
+    long memory = builder.getMemoryEstimate(lengthA, lengthB);
+    if (memory > this.memoryThreshold)
+      throw new DataLengthException(memory, this.memoryThreshold, true);
+    builder.setDeadline(deadline);
 
     // calculate the LCS length to fill the matrix
-    MatrixProcessor<XMLToken> builder = new MatrixProcessor<>();
-    builder.setInverse(true);
-    Matrix matrix = builder.process(A, B);
+    Point end;
+    try (Workspace workspace = Workspace.acquire()) {
+      builder.setWorkspace(workspace);
+      Matrix matrix = builder.process(A, B);
+      end = walk(A, B, matrix, handler);
+    }
+    int i = end.x();
+    int j = end.y();
+
+    // finish off: delete remaining tokens from A
+    while (i < lengthA) {
+      if (DEBUG) {
+        System.err.println("[" + i + "," + j + "]->[" + (i + 1) + "," + j + "] _i -" + A.get(i));
+      }
+      handler.handle(Operator.DEL, A.get(i));
+      i++;
+    }
+    // finish off: insert remaining tokens from B
+    while (j < lengthB) {
+      if (DEBUG) {
+        System.err.println("[" + i + "," + j + "]->[" + i + "," + (j + 1) + "] _d -" + B.get(j));
+      }
+      handler.handle(Operator.INS, B.get(j));
+      j++;
+    }
+  }
 
+  /**
+   * Walks the inverse matrix from the top left corner reporting the operations to the handler.
+   *
+   * <p>The walk stops when either sequence is exhausted or when no operation is allowed by the
+   * element stack; the remaining tokens are left to the caller.
+   *
+   * @param A       The first sequence of tokens
+   * @param B       The second sequence of tokens
+   * @param matrix  The inverse matrix computed for these sequences
+   * @param handler The handler which maintains the stack of elements
+   *
+   * @return the position where the walk stopped.
+   */
+  static Point walk(List<? extends XMLToken> A, List<? extends XMLToken> B, Matrix matrix, ElementStackFilter handler) {
+    final int lengthA = A.size();
+    final int lengthB = B.size();
     int i = 0;
     int j = 0;
     XMLToken tokenA;
@@ -272,23 +350,7 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
         System.err.println("    stack:" + handler.current());
       }
     }
-
-    // finish off: delete remaining tokens from A
-    while (i < lengthA) {
-      if (DEBUG) {
-        System.err.println("[" + i + "," + j + "]->[" + (i + 1) + "," + j + "] _i -" + A.get(i));
-      }
-      handler.handle(Operator.DEL, A.get(i));
-      i++;
-    }
-    // finish off: insert remaining tokens from B
-    while (j < lengthB) {
-      if (DEBUG) {
-        System.err.println("[" + i + "," + j + "]->[" + i + "," + (j + 1) + "] _d -" + B.get(j));
-      }
-      handler.handle(Operator.INS, B.get(j));
-      j++;
-    }
+    return new Point(i, j);
   }
 
   /**
@@ -298,7 +360,7 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
    * @param i The X position.
    * @param j The Y position.
    */
-  private void printLost(int i, int j, Matrix matrix, ElementStackFilter estate, List<? extends XMLToken> first, List<? extends XMLToken> second) {
+  private static void printLost(int i, int j, Matrix matrix, ElementStackFilter estate, List<? extends XMLToken> first, List<? extends XMLToken> second) {
     XMLToken tokenA = first.get(i);
     XMLToken tokenB = second.get(j);
     System.err.println("(!) Ambiguous choice in (" + i + "," + j + ")");
@@ -322,6 +384,7 @@ public final class MatrixXMLAlgorithm implements DiffAlgorithm<XMLToken> {
     return "MatrixXMLAlgorithm{" +
         "slice=" + slice +
         ", threshold=" + threshold +
+        ", memoryThreshold=" + memoryThreshold +
         '}';
   }
 }
@@ -16,6 +16,8 @@
 package org.pageseeder.diffx.algorithm;
 
 import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -28,6 +30,12 @@ import java.util.List;
  * An implementation of the greedy algorithm as outlined in Eugene Myers' paper
  * "An O(ND) Difference Algorithm and its Variations".
  *
+ * <p>The time and memory required grow with the square of the number of differences, so that a maximum
+ * edit cost can be specified. When the shortest edit script cannot be found within that cost, the
+ * algorithm snaps to the furthest reaching diagonal and starts again from that point. The resulting
+ * edit script is always valid but may not be the shortest, in a similar way to the "too expensive"
+ * heuristic used by git.
+ *
  * @param <T> The type of token being compared
  *
  * @author Christophe Lauret
@@ -37,13 +45,49 @@ import java.util.List;
  */
 public final class MyersGreedyAlgorithm<T> implements DiffAlgorithm<T> {
 
+  /**
+   * The default maximum edit cost (unbounded).
+   */
+  public static final int DEFAULT_MAX_COST = Integer.MAX_VALUE;
+
+  /**
+   * The maximum number of differences to explore before using the heuristic.
+   */
+  private int maxCost = DEFAULT_MAX_COST;
+
+  /**
+   * Set the maximum edit cost before the algorithm falls back to the heuristic.
+   *
+   * <p>With a maximum cost <i>C</i>, the time required is bounded by <i>O((N+M)C)</i> and the memory
+   * by <i>O(C&sup2;)</i>.
+   *
+   * @param maxCost The maximum number of differences to explore (at least 1)
+   */
+  public void setMaxCost(int maxCost) {
+    this.maxCost = Math.max(maxCost, 1);
+  }
+
   @Override
   public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler) {
-    MyersGreedyAlgorithm.Instance<T> instance = new MyersGreedyAlgorithm.Instance<>(from, to);
-    List<Snake> snakes = instance.computePath();
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler, @NotNull Deadline deadline) {
+    List<Snake> snakes;
+    try (Workspace workspace = Workspace.acquire()) {
+      int[][] symbols = workspace.intern(from, to);
+      MyersGreedyAlgorithm.Instance instance = new MyersGreedyAlgorithm.Instance(symbols[0], symbols[1], this.maxCost, deadline, workspace);
+      snakes = instance.computePath();
+    }
     handle(from, to, handler, snakes);
   }
 
+  @Override
+  public String toString() {
+    return "MyersGreedyAlgorithm{maxCost=" + this.maxCost + '}';
+  }
+
   /**
    * Handles the results of the diff by following the snakes.
    */
@@ -71,20 +115,34 @@ public final class MyersGreedyAlgorithm<T> implements DiffAlgorithm<T> {
   /**
    * An instance of this algorithm for the sequences being compared.
    *
-   * @param <T> The type of token
+   * <p>The instance compares the symbols of the tokens rather than the tokens themselves.
    */
-  private static class Instance<T> {
+  private static class Instance {
+
+    /**
+     * Workspace slots for the vector and trace.
+     */
+    private static final int VECTOR = 0;
+    private static final int TRACE = 1;
 
-    private final List<? extends T> a;
-    private final List<? extends T> b;
-    private final int sizeA;
-    private final int sizeB;
+    private final int[] a;
+    private final int[] b;
+    private final int maxCost;
+    private final Deadline deadline;
+    private final Workspace workspace;
 
-    Instance(List<? extends T> a, List<? extends T> b) {
+    // Origin and sizes of the region being processed
+    private int originA;
+    private int originB;
+    private int sizeA;
+    private int sizeB;
+
+    Instance(int[] a, int[] b, int maxCost, Deadline deadline, Workspace workspace) {
       this.a = a;
       this.b = b;
-      this.sizeA = a.size();
-      this.sizeB = b.size();
+      this.maxCost = maxCost;
+      this.deadline = deadline;
+      this.workspace = workspace;
     }
 
     /**
@@ -93,30 +151,88 @@ public final class MyersGreedyAlgorithm<T> implements DiffAlgorithm<T> {
      * <p>The solution is a list of snakes connected to each other and forming the path from (0,0) to (N,M)
      *
      * @return the corresponding list of snakes
-     * @throws IllegalStateException If no solution was found.
+     * @throws IllegalStateException     If no solution was found.
+     * @throws DeadlineExceededException If the deadline has expired
      */
     private List<Snake> computePath() {
-      Vector vector = Vector.createGreedy(this.sizeA, this.sizeB);
-      List<Vector> vectors = new ArrayList<>();
+      List<Snake> snakes = new ArrayList<>();
+      Point origin = new Point(0, 0);
+      // Unless the maximum cost is exceeded, the end is reached after the first step
+      do {
+        origin = computePath(origin, snakes);
+      } while (origin.x() < this.a.length || origin.y() < this.b.length);
+      return snakes;
+    }
+
+    /**
+     * Compute the path from the specified origin to the end, or to the furthest reaching point
+     * when the maximum cost is exceeded.
+     *
+     * @param origin The point to start from
+     * @param snakes The list of snakes to add to
+     *
+     * @return the point reached
+     * @throws IllegalStateException If no solution was found.
+     */
+    private Point computePath(Point origin, List<Snake> snakes) {
+      this.originA = origin.x();
+      this.originB = origin.y();
+      this.sizeA = this.a.length - this.originA;
+      this.sizeB = this.b.length - this.originB;
 
-      // Maximum length for the path (N + M)
-      final int max = this.sizeA + this.sizeB;
+      // Maximum length for the path (N + M) unless bounded by the cost
+      final int max = (int) Math.min((long) this.sizeA + this.sizeB, this.maxCost);
+      Vector vector = Vector.create(this.sizeA, this.sizeB, true, max + 1, this.workspace, VECTOR);
+      Trace trace = new Trace(this.workspace.ints(TRACE, Math.max(Math.min(max + 1, 1024), 16)));
 
       // Find the endpoint of the furthest reaching D-path in diagonal k
       boolean found = false;
       for (int d = 0; d <= max; d++) {
+        this.deadline.check();
         found = forward(vector, d);
-        vectors.add(vector.snapshot(d));
+        trace.record(vector, d);
         if (found) {
           break;
         }
       }
+      this.workspace.keep(TRACE, trace.arena());
 
-      if (!found)
+      Point target;
+      if (found) {
+        target = new Point(this.sizeA, this.sizeB);
+      } else if (max < this.sizeA + this.sizeB) {
+        target = furthest(trace, max);
+      } else {
         throw new IllegalStateException("Unable to find a solution!");
+      }
 
-      // Compute the snakes from the vectors
-      return solve(vectors);
+      // Compute the snakes from the trace
+      for (Snake snake : solve(trace, target)) {
+        Point start = snake.getStart();
+        snakes.add(new Snake(new Point(start.x() + this.originA, start.y() + this.originB), snake.length()));
+      }
+      return new Point(target.x() + this.originA, target.y() + this.originB);
+    }
+
+    /**
+     * Find the furthest reaching point within the region for the last D-path.
+     *
+     * @return the point on the diagonal which is closest to the end.
+     */
+    private Point furthest(Trace trace, int d) {
+      Point furthest = null;
+      int best = -1;
+      for (int k = -d; k <= d; k += 2) {
+        int x = trace.getX(d, k);
+        int y = x - k;
+        if (x <= this.sizeA && y >= 0 && y <= this.sizeB && x + y > best) {
+          best = x + y;
+          furthest = new Point(x, y);
+        }
+      }
+      if (furthest == null)
+        throw new IllegalStateException("Unable to find a furthest reaching point for d:" + d);
+      return furthest;
     }
 
     /**
@@ -132,7 +248,7 @@ public final class MyersGreedyAlgorithm<T> implements DiffAlgorithm<T> {
         int y = x - k;
 
         // Follow diagonals
-        while (x < this.sizeA && y < this.sizeB && this.a.get(x).equals(this.b.get(y))) {
+        while (x < this.sizeA && y < this.sizeB && this.a[this.originA + x] == this.b[this.originB + y]) {
           x++;
           y++;
         }
@@ -152,23 +268,26 @@ public final class MyersGreedyAlgorithm<T> implements DiffAlgorithm<T> {
     /**
      * @throws IllegalStateException If no solution could be found
      */
-    private @NotNull List<Snake> solve(@NotNull List<Vector> vectors) {
+    private @NotNull List<Snake> solve(@NotNull Trace trace, @NotNull Point target) {
       LinkedList<Snake> snakes = new LinkedList<>();
-      Point target = new Point(this.sizeA, this.sizeB);
 
-      // We go backwards following the vectors to get the snakes
-      for (int d = vectors.size() - 1; target.x() > 0 || target.y() > 0; d--) {
-        Vector vector = vectors.get(d);
+      // We go backwards following the trace to get the snakes
+      for (int d = trace.last(); target.x() > 0 || target.y() > 0; d--) {
         int k = target.x() - target.y();
-        int xEnd = vector.getX(k);
+        int xEnd = trace.getX(d, k);
         int yEnd = xEnd - k;
 
         if (target.isNotSame(xEnd, yEnd))
           throw new IllegalStateException("No solution for d:" + d + " k:" + k + " p:" + target + " V:( " + xEnd + ", " + yEnd + " )");
 
-        boolean down = (k == -d || (k != d && vector.getX(k - 1) < vector.getX(k + 1)));
-        int xStart = down ? vector.getX(k + 1) : vector.getX(k - 1);
-        int yStart = xStart - (down ? k + 1 : k - 1);
+        // The D-path starts from the end point of a (D-1)-path, or from the origin
+        int xStart = 0;
+        int yStart = 0;
+        if (d > 0) {
+          boolean down = (k == -d || (k != d && trace.getX(d - 1, k - 1) < trace.getX(d - 1, k + 1)));
+          xStart = down ? trace.getX(d - 1, k + 1) : trace.getX(d - 1, k - 1);
+          yStart = xStart - (down ? k + 1 : k - 1);
+        }
         int matching = Math.min(xEnd - xStart, yEnd - yStart);
 
         // Only include non-empty snakes and the last one
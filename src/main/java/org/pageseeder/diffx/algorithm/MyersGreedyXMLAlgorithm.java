@@ -16,6 +16,7 @@
 package org.pageseeder.diffx.algorithm;
 
 import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -38,8 +39,16 @@ public final class MyersGreedyXMLAlgorithm extends MyersAlgorithm<XMLToken> impl
 
   @Override
   public void diff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to, @NotNull DiffHandler<XMLToken> handler) {
-    Instance instance = new Instance(from, to);
-    List<EdgeSnake> snakes = instance.computePath();
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to, @NotNull DiffHandler<XMLToken> handler, @NotNull Deadline deadline) {
+    List<EdgeSnake> snakes;
+    try (Workspace workspace = Workspace.acquire()) {
+      Instance instance = new Instance(from, to, deadline, workspace);
+      snakes = instance.computePath();
+    }
     // Autocorrect (required until we can fix the attributes)
     PostXMLFixer correction = new PostXMLFixer(handler);
     correction.start();
@@ -54,14 +63,24 @@ public final class MyersGreedyXMLAlgorithm extends MyersAlgorithm<XMLToken> impl
    */
   private static class Instance {
 
+    /**
+     * Workspace slots for the vector and trace.
+     */
+    private static final int VECTOR = 0;
+    private static final int TRACE = 1;
+
     private final List<? extends XMLToken> a;
     private final List<? extends XMLToken> b;
     private final int sizeA;
     private final int sizeB;
+    private final Deadline deadline;
+    private final Workspace workspace;
 
-    Instance(List<? extends XMLToken> a, List<? extends XMLToken> b) {
+    Instance(List<? extends XMLToken> a, List<? extends XMLToken> b, Deadline deadline, Workspace workspace) {
       this.a = a;
       this.b = b;
+      this.deadline = deadline;
+      this.workspace = workspace;
       this.sizeA = a.size();
       this.sizeB = b.size();
     }
@@ -75,26 +94,28 @@ public final class MyersGreedyXMLAlgorithm extends MyersAlgorithm<XMLToken> impl
      * @throws IllegalStateException If no solution was found.
      */
     private List<EdgeSnake> computePath() {
-      Vector vector = Vector.createGreedy(this.sizeA, this.sizeB);
-      List<Vector> vectors = new ArrayList<>();
-      XMLStackMap elements = new XMLStackMap();
-
       // Maximum length for the path (N + M)
       final int max = sizeA + sizeB;
 
+      Vector vector = Vector.create(this.sizeA, this.sizeB, true, max, this.workspace, VECTOR);
+      Trace trace = new Trace(this.workspace.ints(TRACE, Math.max(Math.min(max + 1, 1024), 16)));
+      XMLStackMap elements = new XMLStackMap();
+
       // Find the endpoint of the furthest reaching D-path in diagonal k
       boolean found = false;
       for (int d = 0; d <= max; d++) {
+        this.deadline.check();
         found = forward(vector, elements, d);
         if (DEBUG) System.err.println("D" + d + ": " + elements + " | " + vector + "\n");
-        vectors.add(vector.snapshot(d));
+        trace.record(vector, d);
         // We've found a path
         if (found) break;
       }
+      this.workspace.keep(TRACE, trace.arena());
       if (!found) throw new IllegalStateException("Unable to find a solution!");
 
       // Return the corresponding snakes
-      return solve(vectors);
+      return solve(trace);
     }
 
     /**
@@ -163,21 +184,20 @@ public final class MyersGreedyXMLAlgorithm extends MyersAlgorithm<XMLToken> impl
     /**
      * @throws IllegalStateException If no solution could be found
      */
-    private List<EdgeSnake> solve(List<Vector> vectors) {
+    private List<EdgeSnake> solve(Trace trace) {
       List<EdgeSnake> snakes = new ArrayList<>();
       Point p = new Point(this.sizeA, this.sizeB);
 
-      for (int d = vectors.size() - 1; p.x() > 0 || p.y() > 0; d--) {
-        Vector vector = vectors.get(d);
+      for (int d = trace.last(); p.x() > 0 || p.y() > 0; d--) {
         int k = p.x() - p.y();
-        int xEnd = vector.getX(k);
+        int xEnd = trace.getX(d, k);
         int yEnd = xEnd - k;
         if (DEBUG) System.out.println("D=" + d + " k=" + k + " x=" + xEnd + " y=" + yEnd);
 
         if (p.isNotSame(xEnd, yEnd))
           throw new IllegalStateException("No solution for d:" + d + " k:" + k + " p:" + p + " V:( " + xEnd + ", " + yEnd + " )");
 
-        EdgeSnake solution = createToPoint(p, vector, k, d);
+        EdgeSnake solution = createToPoint(p, trace, k, d);
 
         if (p.isNotSame(solution.getXEnd(), solution.getYEnd()))
           throw new IllegalStateException("Missed solution for d:" + d + " k:" + k + " p:" + p + " V:( " + xEnd + ", " + yEnd + " )");
@@ -199,11 +219,12 @@ public final class MyersGreedyXMLAlgorithm extends MyersAlgorithm<XMLToken> impl
 
   }
 
-  private static EdgeSnake createToPoint(Point point, Vector vector, int k, int d) {
+  private static EdgeSnake createToPoint(Point point, Trace trace, int k, int d) {
     final int aEnd = point.x();
     final int bEnd = point.y();
-    boolean down = (k == -d || (k != d && vector.getX(k - 1) < vector.getX(k + 1)));
-    int xStart = down ? vector.getX(k + 1) : vector.getX(k - 1);
+    // The D-path starts from the end point of a (D-1)-path, or from the origin
+    boolean down = (k == -d || (k != d && trace.getX(d - 1, k - 1) < trace.getX(d - 1, k + 1)));
+    int xStart = d == 0 ? 0 : down ? trace.getX(d - 1, k + 1) : trace.getX(d - 1, k - 1);
     int yStart = xStart - (down ? k + 1 : k - 1);
     int xEnd = down ? xStart : xStart + 1;
     int yEnd = xEnd - k;
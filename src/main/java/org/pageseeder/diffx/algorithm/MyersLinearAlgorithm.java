@@ -16,6 +16,7 @@
 package org.pageseeder.diffx.algorithm;
 
 import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 
@@ -41,31 +42,64 @@ public final class MyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements
 
   @Override
   public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler) {
-    Instance<T> instance = new Instance<>(from, to);
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler, @NotNull Deadline deadline) {
+    int[][] symbols = SymbolTable.intern(from, to);
+    Instance instance = new Instance(symbols[0], symbols[1], deadline);
     List<EdgeSnake> snakes = instance.computePath();
     handleResults(from, to, handler, snakes);
   }
 
-  static class Instance<T> {
+  /**
+   * An instance of this algorithm comparing the symbols of the tokens.
+   */
+  static class Instance {
 
-    private final List<? extends T> a;
-    private final List<? extends T> b;
+    private final int[] a;
+    private final int[] b;
+    private final Deadline deadline;
 
-    Instance(List<? extends T> a, List<? extends T> b) {
+    Instance(int[] a, int[] b, Deadline deadline) {
       this.a = a;
       this.b = b;
+      this.deadline = deadline;
     }
 
     public List<EdgeSnake> computePath() {
-      Vector VForward = Vector.createLinear(this.a.size(), this.b.size(), true);
-      Vector VReverse = Vector.createLinear(this.a.size(), this.b.size(), false);
+      Vector VForward = Vector.createLinear(this.a.length, this.b.length, true);
+      Vector VReverse = Vector.createLinear(this.a.length, this.b.length, false);
       List<EdgeSnake> snakes = new ArrayList<>();
       List<Vector> forwardVs = new ArrayList<>();
       List<Vector> reverseVs = new ArrayList<>();
-      computePath(0, snakes, forwardVs, reverseVs, 0, this.a.size(), 0, this.b.size(), VForward, VReverse);
+      computePath(0, snakes, forwardVs, reverseVs, 0, this.a.length, 0, this.b.length, VForward, VReverse);
+      return snakes;
+    }
+
+    /**
+     * Compute the path for the specified range only.
+     *
+     * @return the snakes for that range.
+     */
+    List<EdgeSnake> computePath(int startA, int sizeA, int startB, int sizeB) {
+      Vector VForward = Vector.createLinear(sizeA, sizeB, true);
+      Vector VReverse = Vector.createLinear(sizeA, sizeB, false);
+      List<EdgeSnake> snakes = new ArrayList<>();
+      computePath(0, snakes, null, null, startA, sizeA, startB, sizeB, VForward, VReverse);
       return snakes;
     }
 
+    /**
+     * Calculate the middle snake for the specified range only.
+     */
+    MiddleSnake middleSnake(int startA, int sizeA, int startB, int sizeB) {
+      Vector VForward = Vector.createLinear(sizeA, sizeB, true);
+      Vector VReverse = Vector.createLinear(sizeA, sizeB, false);
+      return middleSnake(startA, sizeA, startB, sizeB, VForward, VReverse, null, null);
+    }
+
     private void computePath(int recursion, List<EdgeSnake> snakes,
                              List<Vector> forwardVs, List<Vector> reverseVs,
                              int startA, int sizeA,
@@ -165,6 +199,7 @@ public final class MyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements
       final boolean deltaIsEven = (delta % 2) == 0;
 
       for (int d = 0; d <= max; d++) {
+        this.deadline.check();
         // For k in D to D in steps of 2 Do
         for (int k = -d; k <= d; k += 2) {
 
@@ -175,7 +210,7 @@ public final class MyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements
           int xEnd = down ? xStart : xStart + 1;
           int yEnd = xEnd - k;
           int matching = 0;
-          while (xEnd < sizeA && yEnd < sizeB && a.get(xEnd + startA).equals(b.get(yEnd + startB))) {
+          while (xEnd < sizeA && yEnd < sizeB && a[xEnd + startA] == b[yEnd + startB]) {
             xEnd++;
             yEnd++;
             matching++;
@@ -211,7 +246,7 @@ public final class MyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements
           int xEnd = up ? xStart : xStart - 1;
           int yEnd = xEnd - k;
           int matching = 0;
-          while (xEnd > 0 && yEnd > 0 && a.get(xEnd + startA - 1).equals(b.get(yEnd + startB - 1))) {
+          while (xEnd > 0 && yEnd > 0 && a[xEnd + startA - 1] == b[yEnd + startB - 1]) {
             xEnd--;
             yEnd--;
             matching++;
@@ -245,7 +280,7 @@ public final class MyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements
   /**
    * Temporary utility class
    */
-  private static class MiddleSnake {
+  static class MiddleSnake {
 
     private final int diff;
 
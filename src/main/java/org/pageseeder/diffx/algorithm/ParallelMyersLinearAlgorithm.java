@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A parallel implementation of the linear algorithm as outlined in Eugene Myers' paper
+ * "An O(ND) Difference Algorithm and its Variations".
+ *
+ * <p>Once the middle snake has been found, the sub-problems before and after it are independent, so
+ * they are computed in parallel using a fork/join pool and the resulting snakes are joined in order.
+ *
+ * <p>Sub-problems below the cutoff are computed sequentially by the {@link MyersLinearAlgorithm}, so
+ * the results are the same.
+ *
+ * @param <T> The type of token being compared
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ * @see MyersLinearAlgorithm
+ */
+public final class ParallelMyersLinearAlgorithm<T> extends MyersAlgorithm<T> implements DiffAlgorithm<T> {
+
+  /**
+   * The default total length of the sub-sequences below which the path is computed sequentially.
+   */
+  public static final int DEFAULT_CUTOFF = 10_000;
+
+  /**
+   * The pool to use.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * The total length of the sub-sequences below which the path is computed sequentially.
+   */
+  private int cutoff = DEFAULT_CUTOFF;
+
+  /**
+   * Creates a new algorithm using the common fork/join pool.
+   */
+  public ParallelMyersLinearAlgorithm() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a new algorithm using the specified fork/join pool.
+   *
+   * @param pool The pool to use
+   */
+  public ParallelMyersLinearAlgorithm(@NotNull ForkJoinPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Set the total length of the sub-sequences below which the path is computed sequentially.
+   *
+   * @param cutoff The minimum total length of the sub-sequences to compute in parallel.
+   */
+  public void setCutoff(int cutoff) {
+    this.cutoff = cutoff;
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler) {
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler, @NotNull Deadline deadline) {
+    int[][] symbols = SymbolTable.intern(from, to);
+    MyersLinearAlgorithm.Instance instance = new MyersLinearAlgorithm.Instance(symbols[0], symbols[1], deadline);
+    List<EdgeSnake> snakes = this.pool.invoke(new PathTask(instance, 0, from.size(), 0, to.size(), this.cutoff));
+    handleResults(from, to, handler, snakes);
+  }
+
+  @Override
+  public String toString() {
+    return "ParallelMyersLinearAlgorithm{cutoff=" + this.cutoff + '}';
+  }
+
+  /**
+   * Computes the path for a range of both sequences.
+   */
+  private static final class PathTask extends RecursiveTask<List<EdgeSnake>> {
+
+    /**
+     * As required for Serializable.
+     */
+    private static final long serialVersionUID = 4731568126893217405L;
+
+    private final MyersLinearAlgorithm.Instance instance;
+    private final int startA;
+    private final int sizeA;
+    private final int startB;
+    private final int sizeB;
+    private final int cutoff;
+
+    PathTask(MyersLinearAlgorithm.Instance instance, int startA, int sizeA, int startB, int sizeB, int cutoff) {
+      this.instance = instance;
+      this.startA = startA;
+      this.sizeA = sizeA;
+      this.startB = startB;
+      this.sizeB = sizeB;
+      this.cutoff = cutoff;
+    }
+
+    @Override
+    protected List<EdgeSnake> compute() {
+      if (this.sizeA + this.sizeB <= this.cutoff || this.sizeA == 0 || this.sizeB == 0) {
+        return this.instance.computePath(this.startA, this.sizeA, this.startB, this.sizeB);
+      }
+      MyersLinearAlgorithm.MiddleSnake middle = this.instance.middleSnake(this.startA, this.sizeA, this.startB, this.sizeB);
+      // Edge cases D=0 or D=1 are trivial
+      if (middle.getDiff() <= 1) {
+        return this.instance.computePath(this.startA, this.sizeA, this.startB, this.sizeB);
+      }
+
+      // Solve top left and bottom right rectangles in parallel
+      EdgeSnake snake = middle.snake();
+      Point xy = middle.isForward() ? snake.getStartPoint() : snake.getEndPoint();
+      Point uv = !middle.isForward() ? snake.getStartPoint() : snake.getEndPoint();
+      PathTask before = new PathTask(this.instance, this.startA, xy.x() - this.startA, this.startB, xy.y() - this.startB, this.cutoff);
+      PathTask after = new PathTask(this.instance, uv.x(), this.startA + this.sizeA - uv.x(), uv.y(), this.startB + this.sizeB - uv.y(), this.cutoff);
+      after.fork();
+      List<EdgeSnake> snakes = before.compute();
+      List<EdgeSnake> next = after.join();
+
+      // Join results in order
+      append(snakes, snake);
+      for (EdgeSnake s : next) append(snakes, s);
+      return snakes;
+    }
+
+    private static void append(List<EdgeSnake> snakes, EdgeSnake snake) {
+      if (snakes.size() == 0 || !snakes.get(snakes.size() - 1).append(snake)) {
+        snakes.add(snake);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.sequence.TokenListSegmenter;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * An XML-aware algorithm which cuts the sequences into independent segments using anchors before
+ * comparing each segment with another XML algorithm.
+ *
+ * <p>The anchors are identical elements which are unique among their siblings as found by the
+ * {@link TokenListSegmenter}, so that the segments to compare are much smaller than the sequences
+ * when the changes are spread out over a large document.
+ *
+ * <p>When a fork/join pool is specified, the segments are compared in parallel and the results are
+ * reported in order. The algorithm used to compare the segments must then be thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ * @see TokenListSegmenter
+ */
+public final class SegmentedXMLAlgorithm implements DiffAlgorithm<XMLToken> {
+
+  /**
+   * The algorithm used to compare each segment.
+   */
+  private final DiffAlgorithm<XMLToken> algorithm;
+
+  /**
+   * The pool to use, may be <code>null</code> to compare segments sequentially.
+   */
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates a new algorithm comparing segments sequentially with the {@link MatrixXMLAlgorithm}.
+   */
+  public SegmentedXMLAlgorithm() {
+    this(new MatrixXMLAlgorithm(), null);
+  }
+
+  /**
+   * Creates a new algorithm comparing segments sequentially.
+   *
+   * @param algorithm The XML algorithm to use to compare each segment.
+   */
+  public SegmentedXMLAlgorithm(@NotNull DiffAlgorithm<XMLToken> algorithm) {
+    this(algorithm, null);
+  }
+
+  /**
+   * Creates a new algorithm comparing segments in parallel using the specified pool.
+   *
+   * @param algorithm The thread-safe XML algorithm to use to compare each segment.
+   * @param pool      The pool to use or <code>null</code> to compare segments sequentially.
+   */
+  public SegmentedXMLAlgorithm(@NotNull DiffAlgorithm<XMLToken> algorithm, ForkJoinPool pool) {
+    this.algorithm = algorithm;
+    this.pool = pool;
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to, @NotNull DiffHandler<XMLToken> handler) {
+    diff(from, to, handler, Deadline.none());
+  }
+
+  @Override
+  public void diff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to, @NotNull DiffHandler<XMLToken> handler, @NotNull Deadline deadline) {
+    List<TokenListSegmenter.Segment> segments = new TokenListSegmenter(from, to).segment();
+    if (this.pool == null) {
+      for (TokenListSegmenter.Segment segment : segments) {
+        if (segment.isCommon()) {
+          for (XMLToken token : segment.getSubSequence1()) handler.handle(Operator.MATCH, token);
+        } else {
+          this.algorithm.diff(segment.getSubSequence1(), segment.getSubSequence2(), handler, deadline);
+        }
+      }
+    } else {
+      // Submit all segments to compare first
+      List<ForkJoinTask<OperationsBuffer<XMLToken>>> tasks = new ArrayList<>(segments.size());
+      for (TokenListSegmenter.Segment segment : segments) {
+        tasks.add(segment.isCommon() ? null : this.pool.submit(() -> {
+          OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+          this.algorithm.diff(segment.getSubSequence1(), segment.getSubSequence2(), buffer, deadline);
+          return buffer;
+        }));
+      }
+      // Report the results in order
+      for (int i = 0; i < segments.size(); i++) {
+        ForkJoinTask<OperationsBuffer<XMLToken>> task = tasks.get(i);
+        if (task == null) {
+          for (XMLToken token : segments.get(i).getSubSequence1()) handler.handle(Operator.MATCH, token);
+        } else {
+          for (Operation<XMLToken> operation : task.join().getOperations()) {
+            handler.handle(operation.operator(), operation.token());
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentedXMLAlgorithm{" +
+        "algorithm=" + algorithm +
+        ", parallel=" + (pool != null) +
+        '}';
+  }
+}
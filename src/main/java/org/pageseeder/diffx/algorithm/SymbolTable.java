@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A symbol table mapping tokens to dense integer symbols.
+ *
+ * <p>Two tokens are assigned the same symbol if and only if they are equal, so algorithms can
+ * compare symbols instead of invoking <code>equals</code> on the tokens in their inner loops.
+ *
+ * <p>Symbols are allocated sequentially from 0, the same table must be used for both sequences
+ * being compared.
+ *
+ * <p>The table uses open addressing to avoid allocating an entry and a boxed integer per token.
+ *
+ * <p>This class is not synchronized.
+ *
+ * @param <T> The type of token being interned
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class SymbolTable<T> {
+
+  /**
+   * Maximum load factor before the table is resized.
+   */
+  private static final float LOAD_FACTOR = .5f;
+
+  /**
+   * The distinct tokens (keys of the hash table).
+   */
+  private Object[] keys;
+
+  /**
+   * The symbol for the corresponding key.
+   */
+  private int[] symbols;
+
+  /**
+   * Number of distinct symbols in this table.
+   */
+  private int size = 0;
+
+  /**
+   * Creates a new symbol table with a default capacity.
+   */
+  public SymbolTable() {
+    this(64);
+  }
+
+  /**
+   * Creates a new symbol table.
+   *
+   * @param expected The expected number of tokens, used to size the table.
+   */
+  public SymbolTable(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+    this.keys = new Object[capacity];
+    this.symbols = new int[capacity];
+  }
+
+  /**
+   * Returns the symbol for the specified token, allocating a new one if necessary.
+   *
+   * @param token The token to intern
+   *
+   * @return the corresponding symbol
+   */
+  public int intern(@NotNull T token) {
+    int mask = this.keys.length - 1;
+    int i = spread(token.hashCode()) & mask;
+    Object key;
+    while ((key = this.keys[i]) != null) {
+      if (key == token || key.equals(token)) return this.symbols[i];
+      i = (i + 1) & mask;
+    }
+    int symbol = this.size++;
+    this.keys[i] = token;
+    this.symbols[i] = symbol;
+    if (this.size > this.keys.length * LOAD_FACTOR) resize();
+    return symbol;
+  }
+
+  /**
+   * Returns the symbol for the specified token without allocating a new one.
+   *
+   * @param token The token to look up
+   *
+   * @return the corresponding symbol or -1 if the token has never been interned.
+   */
+  public int get(@NotNull T token) {
+    int mask = this.keys.length - 1;
+    int i = spread(token.hashCode()) & mask;
+    Object key;
+    while ((key = this.keys[i]) != null) {
+      if (key == token || key.equals(token)) return this.symbols[i];
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Interns all the tokens in the list.
+   *
+   * @param tokens The tokens to intern
+   *
+   * @return the array of symbols so that <code>symbols[i]</code> is the symbol of <code>tokens.get(i)</code>
+   */
+  public int[] intern(@NotNull List<? extends T> tokens) {
+    int[] array = new int[tokens.size()];
+    int i = 0;
+    for (T token : tokens) {
+      array[i++] = intern(token);
+    }
+    return array;
+  }
+
+  /**
+   * Removes all the tokens from this table so that it can be reused.
+   *
+   * <p>The symbols are allocated from 0 again, the capacity of the table is unchanged.
+   */
+  public void clear() {
+    Arrays.fill(this.keys, null);
+    this.size = 0;
+  }
+
+  /**
+   * @return the number of slots in the hash table.
+   */
+  int capacity() {
+    return this.keys.length;
+  }
+
+  /**
+   * @return the number of distinct symbols in this table.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Interns two lists of tokens using a shared symbol table.
+   *
+   * @param from The first list of tokens
+   * @param to   The second list of tokens
+   * @param <T>  The type of tokens
+   *
+   * @return An array containing the symbols for the first and second lists.
+   */
+  public static <T> int[][] intern(@NotNull List<? extends T> from, @NotNull List<? extends T> to) {
+    try (Workspace workspace = Workspace.acquire()) {
+      return workspace.intern(from, to);
+    }
+  }
+
+  private void resize() {
+    Object[] oldKeys = this.keys;
+    int[] oldSymbols = this.symbols;
+    int capacity = oldKeys.length << 1;
+    int mask = capacity - 1;
+    this.keys = new Object[capacity];
+    this.symbols = new int[capacity];
+    for (int j = 0; j < oldKeys.length; j++) {
+      Object key = oldKeys[j];
+      if (key != null) {
+        int i = spread(key.hashCode()) & mask;
+        while (this.keys[i] != null) i = (i + 1) & mask;
+        this.keys[i] = key;
+        this.symbols[i] = oldSymbols[j];
+      }
+    }
+  }
+
+  /**
+   * Spread the higher bits of the hash to the lower bits as tokens tend to have poor hash distributions.
+   */
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  @Override
+  public String toString() {
+    return "SymbolTable{size=" + this.size + '}';
+  }
+}
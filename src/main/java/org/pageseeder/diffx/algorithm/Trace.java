@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Stores the end points of the furthest reaching D-paths computed by the greedy algorithm so that
+ * the path can be reconstructed backwards.
+ *
+ * <p>Only the diagonals <code>k = -d, -d+2, ..., d</code> are updated for each <code>d</code>, so
+ * only these <code>d+1</code> values are recorded in a single array: the values for <code>d</code>
+ * start at offset <code>d(d+1)/2</code>.
+ *
+ * <p>This uses about half the memory required by a snapshot of the vector for each <code>d</code>,
+ * and a single allocation is needed each time the array grows.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+final class Trace {
+
+  /**
+   * The maximum size of the arena.
+   */
+  private static final int MAX_SIZE = Integer.MAX_VALUE - 8;
+
+  /**
+   * The end points for each D-path.
+   */
+  private int[] arena;
+
+  /**
+   * The last D recorded, -1 if empty.
+   */
+  private int last = -1;
+
+  /**
+   * Creates a new trace.
+   *
+   * @param capacity The initial number of values that can be recorded.
+   */
+  Trace(int capacity) {
+    this.arena = new int[Math.max(capacity, 16)];
+  }
+
+  /**
+   * Creates a new trace recording the values in the specified array while it is large enough.
+   *
+   * @param arena The array to use initially, at least 1 in length
+   */
+  Trace(int[] arena) {
+    this.arena = arena;
+  }
+
+  /**
+   * Record the end points of the furthest reaching D-paths for the next <code>d</code>.
+   *
+   * @param vector The vector containing the end points
+   * @param d      The number of differences, must follow the last one recorded
+   *
+   * @throws IllegalStateException If the trace becomes too large
+   */
+  void record(Vector vector, int d) {
+    assert d == this.last + 1;
+    int offset = ensureCapacity(d);
+    for (int k = -d; k <= d; k += 2) {
+      this.arena[offset++] = vector.getX(k);
+    }
+    this.last = d;
+  }
+
+  /**
+   * Returns the recorded end point of the furthest reaching D-path in diagonal k.
+   *
+   * @param d The number of differences
+   * @param k The diagonal, between <code>-d</code> and <code>d</code> with the same parity as <code>d</code>
+   *
+   * @return the x coordinate of the end point
+   */
+  int getX(int d, int k) {
+    assert d <= this.last && k >= -d && k <= d && ((d + k) & 1) == 0;
+    return this.arena[(int) offset(d) + ((k + d) >> 1)];
+  }
+
+  /**
+   * @return the last D recorded, -1 if empty.
+   */
+  int last() {
+    return this.last;
+  }
+
+  /**
+   * @return the array in which the values are recorded, which may have been replaced if it grew.
+   */
+  int[] arena() {
+    return this.arena;
+  }
+
+  /**
+   * Clear the trace so that it can be reused.
+   */
+  void clear() {
+    this.last = -1;
+  }
+
+  private int ensureCapacity(int d) {
+    long offset = offset(d);
+    long required = offset + d + 1;
+    if (required > MAX_SIZE)
+      throw new IllegalStateException("Trace is too large for d:" + d);
+    if (required > this.arena.length) {
+      int capacity = (int) Math.min(Math.max(required, this.arena.length * 2L), MAX_SIZE);
+      this.arena = Arrays.copyOf(this.arena, capacity);
+    }
+    return (int) offset;
+  }
+
+  private static long offset(int d) {
+    return (long) d * (d + 1) / 2;
+  }
+
+}
@@ -119,7 +119,27 @@ final class Vector {
     if (max <= 0) {
       max = 1;
     }
-    int[] array = new int[2 * max + 1];
+    return create(m, n, forward, max, new int[2 * max + 1]);
+  }
+
+  /**
+   * Initializes a new instance of this helper class using an array from the specified workspace.
+   *
+   * @param m         The length of the first sequence
+   * @param n         The length of the second sequence
+   * @param forward   true if forward comparison; false otherwise
+   * @param max       Maximum number of end points
+   * @param workspace The workspace to borrow the array from
+   * @param slot      The slot of the array in the workspace
+   */
+  static Vector create(int m, int n, boolean forward, int max, Workspace workspace, int slot) {
+    if (max <= 0) {
+      max = 1;
+    }
+    return create(m, n, forward, max, workspace.ints(slot, 2 * max + 1));
+  }
+
+  private static Vector create(int m, int n, boolean forward, int max, int[] array) {
     Vector vector = new Vector(array, forward, max, 0);
     vector.init(m, n);
     return vector;
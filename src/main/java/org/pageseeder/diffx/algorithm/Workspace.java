@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.xml.CompactSequence;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A workspace from which the algorithms borrow scratch arrays instead of allocating new ones for
+ * each diff.
+ *
+ * <p>Workspaces are thread-confined: they are acquired from a small pool local to the current thread
+ * and must be closed by the same thread once the arrays are no longer used, typically using a
+ * try-with-resources statement. Since an acquired workspace is removed from the pool, a diff nested
+ * within another one on the same thread gets its own workspace.
+ *
+ * <p>Arrays are identified by a slot so that an algorithm can use several arrays at the same time,
+ * the arrays returned may be longer than requested and their content is only valid until the same
+ * slot is requested again or the workspace is closed.
+ *
+ * <p>To avoid holding on to large amounts of memory, arrays longer than {@link #MAX_RETAINED_LENGTH}
+ * are not kept once the workspace is closed: this is meant to reduce the allocation rate of a high
+ * volume of small diffs.
+ *
+ * <p>This class is not synchronized.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class Workspace implements AutoCloseable {
+
+  /**
+   * The number of slots available for each type of array.
+   */
+  public static final int SLOTS = 4;
+
+  /**
+   * The maximum length of the arrays retained by a workspace once it is closed.
+   */
+  public static final int MAX_RETAINED_LENGTH = 1 << 16;
+
+  /**
+   * The maximum number of workspaces kept by each thread.
+   */
+  private static final int MAX_POOLED = 4;
+
+  /**
+   * The workspaces available to the current thread.
+   */
+  private static final ThreadLocal<Deque<Workspace>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+  /**
+   * Whether closed workspaces are returned to the pool.
+   */
+  private static volatile boolean pooling = true;
+
+  private final int[][] ints = new int[SLOTS][];
+
+  private final long[][] longs = new long[SLOTS][];
+
+  private SymbolTable<Object> symbols;
+
+  private boolean inUse;
+
+  private Workspace() {
+  }
+
+  /**
+   * Acquire a workspace for the current thread.
+   *
+   * @return a workspace which is not used by any other diff.
+   */
+  public static @NotNull Workspace acquire() {
+    Workspace workspace = pooling ? POOL.get().poll() : null;
+    if (workspace == null) workspace = new Workspace();
+    workspace.inUse = true;
+    return workspace;
+  }
+
+  /**
+   * Returns an array filled with zeros of at least the specified length.
+   *
+   * @param slot   The slot identifying the array (between 0 and {@link #SLOTS} exclusive)
+   * @param length The minimum length of the array
+   *
+   * @return an array whose first <code>length</code> values are 0.
+   */
+  public int[] ints(int slot, int length) {
+    checkInUse();
+    int[] array = this.ints[slot];
+    if (array == null || array.length < length) {
+      array = new int[length];
+      this.ints[slot] = array;
+    } else {
+      Arrays.fill(array, 0, length, 0);
+    }
+    return array;
+  }
+
+  /**
+   * Returns an array filled with zeros of at least the specified length.
+   *
+   * @param slot   The slot identifying the array (between 0 and {@link #SLOTS} exclusive)
+   * @param length The minimum length of the array
+   *
+   * @return an array whose first <code>length</code> values are 0.
+   */
+  public long[] longs(int slot, int length) {
+    checkInUse();
+    long[] array = this.longs[slot];
+    if (array == null || array.length < length) {
+      array = new long[length];
+      this.longs[slot] = array;
+    } else {
+      Arrays.fill(array, 0, length, 0L);
+    }
+    return array;
+  }
+
+  /**
+   * Keep an array which was obtained from the specified slot and grown by the caller.
+   *
+   * @param slot  The slot the array was obtained from
+   * @param array The array to use for that slot
+   */
+  void keep(int slot, int[] array) {
+    this.ints[slot] = array;
+  }
+
+  /**
+   * Intern the specified lists using the symbol table of this workspace.
+   *
+   * <p>If both lists are {@link CompactSequence}s sharing the same dictionary and the dictionary is
+   * no larger than the lists combined, their ids are mapped to symbols directly without looking up
+   * the tokens. Larger dictionaries go through the symbol table, since mapping the ids would take
+   * memory in the size of the dictionary rather than of the lists.
+   *
+   * @param from The first list of tokens
+   * @param to   The second list of tokens
+   *
+   * @return An array containing the symbols for the first and second lists.
+   * @see SymbolTable#intern(List, List)
+   */
+  @SuppressWarnings("unchecked")
+  <T> int[][] intern(@NotNull List<? extends T> from, @NotNull List<? extends T> to) {
+    checkInUse();
+    int expected = from.size() + to.size();
+    // Compact sequences sharing a dictionary already use the same id for equal tokens
+    if (from instanceof CompactSequence && to instanceof CompactSequence
+        && ((CompactSequence) from).getDictionary() == ((CompactSequence) to).getDictionary()
+        && ((CompactSequence) from).getDictionary().size() <= expected) {
+      return toSymbols((CompactSequence) from, (CompactSequence) to);
+    }
+    // Clearing a table much larger than needed would cost more than allocating a new one
+    if (this.symbols == null || this.symbols.capacity() > 8 * Math.max(expected, 64)) {
+      this.symbols = new SymbolTable<>(expected);
+    }
+    SymbolTable<T> table = (SymbolTable<T>) this.symbols;
+    try {
+      return new int[][]{table.intern(from), table.intern(to)};
+    } finally {
+      // Do not hold on to the tokens
+      table.clear();
+    }
+  }
+
+  /**
+   * Map the ids of the tokens in the dictionary to symbols allocated sequentially from 0.
+   */
+  private static int[][] toSymbols(CompactSequence from, CompactSequence to) {
+    int[] a = from.ids();
+    int[] b = to.ids();
+    // The symbol of each id offset by one, 0 indicates the id has not been seen yet
+    int[] symbols = new int[from.getDictionary().size()];
+    int size = 0;
+    for (int i = 0; i < a.length; i++) {
+      if (symbols[a[i]] == 0) symbols[a[i]] = ++size;
+      a[i] = symbols[a[i]] - 1;
+    }
+    for (int j = 0; j < b.length; j++) {
+      if (symbols[b[j]] == 0) symbols[b[j]] = ++size;
+      b[j] = symbols[b[j]] - 1;
+    }
+    return new int[][]{a, b};
+  }
+
+  /**
+   * Return this workspace to the pool of the current thread.
+   *
+   * <p>The arrays obtained from this workspace must not be used after it is closed.
+   */
+  @Override
+  public void close() {
+    if (!this.inUse) return;
+    this.inUse = false;
+    trim();
+    if (pooling) {
+      Deque<Workspace> pool = POOL.get();
+      if (pool.size() < MAX_POOLED) pool.push(this);
+    }
+  }
+
+  /**
+   * Set whether the workspaces are reused, mostly useful to measure their effect.
+   *
+   * @param enabled <code>true</code> to reuse workspaces (default); <code>false</code> to allocate new ones.
+   */
+  public static void setPooling(boolean enabled) {
+    pooling = enabled;
+    if (!enabled) POOL.remove();
+  }
+
+  /**
+   * Drop the arrays too large to be retained.
+   */
+  private void trim() {
+    for (int slot = 0; slot < SLOTS; slot++) {
+      if (this.ints[slot] != null && this.ints[slot].length > MAX_RETAINED_LENGTH) this.ints[slot] = null;
+      if (this.longs[slot] != null && this.longs[slot].length > MAX_RETAINED_LENGTH) this.longs[slot] = null;
+    }
+    if (this.symbols != null && this.symbols.capacity() > MAX_RETAINED_LENGTH) this.symbols = null;
+  }
+
+  private void checkInUse() {
+    if (!this.inUse) throw new IllegalStateException("Workspace is closed");
+  }
+
+  @Override
+  public String toString() {
+    return "Workspace{inUse=" + this.inUse + '}';
+  }
+}
@@ -40,16 +40,28 @@ final class XMLStackMap {
 
   private Map<Integer, Deque<Operation<StartElementToken>>> stacks = new HashMap<>();
 
+  /**
+   * Stacks from previous differences which can be reused.
+   */
+  private final Deque<Deque<Operation<StartElementToken>>> free = new ArrayDeque<>();
+
   XMLStackMap() {
   }
 
   void nextDiff() {
+    // The stacks for D-2 are no longer needed and are recycled along with their map
+    Map<Integer, Deque<Operation<StartElementToken>>> recycled = this.previous;
+    for (Deque<Operation<StartElementToken>> stack : recycled.values()) {
+      stack.clear();
+      this.free.push(stack);
+    }
+    recycled.clear();
     this.previous = this.stacks;
-    this.stacks = new HashMap<>(this.previous.size() + 1);
+    this.stacks = recycled;
   }
 
   void initK(int k, boolean down) {
-    Deque<Operation<StartElementToken>> stack = new ArrayDeque<>();
+    Deque<Operation<StartElementToken>> stack = this.free.isEmpty() ? new ArrayDeque<>() : this.free.pop();
     Deque<Operation<StartElementToken>> prev = this.previous.get(down ? k + 1 : k - 1);
     if (prev != null) stack.addAll(prev);
     this.stacks.put(k, stack);
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.api;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deadline to bound how long a comparison may run, which can also be used to cancel it.
+ *
+ * <p>The algorithms check the deadline cooperatively in their main loops and throw a
+ * {@link DeadlineExceededException} once it has expired or has been cancelled.
+ *
+ * <p>A deadline can be shared by several threads and cancelled from any thread.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class Deadline {
+
+  /**
+   * A deadline which never expires.
+   */
+  private static final Deadline NONE = new Deadline(false, 0, null);
+
+  /**
+   * Whether this deadline is bound in time.
+   */
+  private final boolean timed;
+
+  /**
+   * When the deadline expires in nanoseconds, relative to <code>System.nanoTime()</code>.
+   */
+  private final long expiry;
+
+  /**
+   * Whether the deadline has been cancelled.
+   */
+  private volatile boolean cancelled = false;
+
+  /**
+   * The deadline this deadline depends on (may be <code>null</code>).
+   */
+  private final Deadline parent;
+
+  private Deadline(boolean timed, long expiry, Deadline parent) {
+    this.timed = timed;
+    this.expiry = expiry;
+    this.parent = parent;
+  }
+
+  /**
+   * @return A deadline which never expires and cannot be cancelled.
+   */
+  public static Deadline none() {
+    return NONE;
+  }
+
+  /**
+   * @return A deadline which only expires when it is cancelled.
+   */
+  public static Deadline cancellable() {
+    return new Deadline(false, 0, null);
+  }
+
+  /**
+   * Create a new deadline which can be cancelled independently of the specified deadline.
+   *
+   * <p>This is useful to cancel one of several comparisons sharing the same deadline.
+   *
+   * @param parent The deadline to respect
+   *
+   * @return A deadline which expires when the specified deadline expires or is cancelled, or when
+   * it is cancelled itself.
+   */
+  public static Deadline cancellable(Deadline parent) {
+    if (parent == NONE) return cancellable();
+    return new Deadline(false, 0, parent);
+  }
+
+  /**
+   * Create a new deadline which expires after the specified duration.
+   *
+   * @param duration The duration
+   * @param unit     The unit of the duration
+   *
+   * @return A deadline which expires after the specified duration or when it is cancelled.
+   */
+  public static Deadline after(long duration, TimeUnit unit) {
+    return new Deadline(true, System.nanoTime() + unit.toNanos(duration), null);
+  }
+
+  /**
+   * Cancel any comparison using this deadline.
+   *
+   * <p>This method has no effect on {@link #none()}.
+   */
+  public void cancel() {
+    if (this != NONE) this.cancelled = true;
+  }
+
+  /**
+   * @return <code>true</code> if this deadline may expire or be cancelled.
+   */
+  public boolean isBounded() {
+    return this != NONE;
+  }
+
+  /**
+   * @return <code>true</code> if the deadline was cancelled or the time is up.
+   */
+  public boolean isExpired() {
+    return this.cancelled || (this.timed && System.nanoTime() - this.expiry >= 0)
+        || (this.parent != null && this.parent.isExpired());
+  }
+
+  /**
+   * Check that the deadline has not expired.
+   *
+   * @throws DeadlineExceededException If the deadline was cancelled or the time is up.
+   */
+  public void check() {
+    if (this.timed || this.cancelled) {
+      if (this.cancelled) throw new DeadlineExceededException("Comparison was cancelled");
+      if (System.nanoTime() - this.expiry >= 0) throw new DeadlineExceededException("Comparison deadline has expired");
+    }
+    if (this.parent != null) this.parent.check();
+  }
+
+  @Override
+  public String toString() {
+    if (this == NONE) return "Deadline{none}";
+    return "Deadline{" +
+        (this.timed ? "remaining=" + TimeUnit.NANOSECONDS.toMillis(this.expiry - System.nanoTime()) + "ms, " : "") +
+        "cancelled=" + this.cancelled +
+        '}';
+  }
+}
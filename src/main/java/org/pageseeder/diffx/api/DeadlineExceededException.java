@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.api;
+
+/**
+ * Exception thrown by the algorithms when the deadline of a comparison has expired or when the
+ * comparison was cancelled.
+ *
+ * <p>The handler may have received some of the results of the comparison already.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ * @see Deadline
+ */
+public final class DeadlineExceededException extends RuntimeException {
+
+  /**
+   * As required for Serializable.
+   */
+  private static final long serialVersionUID = 3820741859836153124L;
+
+  /**
+   * @param message The message explaining why the comparison was interrupted.
+   */
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+
+}
@@ -41,4 +41,24 @@ public interface DiffAlgorithm<T> {
    */
   void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler);
 
+  /**
+   * Performs the comparison within the specified deadline and report changes to the specified handler.
+   *
+   * <p>Algorithms check the deadline regularly while computing the results, but by default it is only
+   * checked before the comparison starts.
+   *
+   * @param from     The original list of tokens to compare (deleted)
+   * @param to       The target list of tokens to compare (inserted)
+   * @param handler  The handler for the results of the comparison
+   * @param deadline The deadline for the comparison
+   *
+   * @throws UncheckedIOException      If an IO error occurred while handler the diff
+   * @throws IllegalStateException     If the algorithm is in a state where it is unable to process the tokens.
+   * @throws DeadlineExceededException If the deadline expired or was cancelled before the comparison completed
+   */
+  default void diff(@NotNull List<? extends T> from, @NotNull List<? extends T> to, @NotNull DiffHandler<T> handler, @NotNull Deadline deadline) {
+    deadline.check();
+    diff(from, to, handler);
+  }
+
 }
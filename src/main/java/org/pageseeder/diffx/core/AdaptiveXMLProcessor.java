@@ -0,0 +1,384 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.HirschbergXMLAlgorithm;
+import org.pageseeder.diffx.algorithm.MatrixXMLAlgorithm;
+import org.pageseeder.diffx.algorithm.MyersGreedyAlgorithm;
+import org.pageseeder.diffx.algorithm.MyersGreedyXMLAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.handler.CoalescingFilter;
+import org.pageseeder.diffx.handler.PostXMLFixer;
+import org.pageseeder.diffx.sequence.TokenListSlicer;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An XML processor which chooses the algorithm to use up front from cheap statistics about the
+ * sequences instead of trying each algorithm in turn like the {@link OptimisticXMLProcessor}.
+ *
+ * <p>The statistics are computed in linear time after removing the common start and end of the
+ * sequences with the {@link TokenListSlicer}:</p>
+ * <ul>
+ *   <li>the number of tokens left to compare in each sequence,</li>
+ *   <li>a lower bound of the number of edits from the difference between the token counts,</li>
+ *   <li>whether any of these edits is an element or attribute,</li>
+ *   <li>the proportion of text tokens.</li>
+ * </ul>
+ *
+ * <p>When only text has changed, the non-XML algorithm is likely to produce a well-formed result, so
+ * the processor uses the same fast path as the optimistic processor. Otherwise, it uses the matrix
+ * when it fits within the threshold, after coalescing the text if that is enough to make it fit, and
+ * the linear space algorithm otherwise.</p>
+ *
+ * <p>Since the statistics are only an estimate, the processor still falls back on the XML algorithms
+ * if the chosen strategy fails. When the fast path fails, it uses the Myers XML algorithm only if the
+ * number of tokens left to compare, which bounds the number of edits, is small enough; otherwise it
+ * uses the matrix or the linear space algorithm. The strategy which produced the result is available
+ * after each diff using {@link #getLastStrategy()}.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class AdaptiveXMLProcessor extends DiffProcessorBase implements XMLDiffProcessor {
+
+  /**
+   * The strategies that this processor can use.
+   */
+  public enum Strategy {
+
+    /**
+     * The sequences are identical and all tokens are reported as matches.
+     */
+    IDENTICAL,
+
+    /**
+     * Non-XML Myers greedy algorithm with the results fixed by the {@link PostXMLFixer}.
+     */
+    FAST,
+
+    /**
+     * Matrix-based XML algorithm.
+     */
+    MATRIX,
+
+    /**
+     * Matrix-based XML algorithm with the text coalesced first.
+     */
+    COALESCED_MATRIX,
+
+    /**
+     * Myers greedy XML algorithm.
+     */
+    MYERS_XML,
+
+    /**
+     * Linear space XML algorithm.
+     */
+    LINEAR
+
+  }
+
+  private int threshold = MatrixXMLAlgorithm.DEFAULT_THRESHOLD;
+
+  private boolean isDownscaleAllowed = true;
+
+  private volatile Strategy lastStrategy;
+
+  private volatile boolean fallback;
+
+  /**
+   * Set the maximum number of token comparisons for the matrix-based algorithm.
+   *
+   * @param threshold Max number of token comparisons allowed
+   */
+  public void setThreshold(int threshold) {
+    this.threshold = threshold;
+  }
+
+  /**
+   * Set whether text can be coalesced before the diff to use the matrix-based algorithm.
+   *
+   * @param allowed <code>true</code> to allow the text to be coalesced (default)
+   */
+  public void setDownscaleAllowed(boolean allowed) {
+    this.isDownscaleAllowed = allowed;
+  }
+
+  /**
+   * @return the strategy which produced the results of the last diff or <code>null</code>.
+   */
+  public Strategy getLastStrategy() {
+    return this.lastStrategy;
+  }
+
+  /**
+   * @return <code>true</code> if the strategy chosen for the last diff failed and another one was used.
+   */
+  public boolean hasFallenBack() {
+    return this.fallback;
+  }
+
+  /**
+   * Compute the statistics of the specified sequences.
+   *
+   * @param from The first sequence
+   * @param to   The second sequence
+   *
+   * @return The statistics used to choose the strategy.
+   */
+  public Profile profile(List<? extends XMLToken> from, List<? extends XMLToken> to) {
+    TokenListSlicer slicer = new TokenListSlicer(from, to);
+    int common = slicer.analyze();
+    int start = slicer.getStartCount();
+    List<? extends XMLToken> a = from.subList(start, from.size() - slicer.getEndCount());
+    List<? extends XMLToken> b = to.subList(start, to.size() - slicer.getEndCount());
+
+    // Count the difference between the number of occurrences of each token
+    Map<XMLToken, int[]> counts = new HashMap<>();
+    int text = 0;
+    for (XMLToken token : a) {
+      counts.computeIfAbsent(token, t -> new int[1])[0]++;
+      if (token instanceof TextToken) text++;
+    }
+    for (XMLToken token : b) {
+      counts.computeIfAbsent(token, t -> new int[1])[0]--;
+      if (token instanceof TextToken) text++;
+    }
+    int edits = 0;
+    boolean structural = false;
+    for (Map.Entry<XMLToken, int[]> entry : counts.entrySet()) {
+      int difference = Math.abs(entry.getValue()[0]);
+      if (difference > 0) {
+        edits += difference;
+        structural = structural || !(entry.getKey() instanceof TextToken);
+      }
+    }
+    return new Profile(from.size(), to.size(), common, a.size(), b.size(), edits, structural, text);
+  }
+
+  /**
+   * Choose the strategy for the specified statistics.
+   *
+   * @param profile The statistics of the sequences to compare
+   *
+   * @return The strategy to use.
+   */
+  public Strategy choose(Profile profile) {
+    if (profile.edits == 0 && profile.length1 == profile.length2 && profile.common == profile.length1) {
+      return Strategy.IDENTICAL;
+    }
+    if (!profile.structural) return Strategy.FAST;
+    if (isWithinThreshold(profile.remaining1, profile.remaining2)) return Strategy.MATRIX;
+    if (this.isDownscaleAllowed && isWithinThreshold(profile.remaining1, profile.remaining2, profile.text)) {
+      return Strategy.COALESCED_MATRIX;
+    }
+    // Since the matrix does not fit, the number of edits may be too large for the greedy algorithm
+    return Strategy.LINEAR;
+  }
+
+  @Override
+  void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    Profile profile = profile(from, to);
+    Strategy chosen = choose(profile);
+    Strategy strategy = chosen;
+    DiffHandler<XMLToken> actual = getFilter(handler);
+    if (strategy == Strategy.FAST) {
+      OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+      if (fastDiff(from, to, buffer, deadline)) {
+        this.lastStrategy = strategy;
+        this.fallback = false;
+        buffer.applyTo(actual);
+        return;
+      }
+      // The text changes crossed element boundaries after all
+      strategy = isWithinEditBound(profile) ? Strategy.MYERS_XML : fallback(from, to);
+    }
+    actual.start();
+    diff(from, to, actual, strategy, deadline);
+    actual.end();
+    this.fallback = this.lastStrategy != chosen;
+  }
+
+  private void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Strategy strategy, Deadline deadline) {
+    switch (strategy) {
+      case IDENTICAL:
+        for (XMLToken token : from) handler.handle(Operator.MATCH, token);
+        break;
+      case MATRIX:
+        newMatrixAlgorithm().diff(from, to, handler, deadline);
+        break;
+      case COALESCED_MATRIX:
+        List<? extends XMLToken> a = CoalescingFilter.coalesce(from);
+        List<? extends XMLToken> b = CoalescingFilter.coalesce(to);
+        if (!newMatrixAlgorithm().isDiffComputable(a, b)) {
+          diff(from, to, handler, Strategy.LINEAR, deadline);
+          return;
+        }
+        newMatrixAlgorithm().diff(a, b, handler, deadline);
+        break;
+      case MYERS_XML:
+        OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+        try {
+          new MyersGreedyXMLAlgorithm().diff(from, to, buffer, deadline);
+        } catch (IllegalStateException ex) {
+          // In some rare cases Myers XML fails
+          diff(from, to, handler, fallback(from, to), deadline);
+          return;
+        }
+        for (Operation<XMLToken> operation : buffer.getOperations()) {
+          handler.handle(operation.operator(), operation.token());
+        }
+        break;
+      default:
+        new HirschbergXMLAlgorithm().diff(from, to, handler, deadline);
+    }
+    this.lastStrategy = strategy;
+  }
+
+  /**
+   * @return the matrix if the sequences fit within the threshold or the linear space algorithm.
+   */
+  private Strategy fallback(List<? extends XMLToken> from, List<? extends XMLToken> to) {
+    return newMatrixAlgorithm().isDiffComputable(from, to) ? Strategy.MATRIX : Strategy.LINEAR;
+  }
+
+  /**
+   * Run fast algorithm and try to fix any XML errors after the diff.
+   */
+  private static boolean fastDiff(List<? extends XMLToken> from, List<? extends XMLToken> to, OperationsBuffer<XMLToken> buffer, Deadline deadline) {
+    PostXMLFixer fixer = new PostXMLFixer(buffer);
+    fixer.start();
+    new MyersGreedyAlgorithm<XMLToken>().diff(from, to, fixer, deadline);
+    fixer.end();
+    return !fixer.hasError();
+  }
+
+  private MatrixXMLAlgorithm newMatrixAlgorithm() {
+    MatrixXMLAlgorithm algorithm = new MatrixXMLAlgorithm();
+    algorithm.setThreshold(this.threshold);
+    return algorithm;
+  }
+
+  private DiffHandler<XMLToken> getFilter(DiffHandler<XMLToken> handler) {
+    return this.coalesce ? new CoalescingFilter(handler) : handler;
+  }
+
+  private boolean isWithinThreshold(int length1, int length2) {
+    return (long) length1 * length2 <= this.threshold;
+  }
+
+  /**
+   * The greedy algorithm needs memory in the square of the number of edits, which is at most the
+   * number of tokens left to compare; the edit estimate is only a lower bound and is 0 when content
+   * is moved.
+   */
+  private boolean isWithinEditBound(Profile profile) {
+    long edits = (long) profile.remaining1 + profile.remaining2;
+    return edits * edits <= this.threshold;
+  }
+
+  /**
+   * Assumes that coalescing the text leaves at most one text token for each other token.
+   */
+  private boolean isWithinThreshold(int length1, int length2, int text) {
+    long other = (long) length1 + length2 - text;
+    return other * other <= this.threshold;
+  }
+
+  @Override
+  public String toString() {
+    return "AdaptiveXMLProcessor{" +
+        "coalesce=" + coalesce +
+        ", threshold=" + threshold +
+        '}';
+  }
+
+  /**
+   * The statistics used to choose the strategy.
+   */
+  public static final class Profile {
+
+    private final int length1;
+    private final int length2;
+    private final int common;
+    private final int remaining1;
+    private final int remaining2;
+    private final int edits;
+    private final boolean structural;
+    private final int text;
+
+    private Profile(int length1, int length2, int common, int remaining1, int remaining2, int edits, boolean structural, int text) {
+      this.length1 = length1;
+      this.length2 = length2;
+      this.common = common;
+      this.remaining1 = remaining1;
+      this.remaining2 = remaining2;
+      this.edits = edits;
+      this.structural = structural;
+      this.text = text;
+    }
+
+    /**
+     * @return The number of common tokens at the start and end of the sequences.
+     */
+    public int getCommonCount() {
+      return this.common;
+    }
+
+    /**
+     * @return The lower bound of the number of tokens to insert or delete.
+     */
+    public int getEditEstimate() {
+      return this.edits;
+    }
+
+    /**
+     * @return <code>true</code> if elements or attributes are inserted or deleted.
+     */
+    public boolean hasStructuralChanges() {
+      return this.structural;
+    }
+
+    /**
+     * @return The proportion of text tokens in the tokens left to compare.
+     */
+    public double getTextRatio() {
+      int total = this.remaining1 + this.remaining2;
+      return total > 0 ? (double) this.text / total : 0;
+    }
+
+    @Override
+    public String toString() {
+      return "Profile{" +
+          "length1=" + length1 +
+          ", length2=" + length2 +
+          ", common=" + common +
+          ", edits=" + edits +
+          ", structural=" + structural +
+          ", textRatio=" + getTextRatio() +
+          '}';
+    }
+  }
+}
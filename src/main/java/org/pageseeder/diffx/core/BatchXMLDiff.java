@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.format.XMLDiffOutput;
+import org.pageseeder.diffx.handler.CoalescingFilter;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+/**
+ * Compares a base sequence against many target sequences, for example every revision of a document
+ * or every translation of it.
+ *
+ * <p>The base-side work is done once when the batch is created:</p>
+ * <ul>
+ *   <li>the base is loaded and tokenized once by the caller,</li>
+ *   <li>its distinct tokens are indexed so that the equal tokens of each target can be replaced by the
+ *   base instance; the algorithms then compare the tokens by identity instead of calling
+ *   <code>equals</code>, and targets share the memory of the base tokens.</li>
+ * </ul>
+ *
+ * <p>Since the tokens of the targets are canonical, a target identical to the base is detected by
+ * comparing its tokens by identity and reported as matches without running the processor.</p>
+ *
+ * <p>Each target is then compared with its own handler and its own processor, in parallel on the
+ * executor, since the processors keep the state of the last comparison.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class BatchXMLDiff {
+
+  /**
+   * The base sequence compared against each target.
+   */
+  private final Sequence base;
+
+  /**
+   * The distinct tokens of the base, this map is read-only once the batch is created.
+   */
+  private final Map<XMLToken, XMLToken> tokens;
+
+  private Supplier<? extends XMLDiffProcessor> processors = OptimisticXMLProcessor::new;
+
+  private ExecutorService executor = ForkJoinPool.commonPool();
+
+  /**
+   * Creates a new batch for the specified base sequence.
+   *
+   * @param base The base sequence to compare against each target (deleted)
+   */
+  public BatchXMLDiff(@NotNull Sequence base) {
+    this.base = base;
+    this.tokens = new HashMap<>(base.size() * 2);
+    for (XMLToken token : base) {
+      this.tokens.putIfAbsent(token, token);
+    }
+  }
+
+  /**
+   * Set the processor used to compare the base with each target, by default {@link OptimisticXMLProcessor}.
+   *
+   * @param processors The supplier of a new processor for each comparison
+   */
+  public void setProcessor(@NotNull Supplier<? extends XMLDiffProcessor> processors) {
+    this.processors = processors;
+  }
+
+  /**
+   * Set the executor used to compare the targets, by default the common fork/join pool.
+   *
+   * @param executor The executor used to compare the targets in parallel
+   */
+  public void setExecutor(@NotNull ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * @return The base sequence.
+   */
+  public Sequence getBase() {
+    return this.base;
+  }
+
+  /**
+   * Compares the base with a single target in the current thread.
+   *
+   * @param target  The target sequence (inserted)
+   * @param handler The handler for the results of the comparison
+   */
+  public void diff(@NotNull Sequence target, @NotNull DiffHandler<XMLToken> handler) {
+    diff(target, handler, Deadline.none());
+  }
+
+  /**
+   * Compares the base with a single target in the current thread within the specified deadline.
+   *
+   * @param target   The target sequence (inserted)
+   * @param handler  The handler for the results of the comparison
+   * @param deadline The deadline for the comparison
+   *
+   * @see DiffProcessorBase#diff(List, List, DiffHandler, Deadline)
+   */
+  public void diff(@NotNull Sequence target, @NotNull DiffHandler<XMLToken> handler, @NotNull Deadline deadline) {
+    // Supply the namespaces to the output
+    if (handler instanceof XMLDiffOutput) {
+      NamespaceSet namespaces = NamespaceSet.merge(this.base.getNamespaces(), target.getNamespaces());
+      ((XMLDiffOutput) handler).setNamespaces(namespaces);
+    }
+    List<XMLToken> to = canonicalize(target);
+    XMLDiffProcessor processor = this.processors.get();
+    if (to.size() == this.base.size() && isIdentical(to)) {
+      DiffHandler<XMLToken> actual = processor.isCoalescing() ? new CoalescingFilter(handler) : handler;
+      actual.start();
+      for (XMLToken token : this.base) actual.handle(Operator.MATCH, token);
+      actual.end();
+    } else {
+      processor.diff(this.base.tokens(), to, handler, deadline);
+    }
+  }
+
+  /**
+   * Compares the base with each target in parallel and waits for all comparisons to complete.
+   *
+   * @param targets  The target sequences (inserted)
+   * @param handlers Supplies the handler for the target at the specified index
+   *
+   * @throws DiffException If any of the comparisons failed, other comparisons are allowed to complete.
+   */
+  public void diff(@NotNull List<Sequence> targets, @NotNull IntFunction<DiffHandler<XMLToken>> handlers)
+      throws DiffException {
+    diff(targets, handlers, Deadline.none());
+  }
+
+  /**
+   * Compares the base with each target in parallel within the specified deadline and waits for all
+   * comparisons to complete.
+   *
+   * <p>The deadline is shared by all comparisons; when it expires, the comparisons which are still
+   * running fall back on a coarse result.</p>
+   *
+   * @param targets  The target sequences (inserted)
+   * @param handlers Supplies the handler for the target at the specified index
+   * @param deadline The deadline for all the comparisons
+   *
+   * @throws DiffException If any of the comparisons failed, other comparisons are allowed to complete.
+   */
+  public void diff(@NotNull List<Sequence> targets, @NotNull IntFunction<DiffHandler<XMLToken>> handlers, @NotNull Deadline deadline)
+      throws DiffException {
+    List<Future<?>> futures = new ArrayList<>(targets.size());
+    for (int i = 0; i < targets.size(); i++) {
+      Sequence target = targets.get(i);
+      DiffHandler<XMLToken> handler = handlers.apply(i);
+      futures.add(this.executor.submit(() -> diff(target, handler, deadline)));
+    }
+    DiffException exception = null;
+    for (int i = 0; i < futures.size(); i++) {
+      try {
+        futures.get(i).get();
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (exception == null) {
+          exception = new DiffException("Unable to compare target " + i, cause instanceof Exception ? (Exception) cause : ex);
+        }
+      } catch (InterruptedException ex) {
+        for (Future<?> future : futures) future.cancel(true);
+        Thread.currentThread().interrupt();
+        throw new DiffException("Interrupted while comparing targets", ex);
+      }
+    }
+    if (exception != null) throw exception;
+  }
+
+  /**
+   * Replace the tokens of the target equal to a token of the base by the base instance.
+   */
+  private List<XMLToken> canonicalize(Sequence target) {
+    List<XMLToken> canonical = new ArrayList<>(target.size());
+    for (XMLToken token : target) {
+      canonical.add(this.tokens.getOrDefault(token, token));
+    }
+    return Collections.unmodifiableList(canonical);
+  }
+
+  /**
+   * Since tokens are canonical, equal tokens are the same instance.
+   */
+  private boolean isIdentical(List<XMLToken> target) {
+    for (int i = 0; i < target.size(); i++) {
+      if (target.get(i) != this.base.getToken(i)) return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return "BatchXMLDiff{" +
+        "base=" + base.size() +
+        ", processor=" + processors +
+        '}';
+  }
+}
@@ -16,6 +16,7 @@
 package org.pageseeder.diffx.core;
 
 import org.pageseeder.diffx.algorithm.MatrixXMLAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.handler.CoalescingFilter;
 import org.pageseeder.diffx.token.XMLToken;
@@ -53,12 +54,12 @@ public class DefaultXMLProcessor extends DiffProcessorBase implements DiffProces
   }
 
   @Override
-  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+  void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
     MatrixXMLAlgorithm algorithm = new MatrixXMLAlgorithm();
     algorithm.setThreshold(this.threshold);
     DiffHandler<XMLToken> actual = getFilter(handler);
     handler.start();
-    algorithm.diff(from, to, actual);
+    algorithm.diff(from, to, actual, deadline);
     handler.end();
   }
 
@@ -16,17 +16,31 @@
 package org.pageseeder.diffx.core;
 
 import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
 import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
 import org.pageseeder.diffx.config.DiffConfig;
 import org.pageseeder.diffx.format.XMLDiffOutput;
+import org.pageseeder.diffx.handler.CoalescingFilter;
+import org.pageseeder.diffx.sequence.TokenListSlicer;
 import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.XMLTokenType;
 import org.pageseeder.diffx.xml.NamespaceSet;
 import org.pageseeder.diffx.xml.Sequence;
 
+import java.util.List;
+
 abstract class DiffProcessorBase implements XMLDiffProcessor {
 
   protected boolean coalesce = false;
 
+  /**
+   * Whether the deadline expired during the last diff.
+   */
+  private boolean truncated = false;
+
   @Override
   public void setCoalesce(boolean coalesce) {
     this.coalesce = coalesce;
@@ -37,6 +51,11 @@ abstract class DiffProcessorBase implements XMLDiffProcessor {
     return this.coalesce;
   }
 
+  @Override
+  public boolean isTruncated() {
+    return this.truncated;
+  }
+
   @Override
   public void diff(Sequence from, Sequence to, DiffConfig config, DiffHandler<XMLToken> handler)
       throws DiffException {
@@ -50,4 +69,75 @@ abstract class DiffProcessorBase implements XMLDiffProcessor {
     this.diff(from.tokens(), to.tokens(), handler);
   }
 
+  @Override
+  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+    this.truncated = false;
+    process(from, to, handler, Deadline.none());
+  }
+
+  /**
+   * Performs the comparison within the specified deadline.
+   *
+   * <p>When the deadline expires, the results computed so far are discarded and the tokens between
+   * the common start and end of the sequences are reported as deleted and inserted in full.
+   */
+  @Override
+  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    this.truncated = false;
+    if (!deadline.isBounded()) {
+      process(from, to, handler, deadline);
+      return;
+    }
+    // Results are buffered so that they can be discarded if the deadline expires
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    try {
+      process(from, to, buffer, deadline);
+    } catch (DeadlineExceededException ex) {
+      this.truncated = true;
+      coarseDiff(from, to, handler);
+      return;
+    }
+    buffer.applyTo(handler);
+  }
+
+  /**
+   * Performs the comparison checking the deadline.
+   *
+   * @throws DeadlineExceededException If the deadline expired before the comparison completed
+   */
+  abstract void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline);
+
+  /**
+   * Report the common start and end of the sequences as matches and everything in between as replaced.
+   *
+   * <p>The sequences are sliced at depth 1, so the tokens in between may start with the attributes
+   * of the root element: they are reported before any other token so that the result is well-formed.
+   */
+  private void coarseDiff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+    TokenListSlicer slicer = new TokenListSlicer(from, to);
+    slicer.analyze();
+    DiffHandler<XMLToken> actual = this.coalesce ? new CoalescingFilter(handler) : handler;
+    actual.start();
+    slicer.handleStart(actual);
+    List<? extends XMLToken> a = slicer.getSubSequence1();
+    List<? extends XMLToken> b = slicer.getSubSequence2();
+    int i = countAttributes(a);
+    int j = countAttributes(b);
+    for (XMLToken token : a.subList(0, i)) actual.handle(Operator.DEL, token);
+    for (XMLToken token : b.subList(0, j)) actual.handle(Operator.INS, token);
+    for (XMLToken token : a.subList(i, a.size())) actual.handle(Operator.DEL, token);
+    for (XMLToken token : b.subList(j, b.size())) actual.handle(Operator.INS, token);
+    slicer.handleEnd(actual);
+    actual.end();
+  }
+
+  /**
+   * @return the number of attributes at the start of the specified tokens.
+   */
+  private static int countAttributes(List<? extends XMLToken> tokens) {
+    int count = 0;
+    while (count < tokens.size() && tokens.get(count).getType() == XMLTokenType.ATTRIBUTE) count++;
+    return count;
+  }
+
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.MyersGreedyAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.handler.CoalescingFilter;
+import org.pageseeder.diffx.token.AttributeToken;
+import org.pageseeder.diffx.token.ElementToken;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.SequenceFolding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A processor which compares the XML as a tree, matching identical subtrees first.
+ *
+ * <p>The elements are folded into {@link org.pageseeder.diffx.token.impl.XMLElement} tokens so that
+ * each level of the document is a short sequence of elements and text tokens, where identical subtrees
+ * are equal tokens which are compared using their precomputed hash code.
+ *
+ * <p>Each level is compared with a non-XML algorithm, since folded elements are always well-formed.
+ * Between matching tokens, deleted and inserted elements with the same name are paired and unfolded
+ * one level to compare their attributes and children recursively, the other tokens are reported as
+ * deleted or inserted in full.
+ *
+ * <p>The cost is proportional to the size of the elements which have changed rather than the size of
+ * the document, but the result is not always the shortest edit script since elements can only match
+ * elements at the same level.
+ *
+ * <p>The sequences must be well-formed: any element which is not closed is ignored.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class HierarchicalXMLProcessor extends DiffProcessorBase implements XMLDiffProcessor {
+
+  private DiffAlgorithm<XMLToken> algorithm = new MyersGreedyAlgorithm<>();
+
+  /**
+   * Set the algorithm used to compare each level, by default {@link MyersGreedyAlgorithm}.
+   *
+   * @param algorithm The algorithm used to compare the tokens at each level
+   */
+  public void setAlgorithm(DiffAlgorithm<XMLToken> algorithm) {
+    this.algorithm = algorithm;
+  }
+
+  @Override
+  void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    SequenceFolding folding = SequenceFolding.forAllElements();
+    DiffHandler<XMLToken> actual = getFilter(handler);
+    actual.start();
+    diffLevel(folding.fold(from), folding.fold(to), actual, deadline);
+    actual.end();
+  }
+
+  private DiffHandler<XMLToken> getFilter(DiffHandler<XMLToken> handler) {
+    return this.coalesce ? new CoalescingFilter(handler) : handler;
+  }
+
+  /**
+   * Compare the folded tokens at the same level, reporting the matches and processing the changes
+   * between them.
+   */
+  private void diffLevel(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    this.algorithm.diff(from, to, buffer, deadline);
+    List<XMLToken> deleted = new ArrayList<>();
+    List<XMLToken> inserted = new ArrayList<>();
+    for (Operation<XMLToken> operation : buffer.getOperations()) {
+      if (operation.operator() == Operator.MATCH) {
+        diffChanges(deleted, inserted, handler, deadline);
+        deleted.clear();
+        inserted.clear();
+        report(Operator.MATCH, operation.token(), handler);
+      } else if (operation.operator() == Operator.DEL) {
+        deleted.add(operation.token());
+      } else {
+        inserted.add(operation.token());
+      }
+    }
+    diffChanges(deleted, inserted, handler, deadline);
+  }
+
+  /**
+   * Pair deleted and inserted elements with the same name to compare them recursively.
+   */
+  private void diffChanges(List<XMLToken> deleted, List<XMLToken> inserted, DiffHandler<XMLToken> handler, Deadline deadline) {
+    if (deleted.isEmpty() || inserted.isEmpty()) {
+      for (XMLToken token : deleted) report(Operator.DEL, token, handler);
+      for (XMLToken token : inserted) report(Operator.INS, token, handler);
+      return;
+    }
+
+    // Elements are compared using their start token only
+    OperationsBuffer<XMLToken> pairs = new OperationsBuffer<>();
+    this.algorithm.diff(toKeys(deleted), toKeys(inserted), pairs, deadline);
+    int i = 0;
+    int j = 0;
+    for (Operation<XMLToken> operation : pairs.getOperations()) {
+      if (operation.operator() == Operator.MATCH) {
+        XMLToken a = deleted.get(i++);
+        XMLToken b = inserted.get(j++);
+        if (a instanceof ElementToken && b instanceof ElementToken && !a.equals(b)) {
+          diffElement((ElementToken) a, (ElementToken) b, handler, deadline);
+        } else {
+          report(Operator.MATCH, a, handler);
+        }
+      } else if (operation.operator() == Operator.DEL) {
+        report(Operator.DEL, deleted.get(i++), handler);
+      } else {
+        report(Operator.INS, inserted.get(j++), handler);
+      }
+    }
+  }
+
+  /**
+   * Unfold two elements with the same name by one level and compare their attributes and children.
+   */
+  private void diffElement(ElementToken from, ElementToken to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    List<XMLToken> a = from.getEvents();
+    List<XMLToken> b = to.getEvents();
+    int contentA = endOfAttributes(a);
+    int contentB = endOfAttributes(b);
+    handler.handle(Operator.MATCH, a.get(0));
+    // Attributes are reported before the content of the element
+    this.algorithm.diff(a.subList(1, contentA), b.subList(1, contentB), handler, deadline);
+    diffLevel(a.subList(contentA, a.size() - 1), b.subList(contentB, b.size() - 1), handler, deadline);
+    handler.handle(Operator.MATCH, a.get(a.size() - 1));
+  }
+
+  /**
+   * @return the index of the first token after the start element and attributes.
+   */
+  private static int endOfAttributes(List<XMLToken> events) {
+    int index = 1;
+    while (index < events.size() - 1 && events.get(index) instanceof AttributeToken) index++;
+    return index;
+  }
+
+  private static List<XMLToken> toKeys(List<XMLToken> tokens) {
+    List<XMLToken> keys = new ArrayList<>(tokens.size());
+    for (XMLToken token : tokens) {
+      keys.add(token instanceof ElementToken ? ((ElementToken) token).getEvents().get(0) : token);
+    }
+    return keys;
+  }
+
+  /**
+   * Report the operation for the token, unfolding elements completely.
+   */
+  private static void report(Operator operator, XMLToken token, DiffHandler<XMLToken> handler) {
+    if (token instanceof ElementToken) {
+      for (XMLToken event : ((ElementToken) token).getEvents()) report(operator, event, handler);
+    } else {
+      handler.handle(operator, token);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "HierarchicalXMLProcessor{" +
+        "coalesce=" + coalesce +
+        ", algorithm=" + algorithm +
+        '}';
+  }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.token.AttributeToken;
+import org.pageseeder.diffx.token.EndElementToken;
+import org.pageseeder.diffx.token.StartElementToken;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the differences between two sequences up to date as they are edited.
+ *
+ * <p>The sequences are compared in full once, then each edit replacing a range of tokens in either
+ * sequence only compares the tokens in a window around the edit and splices the results into the
+ * operations computed previously.</p>
+ *
+ * <p>The window is extended on both sides until it is bounded by matching tokens, includes the number
+ * of matching tokens specified as context, and its tokens are balanced elements in both sequences. The
+ * results of the window can then be combined with the operations around it and remain well-formed.</p>
+ *
+ * <p>Since changes are only compared within the window, the results may differ slightly from comparing
+ * the sequences again in full; the context can be increased to reduce the difference.</p>
+ *
+ * <p>The processor must report each token once, which is why it cannot coalesce text.</p>
+ *
+ * <p>This class is not synchronized.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class IncrementalXMLDiff {
+
+  /**
+   * The default number of matching tokens to include on each side of an edit.
+   */
+  public static final int DEFAULT_CONTEXT = 8;
+
+  private final XMLDiffProcessor processor;
+
+  private final List<XMLToken> from;
+
+  private final List<XMLToken> to;
+
+  private final List<Operation<XMLToken>> operations;
+
+  private int context = DEFAULT_CONTEXT;
+
+  /**
+   * Compares the specified sequences with the {@link OptimisticXMLProcessor}.
+   *
+   * @param from The first sequence (deleted)
+   * @param to   The second sequence (inserted)
+   */
+  public IncrementalXMLDiff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to) {
+    this(from, to, new OptimisticXMLProcessor());
+  }
+
+  /**
+   * Compares the specified sequences with the specified processor.
+   *
+   * @param from      The first sequence (deleted)
+   * @param to        The second sequence (inserted)
+   * @param processor The processor used for the full comparison and for each edit
+   *
+   * @throws IllegalArgumentException If the processor coalesces text.
+   */
+  public IncrementalXMLDiff(@NotNull List<? extends XMLToken> from, @NotNull List<? extends XMLToken> to, @NotNull XMLDiffProcessor processor) {
+    if (processor.isCoalescing())
+      throw new IllegalArgumentException("The processor must not coalesce text");
+    this.processor = processor;
+    this.from = new ArrayList<>(from);
+    this.to = new ArrayList<>(to);
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    processor.diff(this.from, this.to, buffer);
+    this.operations = new ArrayList<>(buffer.getOperations());
+  }
+
+  /**
+   * Set the minimum number of matching tokens to include on each side of an edit.
+   *
+   * @param context The number of matching tokens to compare again around each edit.
+   */
+  public void setContext(int context) {
+    this.context = context;
+  }
+
+  /**
+   * @return The current first sequence.
+   */
+  public List<XMLToken> getFrom() {
+    return Collections.unmodifiableList(this.from);
+  }
+
+  /**
+   * @return The current second sequence.
+   */
+  public List<XMLToken> getTo() {
+    return Collections.unmodifiableList(this.to);
+  }
+
+  /**
+   * @return The operations between the current sequences.
+   */
+  public List<Operation<XMLToken>> getOperations() {
+    return Collections.unmodifiableList(this.operations);
+  }
+
+  /**
+   * Report the operations between the current sequences to the specified handler.
+   *
+   * <p>This method invokes both the start and end methods on the handler.</p>
+   *
+   * @param handler receives start, handler and end events.
+   */
+  public void applyTo(@NotNull DiffHandler<XMLToken> handler) {
+    handler.start();
+    for (Operation<XMLToken> operation : this.operations) {
+      handler.handle(operation.operator(), operation.token());
+    }
+    handler.end();
+  }
+
+  /**
+   * Replace a range of tokens in the first sequence and update the differences.
+   *
+   * @param start       The index of the first token to replace
+   * @param end         The index after the last token to replace
+   * @param replacement The tokens to insert instead
+   *
+   * @return The number of operations which were computed again.
+   *
+   * @throws IndexOutOfBoundsException If the range is not within the sequence
+   */
+  public int editFrom(int start, int end, @NotNull List<? extends XMLToken> replacement) {
+    return edit(true, start, end, replacement);
+  }
+
+  /**
+   * Replace a range of tokens in the second sequence and update the differences.
+   *
+   * @param start       The index of the first token to replace
+   * @param end         The index after the last token to replace
+   * @param replacement The tokens to insert instead
+   *
+   * @return The number of operations which were computed again.
+   *
+   * @throws IndexOutOfBoundsException If the range is not within the sequence
+   */
+  public int editTo(int start, int end, @NotNull List<? extends XMLToken> replacement) {
+    return edit(false, start, end, replacement);
+  }
+
+  private int edit(boolean first, int start, int end, List<? extends XMLToken> replacement) {
+    List<XMLToken> edited = first ? this.from : this.to;
+    if (start < 0 || end > edited.size() || start > end)
+      throw new IndexOutOfBoundsException("Invalid range [" + start + "," + end + ") for size " + edited.size());
+    Operator kept = first ? Operator.DEL : Operator.INS;
+
+    // Find the operations affected by the edit
+    int lo = this.operations.size();
+    int hi = -1;
+    int position = 0;
+    for (int k = 0; k < this.operations.size() && position <= end; k++) {
+      Operator operator = this.operations.get(k).operator();
+      if (operator != Operator.MATCH && operator != kept) continue;
+      if (position == start) lo = k;
+      if (position == end - 1) hi = k + 1;
+      position++;
+    }
+    if (hi < lo) hi = lo;
+
+    // Extend the window until it is balanced and bounded by matching tokens
+    Operator other = first ? Operator.INS : Operator.DEL;
+    int margin = this.context;
+    List<XMLToken> a;
+    List<XMLToken> b;
+    while (true) {
+      lo = extendBackward(lo, margin);
+      hi = extendForward(hi, margin);
+      int offset = countBefore(lo, kept);
+      a = tokens(lo, hi, kept);
+      b = tokens(lo, hi, other);
+      a.subList(start - offset, end - offset).clear();
+      a.addAll(start - offset, replacement);
+      int[] depthA = depths(a);
+      int[] depthB = depths(b);
+      boolean balanced = depthA[0] == 0 && depthA[1] == 0 && depthB[0] == 0 && depthB[1] == 0;
+      if (balanced && isBoundary(lo) && isBoundary(hi)) break;
+      // The edit leaves the sequence ill-formed, compare everything
+      if (lo == 0 && hi == this.operations.size()) break;
+      lo = openBackward(lo, -depthA[0], -depthB[0], kept, other);
+      hi = closeForward(hi, depthA[1] - depthA[0], depthB[1] - depthB[0], kept, other);
+      margin = 0;
+    }
+
+    // Compare the window and splice the results
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    if (first) this.processor.diff(a, b, buffer);
+    else this.processor.diff(b, a, buffer);
+    edited.subList(start, end).clear();
+    edited.addAll(start, replacement);
+    this.operations.subList(lo, hi).clear();
+    this.operations.addAll(lo, buffer.getOperations());
+    return buffer.getOperations().size();
+  }
+
+  /**
+   * @return the index of the first operation in the window, preceded by a matching token.
+   */
+  private int extendBackward(int lo, int margin) {
+    int matches = 0;
+    while (lo > 0 && (matches < margin || this.operations.get(lo - 1).operator() != Operator.MATCH)) {
+      if (this.operations.get(--lo).operator() == Operator.MATCH) matches++;
+    }
+    return lo;
+  }
+
+  /**
+   * @return the index after the last operation in the window, followed by a matching token.
+   */
+  private int extendForward(int hi, int margin) {
+    int matches = 0;
+    while (hi < this.operations.size() && (matches < margin || this.operations.get(hi).operator() != Operator.MATCH)) {
+      if (this.operations.get(hi++).operator() == Operator.MATCH) matches++;
+    }
+    return hi;
+  }
+
+  /**
+   * @return the number of tokens of the sequence before the specified operation.
+   */
+  private int countBefore(int index, Operator kept) {
+    int count = 0;
+    for (int k = 0; k < index; k++) {
+      Operator operator = this.operations.get(k).operator();
+      if (operator == Operator.MATCH || operator == kept) count++;
+    }
+    return count;
+  }
+
+  /**
+   * Extend the window backward until it includes the start elements which are not opened in the window.
+   *
+   * @return the index of the first operation in the window.
+   */
+  private int openBackward(int lo, int needA, int needB, Operator a, Operator b) {
+    while (lo > 0 && (needA > 0 || needB > 0 || !isBoundary(lo))) {
+      Operation<XMLToken> operation = this.operations.get(--lo);
+      int delta = delta(operation.token());
+      if (operation.operator() != b) needA -= delta;
+      if (operation.operator() != a) needB -= delta;
+    }
+    return lo;
+  }
+
+  /**
+   * Extend the window forward until it includes the end elements which are not closed in the window.
+   *
+   * @return the index after the last operation in the window.
+   */
+  private int closeForward(int hi, int openA, int openB, Operator a, Operator b) {
+    while (hi < this.operations.size() && (openA > 0 || openB > 0 || !isBoundary(hi))) {
+      Operation<XMLToken> operation = this.operations.get(hi++);
+      int delta = delta(operation.token());
+      if (operation.operator() != b) openA += delta;
+      if (operation.operator() != a) openB += delta;
+    }
+    return hi;
+  }
+
+  /**
+   * @return the tokens of the sequence within the operations in the specified range.
+   */
+  private List<XMLToken> tokens(int lo, int hi, Operator kept) {
+    List<XMLToken> tokens = new ArrayList<>(hi - lo);
+    for (Operation<XMLToken> operation : this.operations.subList(lo, hi)) {
+      if (operation.operator() == Operator.MATCH || operation.operator() == kept) tokens.add(operation.token());
+    }
+    return tokens;
+  }
+
+  /**
+   * Attributes must remain after their element, so the window cannot start or end before an attribute.
+   */
+  private boolean isBoundary(int index) {
+    return index >= this.operations.size() || !(this.operations.get(index).token() instanceof AttributeToken);
+  }
+
+  /**
+   * @return the minimum depth of elements reached in the tokens and the depth at the end.
+   */
+  private static int[] depths(List<XMLToken> tokens) {
+    int depth = 0;
+    int min = 0;
+    for (XMLToken token : tokens) {
+      depth += delta(token);
+      if (depth < min) min = depth;
+    }
+    return new int[]{min, depth};
+  }
+
+  private static int delta(XMLToken token) {
+    return token instanceof StartElementToken ? 1 : token instanceof EndElementToken ? -1 : 0;
+  }
+
+  @Override
+  public String toString() {
+    return "IncrementalXMLDiff{" +
+        "processor=" + processor +
+        ", context=" + context +
+        '}';
+  }
+}
@@ -16,17 +16,26 @@
 package org.pageseeder.diffx.core;
 
 import org.pageseeder.diffx.action.OperationsBuffer;
-import org.pageseeder.diffx.algorithm.DataLengthException;
+import org.pageseeder.diffx.algorithm.HirschbergXMLAlgorithm;
+import org.pageseeder.diffx.algorithm.HistogramAlgorithm;
 import org.pageseeder.diffx.algorithm.MatrixXMLAlgorithm;
 import org.pageseeder.diffx.algorithm.MyersGreedyAlgorithm;
 import org.pageseeder.diffx.algorithm.MyersGreedyXMLAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.handler.CoalescingFilter;
 import org.pageseeder.diffx.handler.PostXMLFixer;
 import org.pageseeder.diffx.token.XMLToken;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * The optimistic XML processor attempts to process XML using a non-XML algorithm and fall back on to
@@ -37,6 +46,12 @@ import java.util.List;
  * using the {@link PostXMLFixer}. Since generic LCS solution are more efficient than their XML
  * counterpart, we get the solution more efficiently.</p>
  *
+ * <p>If the sequences are too large for the matrix-based algorithm, even after coalescing the text,
+ * it falls back on the linear space {@link HirschbergXMLAlgorithm} instead of failing.</p>
+ *
+ * <p>When an executor is specified, the fast algorithm and the fallbacks are run speculatively at the
+ * same time, the first well-formed result is kept and the other algorithms are cancelled.</p>
+ *
  * @author Christophe Lauret
  * @version 0.9.0
  */
@@ -48,6 +63,12 @@ public final class OptimisticXMLProcessor extends DiffProcessorBase implements X
 
   private boolean isDownscaleAllowed = true;
 
+  private DiffAlgorithm<XMLToken> fastAlgorithm = new MyersGreedyAlgorithm<>();
+
+  private ExecutorService executor;
+
+  private volatile boolean fallback;
+
   public void setDownscaleAllowed(boolean allowed) {
     this.isDownscaleAllowed = allowed;
   }
@@ -58,28 +79,118 @@ public final class OptimisticXMLProcessor extends DiffProcessorBase implements X
 
   /**
    * Set the maximum amount of comparison in case the fast algorithm fails.
+   *
+   * <p>Above this threshold, the processor uses a linear space algorithm which is slower.
    */
   public void setFallbackThreshold(int fallbackThreshold) {
     this.fallbackThreshold = fallbackThreshold;
   }
 
+  /**
+   * Set the non-XML algorithm to try first, by default {@link MyersGreedyAlgorithm}.
+   *
+   * <p>The {@link HistogramAlgorithm} may be more efficient on documents with many unique tokens
+   * and large reorderings.
+   *
+   * @param algorithm The algorithm used for the first attempt
+   */
+  public void setFastAlgorithm(DiffAlgorithm<XMLToken> algorithm) {
+    this.fastAlgorithm = algorithm;
+  }
+
+  /**
+   * Set the executor to run the fast algorithm and the fallbacks speculatively in parallel.
+   *
+   * <p>The first result is not always the same as the one produced sequentially, since the fallbacks
+   * may finish first when the fast algorithm is slow.
+   *
+   * @param executor The executor to use or <code>null</code> to run the algorithms one after the other.
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /**
+   * @return <code>true</code> if the fast algorithm failed during the last diff and a fallback was used.
+   */
+  public boolean hasFallenBack() {
+    return this.fallback;
+  }
+
   @Override
-  public void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+  void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    if (this.executor != null) {
+      speculativeDiff(from, to, handler, deadline);
+      return;
+    }
     // Try with fast diff
     OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
-    boolean successful = fastDiff(from, to, buffer);
+    boolean successful = fastDiff(from, to, buffer, deadline);
+    this.fallback = !successful;
     if (successful) {
       buffer.applyTo(getFilter(handler));
     } else {
       // Fallback on default diff
       if (DEBUG) System.err.println("Fast diff failed! Falling back on default diff");
       try {
-        fallbackDiffMyers(from, to, getFilter(handler));
+        fallbackDiffMyers(from, to, handler, deadline);
       } catch (IllegalStateException ex) {
         // In some rare cases Myers XML fails, we fall back on the matrix
-        fallbackDiffMatrix(from, to, getFilter(handler), false);
+        fallbackDiffMatrix(from, to, handler, false, deadline);
+      }
+    }
+  }
+
+  /**
+   * Run the fast algorithm and the fallbacks in parallel and keep the first well-formed result.
+   *
+   * <p>Each algorithm has its own deadline respecting the specified deadline, so that the other
+   * algorithms can be cancelled as soon as a result is accepted.
+   */
+  private void speculativeDiff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    CompletionService<OperationsBuffer<XMLToken>> service = new ExecutorCompletionService<>(this.executor);
+    List<Deadline> deadlines = new ArrayList<>(3);
+    for (int i = 0; i < 3; i++) deadlines.add(Deadline.cancellable(deadline));
+    List<Future<OperationsBuffer<XMLToken>>> futures = new ArrayList<>(3);
+    futures.add(service.submit(() -> {
+      OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+      return fastDiff(from, to, buffer, deadlines.get(0)) ? buffer : null;
+    }));
+    // The fallbacks apply the filter to the buffer
+    futures.add(service.submit(() -> {
+      OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+      fallbackDiffMyers(from, to, buffer, deadlines.get(1));
+      return buffer;
+    }));
+    futures.add(service.submit(() -> {
+      OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+      fallbackDiffMatrix(from, to, buffer, false, deadlines.get(2));
+      return buffer;
+    }));
+    OperationsBuffer<XMLToken> result = null;
+    DeadlineExceededException expired = null;
+    try {
+      for (int i = 0; i < futures.size() && result == null; i++) {
+        try {
+          Future<OperationsBuffer<XMLToken>> future = service.take();
+          result = future.get();
+          this.fallback = future != futures.get(0);
+        } catch (ExecutionException ex) {
+          // In some rare cases Myers XML fails, wait for the next one
+          if (DEBUG) System.err.println("Speculative diff failed: " + ex.getCause());
+          if (ex.getCause() instanceof DeadlineExceededException) expired = (DeadlineExceededException) ex.getCause();
+        }
       }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for the diff", ex);
+    } finally {
+      for (Deadline candidate : deadlines) candidate.cancel();
+      for (Future<?> future : futures) future.cancel(true);
     }
+    if (result == null && expired != null) throw expired;
+    if (result == null) throw new IllegalStateException("Unable to compute the diff");
+    result.applyTo(this.fallback ? handler : getFilter(handler));
   }
 
   private DiffHandler<XMLToken> getFilter(DiffHandler<XMLToken> handler) {
@@ -89,11 +200,10 @@ public final class OptimisticXMLProcessor extends DiffProcessorBase implements X
   /**
    * Run fast algorithm and try to fix any XML errors after the diff.
    */
-  private boolean fastDiff(List<? extends XMLToken> from, List<? extends XMLToken> to, OperationsBuffer<XMLToken> buffer) {
-    DiffAlgorithm<XMLToken> algorithm = new MyersGreedyAlgorithm<>();
+  private boolean fastDiff(List<? extends XMLToken> from, List<? extends XMLToken> to, OperationsBuffer<XMLToken> buffer, Deadline deadline) {
     PostXMLFixer fixer = new PostXMLFixer(buffer);
     fixer.start();
-    algorithm.diff(from, to, fixer);
+    this.fastAlgorithm.diff(from, to, fixer, deadline);
     fixer.end();
     return !fixer.hasError();
   }
@@ -101,31 +211,44 @@ public final class OptimisticXMLProcessor extends DiffProcessorBase implements X
   /**
    * Fall back on slower matrix-based algorithm.
    */
-  private void fallbackDiffMatrix(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, boolean coalesced) {
+  private void fallbackDiffMatrix(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, boolean coalesced, Deadline deadline) {
     MatrixXMLAlgorithm algorithm = new MatrixXMLAlgorithm();
+    algorithm.setThreshold(this.fallbackThreshold);
     DiffHandler<XMLToken> actual = getFilter(handler);
     if (algorithm.isDiffComputable(from, to)) {
       actual.start();
-      algorithm.diff(from, to, actual);
+      algorithm.diff(from, to, actual, deadline);
       actual.end();
     } else if (!coalesced && this.isDownscaleAllowed) {
       if (DEBUG) System.err.println("Coalescing content to");
       List<? extends XMLToken> a = CoalescingFilter.coalesce(from);
       List<? extends XMLToken> b = CoalescingFilter.coalesce(to);
-      fallbackDiffMatrix(a, b, handler, true);
+      fallbackDiffMatrix(a, b, handler, true, deadline);
     } else {
-      throw new DataLengthException(from.size() * to.size(), this.fallbackThreshold);
+      fallbackDiffLinear(from, to, handler, deadline);
     }
   }
 
+  /**
+   * Fall back on the linear space XML algorithm when the sequences are too large for a matrix.
+   */
+  private void fallbackDiffLinear(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    if (DEBUG) System.err.println("Too large for matrix, falling back on linear space diff");
+    HirschbergXMLAlgorithm algorithm = new HirschbergXMLAlgorithm();
+    DiffHandler<XMLToken> actual = getFilter(handler);
+    actual.start();
+    algorithm.diff(from, to, actual, deadline);
+    actual.end();
+  }
+
   /**
    * Fall back on XML algorithm
    */
-  private void fallbackDiffMyers(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler) {
+  private void fallbackDiffMyers(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
     MyersGreedyXMLAlgorithm algorithm = new MyersGreedyXMLAlgorithm();
     DiffHandler<XMLToken> actual = getFilter(handler);
     actual.start();
-    algorithm.diff(from, to, actual);
+    algorithm.diff(from, to, actual, deadline);
     actual.end();
   }
 
@@ -134,6 +257,7 @@ public final class OptimisticXMLProcessor extends DiffProcessorBase implements X
   public String toString() {
     return "OptimisticXMLProcessor{" +
         "coalesce=" + coalesce +
+        ", speculative=" + (executor != null) +
         '}';
   }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.MyersGreedyAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.handler.CoalescingFilter;
+import org.pageseeder.diffx.load.text.TextTokenizer;
+import org.pageseeder.diffx.load.text.TokenizerFactory;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.List;
+
+/**
+ * A processor which compares the documents in two passes: first with each text node as a single
+ * token, then only the text which has changed at a finer granularity.
+ *
+ * <p>The text of the sequences is coalesced so that the first pass compares much fewer tokens than
+ * if the documents had been loaded at word level. For best results, documents should be loaded
+ * using the {@link org.pageseeder.diffx.config.TextGranularity#TEXT} granularity.
+ *
+ * <p>Between two matching tokens, when the first or last tokens deleted and inserted are both text,
+ * they are at the same position in both documents, so they are tokenized according to the config
+ * and compared with a text algorithm.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class RefiningXMLProcessor extends DiffProcessorBase implements XMLDiffProcessor {
+
+  private XMLDiffProcessor processor = new OptimisticXMLProcessor();
+
+  private DiffAlgorithm<XMLToken> textAlgorithm = new MyersGreedyAlgorithm<>();
+
+  private DiffConfig config = DiffConfig.getDefault();
+
+  /**
+   * Set the processor used for the first pass, by default {@link OptimisticXMLProcessor}.
+   *
+   * @param processor The processor comparing the coalesced sequences
+   */
+  public void setProcessor(XMLDiffProcessor processor) {
+    this.processor = processor;
+  }
+
+  /**
+   * Set the algorithm used to compare the text which has changed, by default {@link MyersGreedyAlgorithm}.
+   *
+   * @param algorithm The algorithm comparing the tokens of the text which has changed
+   */
+  public void setTextAlgorithm(DiffAlgorithm<XMLToken> algorithm) {
+    this.textAlgorithm = algorithm;
+  }
+
+  /**
+   * Set the configuration used to tokenize the text which has changed.
+   *
+   * <p>Only the text granularity and whitespace processing are used.
+   *
+   * @param config The configuration for the second pass (default config if not specified)
+   */
+  public void setConfig(DiffConfig config) {
+    this.config = config;
+  }
+
+  @Override
+  void process(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler, Deadline deadline) {
+    // First pass with each text node as a single token
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    this.processor.diff(CoalescingFilter.coalesce(from), CoalescingFilter.coalesce(to), buffer, deadline);
+
+    // Second pass on the changes between matches
+    TextTokenizer tokenizer = TokenizerFactory.get(this.config);
+    DiffHandler<XMLToken> actual = getFilter(handler);
+    actual.start();
+    List<Operation<XMLToken>> operations = buffer.getOperations();
+    int start = 0;
+    for (int i = 0; i < operations.size(); i++) {
+      Operation<XMLToken> operation = operations.get(i);
+      if (operation.operator() == Operator.MATCH) {
+        refine(operations.subList(start, i), tokenizer, actual, deadline);
+        actual.handle(Operator.MATCH, operation.token());
+        start = i + 1;
+      }
+    }
+    refine(operations.subList(start, operations.size()), tokenizer, actual, deadline);
+    actual.end();
+  }
+
+  /**
+   * Report the changes between two matches, comparing the text at the start or end of these changes.
+   */
+  private void refine(List<Operation<XMLToken>> changes, TextTokenizer tokenizer, DiffHandler<XMLToken> handler, Deadline deadline) {
+    int firstDel = -1;
+    int firstIns = -1;
+    int lastDel = -1;
+    int lastIns = -1;
+    for (int i = 0; i < changes.size(); i++) {
+      if (changes.get(i).operator() == Operator.DEL) {
+        if (firstDel == -1) firstDel = i;
+        lastDel = i;
+      } else {
+        if (firstIns == -1) firstIns = i;
+        lastIns = i;
+      }
+    }
+    boolean head = firstDel >= 0 && firstIns >= 0 && isText(changes, firstDel) && isText(changes, firstIns);
+    boolean tail = lastDel >= 0 && lastIns >= 0 && isText(changes, lastDel) && isText(changes, lastIns)
+        && (!head || (lastDel != firstDel && lastIns != firstIns));
+
+    if (head) diffText(changes.get(firstDel).token(), changes.get(firstIns).token(), tokenizer, handler, deadline);
+    for (int i = 0; i < changes.size(); i++) {
+      if (head && (i == firstDel || i == firstIns)) continue;
+      if (tail && (i == lastDel || i == lastIns)) continue;
+      handler.handle(changes.get(i).operator(), changes.get(i).token());
+    }
+    if (tail) diffText(changes.get(lastDel).token(), changes.get(lastIns).token(), tokenizer, handler, deadline);
+  }
+
+  private void diffText(XMLToken from, XMLToken to, TextTokenizer tokenizer, DiffHandler<XMLToken> handler, Deadline deadline) {
+    List<TextToken> a = tokenizer.tokenize(((TextToken) from).getCharacters());
+    List<TextToken> b = tokenizer.tokenize(((TextToken) to).getCharacters());
+    this.textAlgorithm.diff(a, b, handler, deadline);
+  }
+
+  private static boolean isText(List<Operation<XMLToken>> operations, int index) {
+    return operations.get(index).token() instanceof TextToken;
+  }
+
+  private DiffHandler<XMLToken> getFilter(DiffHandler<XMLToken> handler) {
+    return this.coalesce ? new CoalescingFilter(handler) : handler;
+  }
+
+  @Override
+  public String toString() {
+    return "RefiningXMLProcessor{" +
+        "coalesce=" + coalesce +
+        ", processor=" + processor +
+        ", granularity=" + config.granularity() +
+        '}';
+  }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.MyersGreedyAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.format.XMLDiffOutput;
+import org.pageseeder.diffx.load.XMLStreamLoader;
+import org.pageseeder.diffx.load.XMLTokenStream;
+import org.pageseeder.diffx.token.AttributeToken;
+import org.pageseeder.diffx.token.EndElementToken;
+import org.pageseeder.diffx.token.StartElementToken;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two XML documents read from {@link XMLStreamReader}s with memory bounded by the size of
+ * a window rather than by the size of the documents.
+ *
+ * <p>The tokens are pulled from each reader into a window of fixed capacity. Matching tokens at the
+ * start of both windows are reported immediately. When the windows differ, the diff looks for the
+ * closest anchor where both windows match again for a few tokens; the tokens before the anchor are
+ * compared with the processor and the results are reported before the windows slide forward.</p>
+ *
+ * <p>Only balanced elements are compared by the processor, so that the results are well-formed. When
+ * no anchor can be found within the window, the balanced tokens at the start of each window are compared
+ * instead, and an element which does not fit in the window is reported as deleted or inserted in full.</p>
+ *
+ * <p>Since changes are only compared within the window, the results are not always as small as when the
+ * documents are compared in full; increasing the window improves the results at the cost of memory.</p>
+ *
+ * <p>The namespaces are supplied to the {@link XMLDiffOutput} once the start of both documents has been
+ * read, so namespaces declared after the first window are not included.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class StreamingXMLDiff {
+
+  /**
+   * The default maximum number of tokens in each window.
+   */
+  public static final int DEFAULT_WINDOW = 4096;
+
+  /**
+   * The number of tokens which must match for a token to be used as an anchor.
+   */
+  private static final int ANCHOR_LENGTH = 8;
+
+  private DiffConfig config = DiffConfig.getDefault();
+
+  private XMLDiffProcessor processor = new OptimisticXMLProcessor();
+
+  private int window = DEFAULT_WINDOW;
+
+  /**
+   * Set the configuration used to load the tokens.
+   *
+   * @param config The configuration to use
+   */
+  public void setConfig(@NotNull DiffConfig config) {
+    this.config = config;
+  }
+
+  /**
+   * Set the processor used to compare the tokens between anchors, by default {@link OptimisticXMLProcessor}.
+   *
+   * @param processor The processor to use
+   */
+  public void setProcessor(@NotNull XMLDiffProcessor processor) {
+    this.processor = processor;
+  }
+
+  /**
+   * Set the maximum number of tokens in each window.
+   *
+   * @param window The capacity of each window, must be greater than the anchor length
+   *
+   * @throws IllegalArgumentException If the window is too small
+   */
+  public void setWindow(int window) {
+    if (window <= ANCHOR_LENGTH)
+      throw new IllegalArgumentException("The window must be greater than " + ANCHOR_LENGTH);
+    this.window = window;
+  }
+
+  /**
+   * Compares the documents read from the specified readers.
+   *
+   * @param from    The reader for the first document (deleted)
+   * @param to      The reader for the second document (inserted)
+   * @param handler The handler for the results of the comparison
+   *
+   * @throws LoadingException If thrown while reading either document.
+   */
+  public void diff(@NotNull XMLStreamReader from, @NotNull XMLStreamReader to, @NotNull DiffHandler<XMLToken> handler)
+      throws LoadingException {
+    XMLStreamLoader loader = new XMLStreamLoader();
+    loader.setConfig(this.config);
+    Window a = new Window(loader.stream(from), this.window);
+    Window b = new Window(loader.stream(to), this.window);
+    a.fill();
+    b.fill();
+
+    // Supply the namespaces to the output
+    if (handler instanceof XMLDiffOutput) {
+      NamespaceSet namespaces = NamespaceSet.merge(a.stream.getNamespaces(), b.stream.getNamespaces());
+      ((XMLDiffOutput) handler).setNamespaces(namespaces);
+    }
+
+    handler.start();
+    while (true) {
+      matchStart(a, b, handler);
+      a.fill();
+      b.fill();
+      if (a.size() == 0 && b.size() == 0) break;
+      int[] anchor = findAnchor(a, b);
+      if (anchor != null) {
+        compare(a, anchor[0], b, anchor[1], handler);
+      } else {
+        int p = a.balanced();
+        int q = b.balanced();
+        if (p > 0 || q > 0) {
+          compare(a, p, b, q, handler);
+        } else if (a.size() > 0 && a.get(0) instanceof StartElementToken) {
+          report(a, Operator.DEL, handler);
+        } else {
+          report(b, Operator.INS, handler);
+        }
+      }
+    }
+    handler.end();
+  }
+
+  /**
+   * Report the matching tokens at the start of both windows.
+   */
+  private static void matchStart(Window a, Window b, DiffHandler<XMLToken> handler) throws LoadingException {
+    while (a.ensure(1) && b.ensure(1) && a.get(0).equals(b.get(0))) {
+      XMLToken token = a.get(0);
+      handler.handle(Operator.MATCH, token);
+      a.drop(1);
+      b.drop(1);
+      if (token instanceof StartElementToken) {
+        // Attributes are compared separately so that differences cannot start between attributes
+        List<XMLToken> x = a.attributes();
+        List<XMLToken> y = b.attributes();
+        if (x.equals(y)) {
+          for (XMLToken attribute : x) handler.handle(Operator.MATCH, attribute);
+        } else {
+          new MyersGreedyAlgorithm<XMLToken>().diff(x, y, handler);
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the closest positions in both windows where the tokens match again and the tokens before
+   * are balanced.
+   *
+   * @return the positions in each window or <code>null</code>.
+   */
+  private static int[] findAnchor(Window a, Window b) {
+    // Start with the tokens close to the start so that the cost is proportional to the changes
+    for (int limit = ANCHOR_LENGTH * 8; ; limit *= 4) {
+      int[] anchor = findAnchor(a, Math.min(limit, a.size()), b, Math.min(limit, b.size()));
+      if (anchor != null || (limit >= a.size() && limit >= b.size())) return anchor;
+    }
+  }
+
+  private static int[] findAnchor(Window a, int limitA, Window b, int limitB) {
+    boolean[] validA = a.boundaries(limitA);
+    boolean[] validB = b.boundaries(limitB);
+    Map<XMLToken, List<Integer>> positions = new HashMap<>();
+    for (int p = 0; p < limitA; p++) {
+      if (validA[p]) positions.computeIfAbsent(a.get(p), t -> new ArrayList<>()).add(p);
+    }
+    int[] best = null;
+    for (int q = 0; q < limitB && (best == null || q < best[0] + best[1]); q++) {
+      if (!validB[q]) continue;
+      List<Integer> candidates = positions.get(b.get(q));
+      if (candidates == null) continue;
+      for (int p : candidates) {
+        if (best != null && p + q >= best[0] + best[1]) break;
+        if ((p > 0 || q > 0) && isAnchor(a, p, b, q)) best = new int[]{p, q};
+      }
+    }
+    return best;
+  }
+
+  /**
+   * @return <code>true</code> if the tokens match from the positions for the anchor length or until
+   * the end of both documents.
+   */
+  private static boolean isAnchor(Window a, int p, Window b, int q) {
+    for (int k = 0; k < ANCHOR_LENGTH; k++) {
+      boolean endA = p + k >= a.size();
+      boolean endB = q + k >= b.size();
+      // Assume the tokens match beyond the end of the window
+      if (endA || endB) return endA && endB || (endA ? a.isFull() : b.isFull());
+      if (!a.get(p + k).equals(b.get(q + k))) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Compare the tokens before the specified positions and report the results.
+   */
+  private void compare(Window a, int p, Window b, int q, DiffHandler<XMLToken> handler) {
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    this.processor.diff(a.slice(p), b.slice(q), buffer);
+    for (Operation<XMLToken> operation : buffer.getOperations()) {
+      handler.handle(operation.operator(), operation.token());
+    }
+    a.drop(p);
+    b.drop(q);
+  }
+
+  /**
+   * Report the element at the start of the window in full as it does not fit in the window.
+   */
+  private static void report(Window w, Operator operator, DiffHandler<XMLToken> handler) throws LoadingException {
+    int depth = 0;
+    do {
+      if (!w.ensure(1)) break;
+      XMLToken token = w.get(0);
+      w.drop(1);
+      handler.handle(operator, token);
+      if (token instanceof StartElementToken) depth++;
+      else if (token instanceof EndElementToken) depth--;
+    } while (depth > 0);
+  }
+
+  @Override
+  public String toString() {
+    return "StreamingXMLDiff{" +
+        "processor=" + processor +
+        ", window=" + window +
+        '}';
+  }
+
+  /**
+   * A window over the tokens of a stream.
+   */
+  private static final class Window {
+
+    private final XMLTokenStream stream;
+
+    private final int capacity;
+
+    private final List<XMLToken> tokens;
+
+    /**
+     * The index of the first token of the window in the list.
+     */
+    private int start = 0;
+
+    /**
+     * Whether the end of the stream has been reached.
+     */
+    private boolean isDone = false;
+
+    Window(XMLTokenStream stream, int capacity) {
+      this.stream = stream;
+      this.capacity = capacity;
+      this.tokens = new ArrayList<>(capacity);
+    }
+
+    int size() {
+      return this.tokens.size() - this.start;
+    }
+
+    XMLToken get(int i) {
+      return this.tokens.get(this.start + i);
+    }
+
+    void drop(int count) {
+      this.start += count;
+    }
+
+    List<XMLToken> slice(int count) {
+      return new ArrayList<>(this.tokens.subList(this.start, this.start + count));
+    }
+
+    /**
+     * @return <code>true</code> if there are tokens left in the stream beyond the window.
+     */
+    boolean isFull() {
+      return !this.isDone;
+    }
+
+    /**
+     * Fill the window to capacity.
+     */
+    void fill() throws LoadingException {
+      if (this.start > 0) {
+        this.tokens.subList(0, this.start).clear();
+        this.start = 0;
+      }
+      while (!this.isDone && this.tokens.size() < this.capacity) {
+        XMLToken token = this.stream.next();
+        if (token == null) this.isDone = true;
+        else this.tokens.add(token);
+      }
+    }
+
+    /**
+     * Ensure that the window contains at least the specified number of tokens if the stream has them.
+     */
+    boolean ensure(int count) throws LoadingException {
+      if (size() < count) fill();
+      return size() >= count;
+    }
+
+    /**
+     * Remove the attributes at the start of the window.
+     */
+    List<XMLToken> attributes() throws LoadingException {
+      List<XMLToken> attributes = new ArrayList<>();
+      while (ensure(1) && get(0) instanceof AttributeToken) {
+        attributes.add(get(0));
+        drop(1);
+      }
+      return attributes;
+    }
+
+    /**
+     * @return whether the tokens before each position up to the limit are balanced elements.
+     */
+    boolean[] boundaries(int limit) {
+      boolean[] boundaries = new boolean[limit + 1];
+      int depth = 0;
+      boundaries[0] = true;
+      for (int i = 0; i < limit && depth >= 0; i++) {
+        XMLToken token = get(i);
+        if (token instanceof StartElementToken) depth++;
+        else if (token instanceof EndElementToken) depth--;
+        boundaries[i + 1] = depth == 0;
+      }
+      return boundaries;
+    }
+
+    /**
+     * @return the number of tokens at the start of the window which form balanced elements.
+     */
+    int balanced() {
+      boolean[] boundaries = boundaries(size());
+      for (int i = size(); i > 0; i--) {
+        if (boundaries[i]) return i;
+      }
+      return 0;
+    }
+  }
+}
@@ -15,7 +15,11 @@
  */
 package org.pageseeder.diffx.core;
 
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
 import org.pageseeder.diffx.algorithm.*;
+import org.pageseeder.diffx.api.Deadline;
+import org.pageseeder.diffx.api.DeadlineExceededException;
 import org.pageseeder.diffx.api.DiffAlgorithm;
 import org.pageseeder.diffx.api.DiffHandler;
 import org.pageseeder.diffx.api.Operator;
@@ -42,6 +46,7 @@ public final class TextOnlyProcessor<T> implements DiffProcessor<T> {
     KUMAR_RANGAN,
     MYER_GREEDY,
     MYER_LINEAR,
+    HISTOGRAM,
   }
 
   private final Algorithm algo;
@@ -59,6 +64,17 @@ public final class TextOnlyProcessor<T> implements DiffProcessor<T> {
 
   @Override
   public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler) {
+    diff(from, to, handler, Deadline.none());
+  }
+
+  /**
+   * Performs the comparison within the specified deadline.
+   *
+   * <p>When the deadline expires, the tokens between the common start and end of the sequences are
+   * reported as deleted and inserted in full.
+   */
+  @Override
+  public void diff(List<? extends T> from, List<? extends T> to, DiffHandler<T> handler, Deadline deadline) {
     handler.start();
     // handle the case when one of the two sequences is empty
     if (from.isEmpty() || to.isEmpty()) {
@@ -86,13 +102,11 @@ public final class TextOnlyProcessor<T> implements DiffProcessor<T> {
           for (T token : subB) handler.handle(Operator.INS, token);
           for (T token : subA) handler.handle(Operator.DEL, token);
         } else {
-          DiffAlgorithm<T> algorithm = getAlgorithm();
-          algorithm.diff(subA, subB, handler);
+          diff(subA, subB, handler, deadline, getAlgorithm());
         }
 
       } else {
-        DiffAlgorithm<T> algorithm = getAlgorithm();
-        algorithm.diff(from, to, handler);
+        diff(from, to, handler, deadline, getAlgorithm());
       }
 
       // Copy the end
@@ -103,6 +117,25 @@ public final class TextOnlyProcessor<T> implements DiffProcessor<T> {
     handler.end();
   }
 
+  private void diff(List<? extends T> a, List<? extends T> b, DiffHandler<T> handler, Deadline deadline, DiffAlgorithm<T> algorithm) {
+    if (!deadline.isBounded()) {
+      algorithm.diff(a, b, handler);
+      return;
+    }
+    // Results are buffered so that they can be discarded if the deadline expires
+    OperationsBuffer<T> buffer = new OperationsBuffer<>();
+    try {
+      algorithm.diff(a, b, buffer, deadline);
+    } catch (DeadlineExceededException ex) {
+      for (T token : a) handler.handle(Operator.DEL, token);
+      for (T token : b) handler.handle(Operator.INS, token);
+      return;
+    }
+    for (Operation<T> operation : buffer.getOperations()) {
+      handler.handle(operation.operator(), operation.token());
+    }
+  }
+
   @Override
   public String toString() {
     return "TextOnlyProcessor{algo=" + getAlgorithm().getClass().getSimpleName() + "}";
@@ -120,6 +153,8 @@ public final class TextOnlyProcessor<T> implements DiffProcessor<T> {
         return new MyersGreedyAlgorithm<>();
       case MYER_LINEAR:
         return new MyersLinearAlgorithm<>();
+      case HISTOGRAM:
+        return new HistogramAlgorithm<>();
       default:
         throw new IllegalStateException("No algorithm defined");
     }
@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.Operator;
+import org.pageseeder.diffx.format.XMLDiffOutput;
+import org.pageseeder.diffx.token.AttributeToken;
+import org.pageseeder.diffx.token.EndElementToken;
+import org.pageseeder.diffx.token.StartElementToken;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.impl.XMLAttribute;
+import org.pageseeder.diffx.token.impl.XMLEndElement;
+import org.pageseeder.diffx.token.impl.XMLStartElement;
+import org.pageseeder.diffx.xml.Namespace;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * Merges the changes made to a base sequence in two different revisions, "ours" and "theirs".
+ *
+ * <p>Both revisions are compared against the base concurrently using a {@link BatchXMLDiff}, so that
+ * the base is indexed only once. The two lists of operations are then aligned on the positions of the
+ * base tokens and cut into regions:</p>
+ * <ul>
+ *   <li>stable regions where both revisions match the base,</li>
+ *   <li>regions changed by only one revision or in the same way by both, where that change is kept,</li>
+ *   <li>regions changed differently by both revisions, which are conflicts.</li>
+ * </ul>
+ *
+ * <p>The changed regions are extended until the elements they contain are balanced in the base and in
+ * both revisions, so that keeping the change from either revision in each region produces well-formed
+ * XML like the {@link org.pageseeder.diffx.algorithm.ElementStackFilter} does for a diff.</p>
+ *
+ * <p>The handler receives the differences between the base and the merged result. Each conflict is
+ * reported as a <code>conflict</code> element in the diff namespace containing the differences of each
+ * revision in an <code>ours</code> and a <code>theirs</code> element. Since an element cannot be
+ * inserted among attributes, attributes are merged by name, the value from "ours" is kept in case of
+ * conflict and the names of the conflicting attributes are listed in a <code>conflict</code> attribute
+ * in the diff namespace.</p>
+ *
+ * <p>The processor must report each base token once as matched or deleted, which is why it cannot
+ * coalesce text.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class ThreeWayMerge {
+
+  /**
+   * The namespace of the elements and attributes used to report conflicts, same as the diff output.
+   */
+  public static final Namespace NAMESPACE = new Namespace("https://www.pageseeder.org/diffx", "diff");
+
+  private static final StartElementToken CONFLICT = new XMLStartElement(NAMESPACE.getUri(), "conflict");
+
+  private static final StartElementToken OURS = new XMLStartElement(NAMESPACE.getUri(), "ours");
+
+  private static final StartElementToken THEIRS = new XMLStartElement(NAMESPACE.getUri(), "theirs");
+
+  /**
+   * Compares the revisions against the base.
+   */
+  private final BatchXMLDiff batch;
+
+  /**
+   * Creates a new merge for the specified base sequence.
+   *
+   * @param base The common ancestor of the revisions to merge
+   */
+  public ThreeWayMerge(@NotNull Sequence base) {
+    this.batch = new BatchXMLDiff(base);
+  }
+
+  /**
+   * Set the processor used to compare each revision with the base, by default {@link OptimisticXMLProcessor}.
+   *
+   * <p>The processors supplied must not coalesce text, otherwise the merge fails with a
+   * {@link DiffException}.
+   *
+   * @param processors The supplier of a new processor for each comparison
+   */
+  public void setProcessor(@NotNull Supplier<? extends XMLDiffProcessor> processors) {
+    this.batch.setProcessor(() -> {
+      XMLDiffProcessor processor = processors.get();
+      if (processor.isCoalescing())
+        throw new IllegalArgumentException("The processor must not coalesce text");
+      return processor;
+    });
+  }
+
+  /**
+   * Set the executor used to compare both revisions concurrently, by default the common fork/join pool.
+   *
+   * @param executor The executor to use
+   */
+  public void setExecutor(@NotNull ExecutorService executor) {
+    this.batch.setExecutor(executor);
+  }
+
+  /**
+   * Merges the specified revisions of the base.
+   *
+   * @param ours    Our revision of the base
+   * @param theirs  Their revision of the base
+   * @param handler Receives the differences between the base and the merged result
+   *
+   * @return The number of conflicts.
+   *
+   * @throws DiffException If either revision could not be compared with the base.
+   */
+  public int merge(@NotNull Sequence ours, @NotNull Sequence theirs, @NotNull DiffHandler<XMLToken> handler)
+      throws DiffException {
+    OperationsBuffer<XMLToken> a = new OperationsBuffer<>();
+    OperationsBuffer<XMLToken> b = new OperationsBuffer<>();
+    this.batch.diff(Arrays.asList(ours, theirs), i -> i == 0 ? a : b);
+
+    // Supply the namespaces to the output
+    if (handler instanceof XMLDiffOutput) {
+      NamespaceSet namespaces = NamespaceSet.merge(this.batch.getBase().getNamespaces(), ours.getNamespaces());
+      namespaces.add(theirs.getNamespaces());
+      namespaces.add(NAMESPACE);
+      ((XMLDiffOutput) handler).setNamespaces(namespaces);
+    }
+
+    handler.start();
+    int conflicts = merge(new Side(a.getOperations()), new Side(b.getOperations()), handler);
+    handler.end();
+    return conflicts;
+  }
+
+  private static int merge(Side ours, Side theirs, DiffHandler<XMLToken> handler) {
+    int conflicts = 0;
+    while (!ours.isDone() || !theirs.isDone()) {
+      if (ours.isAtMatch() && theirs.isAtMatch()) {
+        XMLToken token = ours.consume(null).token();
+        theirs.consume(null);
+        handler.handle(Operator.MATCH, token);
+        if (token instanceof StartElementToken) {
+          conflicts += mergeAttributes(ours.consumeAttributes(), theirs.consumeAttributes(), handler);
+        }
+      } else {
+        conflicts += mergeRegion(ours, theirs, handler);
+      }
+    }
+    return conflicts;
+  }
+
+  /**
+   * Collect the operations of both sides until they match the same base token again with balanced
+   * elements, and report the resulting region.
+   *
+   * @return 1 if the region is a conflict; 0 otherwise.
+   */
+  private static int mergeRegion(Side ours, Side theirs, DiffHandler<XMLToken> handler) {
+    List<Operation<XMLToken>> a = new ArrayList<>();
+    List<Operation<XMLToken>> b = new ArrayList<>();
+    ours.resetDepth();
+    theirs.resetDepth();
+    while (true) {
+      if (ours.base < theirs.base || (!ours.isAtMatch() && !ours.isDone())) {
+        ours.consume(a);
+      } else if (theirs.base < ours.base || (!theirs.isAtMatch() && !theirs.isDone())) {
+        theirs.consume(b);
+      } else if (!ours.isDone() && !(ours.isBalanced() && theirs.isBalanced())) {
+        // Both sides match the same base token, but elements are still open
+        ours.consume(a);
+        theirs.consume(b);
+      } else {
+        break;
+      }
+    }
+    if (!hasChanges(a)) {
+      report(b, handler);
+    } else if (!hasChanges(b) || result(a).equals(result(b))) {
+      report(a, handler);
+    } else {
+      handler.handle(Operator.MATCH, CONFLICT);
+      handler.handle(Operator.MATCH, OURS);
+      report(a, handler);
+      handler.handle(Operator.MATCH, new XMLEndElement(OURS));
+      handler.handle(Operator.MATCH, THEIRS);
+      report(b, handler);
+      handler.handle(Operator.MATCH, new XMLEndElement(THEIRS));
+      handler.handle(Operator.MATCH, new XMLEndElement(CONFLICT));
+      return 1;
+    }
+    return 0;
+  }
+
+  /**
+   * Merge the attributes of an element matched by both sides by name.
+   *
+   * @return the number of conflicting attributes.
+   */
+  private static int mergeAttributes(List<Operation<XMLToken>> a, List<Operation<XMLToken>> b, DiffHandler<XMLToken> handler) {
+    if (!hasChanges(b)) {
+      report(a, handler);
+      return 0;
+    }
+    if (!hasChanges(a)) {
+      report(b, handler);
+      return 0;
+    }
+    Map<String, AttributeToken> base = new LinkedHashMap<>();
+    Map<String, AttributeToken> ours = new LinkedHashMap<>();
+    Map<String, AttributeToken> theirs = new LinkedHashMap<>();
+    for (Operation<XMLToken> operation : a) {
+      AttributeToken attribute = (AttributeToken) operation.token();
+      if (operation.operator() != Operator.INS) base.put(toKey(attribute), attribute);
+      if (operation.operator() != Operator.DEL) ours.put(toKey(attribute), attribute);
+    }
+    for (Operation<XMLToken> operation : b) {
+      AttributeToken attribute = (AttributeToken) operation.token();
+      if (operation.operator() != Operator.DEL) theirs.put(toKey(attribute), attribute);
+    }
+    Set<String> keys = new LinkedHashSet<>(base.keySet());
+    keys.addAll(ours.keySet());
+    keys.addAll(theirs.keySet());
+    List<String> conflicts = new ArrayList<>();
+    for (String key : keys) {
+      AttributeToken original = base.get(key);
+      AttributeToken x = ours.get(key);
+      AttributeToken y = theirs.get(key);
+      AttributeToken merged = x;
+      if (Objects.equals(x, original)) {
+        merged = y;
+      } else if (!Objects.equals(y, original) && !Objects.equals(x, y)) {
+        conflicts.add(x != null ? x.getName() : original.getName());
+      }
+      if (original != null && original.equals(merged)) {
+        handler.handle(Operator.MATCH, original);
+      } else {
+        if (original != null) handler.handle(Operator.DEL, original);
+        if (merged != null) handler.handle(Operator.INS, merged);
+      }
+    }
+    if (!conflicts.isEmpty()) {
+      handler.handle(Operator.MATCH, new XMLAttribute(NAMESPACE.getUri(), "conflict", String.join(" ", conflicts)));
+    }
+    return conflicts.size();
+  }
+
+  private static String toKey(AttributeToken attribute) {
+    return attribute.getNamespaceURI() + ' ' + attribute.getName();
+  }
+
+  private static boolean hasChanges(List<Operation<XMLToken>> operations) {
+    for (Operation<XMLToken> operation : operations) {
+      if (operation.operator() != Operator.MATCH) return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the tokens resulting from the operations.
+   */
+  private static List<XMLToken> result(List<Operation<XMLToken>> operations) {
+    List<XMLToken> tokens = new ArrayList<>(operations.size());
+    for (Operation<XMLToken> operation : operations) {
+      if (operation.operator() != Operator.DEL) tokens.add(operation.token());
+    }
+    return tokens;
+  }
+
+  private static void report(List<Operation<XMLToken>> operations, DiffHandler<XMLToken> handler) {
+    for (Operation<XMLToken> operation : operations) {
+      handler.handle(operation.operator(), operation.token());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ThreeWayMerge{" +
+        "batch=" + batch +
+        '}';
+  }
+
+  /**
+   * The operations from the base to one revision and the position in these operations.
+   */
+  private static final class Side {
+
+    private final List<Operation<XMLToken>> operations;
+
+    /**
+     * The index of the next operation.
+     */
+    private int index = 0;
+
+    /**
+     * The number of base tokens consumed so far.
+     */
+    private int base = 0;
+
+    /**
+     * The depth of elements in the base since the last reset.
+     */
+    private int baseDepth = 0;
+
+    /**
+     * The depth of elements in the revision since the last reset.
+     */
+    private int depth = 0;
+
+    Side(List<Operation<XMLToken>> operations) {
+      this.operations = operations;
+    }
+
+    boolean isDone() {
+      return this.index >= this.operations.size();
+    }
+
+    boolean isAtMatch() {
+      return !isDone() && this.operations.get(this.index).operator() == Operator.MATCH;
+    }
+
+    boolean isBalanced() {
+      return this.baseDepth == 0 && this.depth == 0;
+    }
+
+    void resetDepth() {
+      this.baseDepth = 0;
+      this.depth = 0;
+    }
+
+    /**
+     * Consume the next operation, adding it to the specified list if any.
+     */
+    Operation<XMLToken> consume(List<Operation<XMLToken>> region) {
+      Operation<XMLToken> operation = this.operations.get(this.index++);
+      int delta = operation.token() instanceof StartElementToken ? 1 : operation.token() instanceof EndElementToken ? -1 : 0;
+      if (operation.operator() != Operator.INS) {
+        this.base++;
+        this.baseDepth += delta;
+      }
+      if (operation.operator() != Operator.DEL) {
+        this.depth += delta;
+      }
+      if (region != null) region.add(operation);
+      return operation;
+    }
+
+    /**
+     * Consume the operations on attributes following a start element.
+     */
+    List<Operation<XMLToken>> consumeAttributes() {
+      List<Operation<XMLToken>> attributes = new ArrayList<>();
+      while (!isDone() && this.operations.get(this.index).token() instanceof AttributeToken) {
+        consume(attributes);
+      }
+      return attributes;
+    }
+  }
+}
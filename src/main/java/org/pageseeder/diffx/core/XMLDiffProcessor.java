@@ -70,4 +70,14 @@ public interface XMLDiffProcessor extends DiffProcessor<XMLToken> {
    */
   void diff(List<? extends XMLToken> from, List<? extends XMLToken> to, DiffHandler<XMLToken> handler);
 
+  /**
+   * Indicates whether the deadline expired during the last comparison so that only a coarse result
+   * was reported.
+   *
+   * @return <code>true</code> if the last result was truncated; <code>false</code> by default.
+   */
+  default boolean isTruncated() {
+    return false;
+  }
+
 }
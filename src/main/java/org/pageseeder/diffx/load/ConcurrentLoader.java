@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.token.TokenPool;
+import org.pageseeder.diffx.xml.Sequence;
+import org.xml.sax.InputSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Loads the two documents to compare concurrently.
+ *
+ * <p>The first document is loaded by the calling thread while the second one is loaded by the
+ * executor. If the executor has not started loading the second document by the time the first one
+ * is loaded, the calling thread loads it, so that this class does not depend on the availability
+ * of the executor's threads.
+ *
+ * <p>Each document is loaded by a new loader obtained from the supplier, both loaders share the same
+ * {@link TokenPool} so that the tokens common to both documents are the same instance. When the
+ * loader is a {@link SAXLoader}, large text nodes are also tokenized by the executor while the
+ * document is parsed.
+ *
+ * <p>This class is thread-safe if the supplier is.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class ConcurrentLoader {
+
+  /**
+   * Supplies a new loader for each document.
+   */
+  private final Supplier<? extends XMLLoader> loaders;
+
+  /**
+   * The executor loading the second document and tokenizing large text nodes.
+   */
+  private final Executor executor;
+
+  /**
+   * The minimum number of characters of the text nodes tokenized by the executor, 0 to disable.
+   */
+  private volatile int textThreshold = SAXLoader.DEFAULT_TEXT_THRESHOLD;
+
+  /**
+   * Creates a new loader using the common fork-join pool.
+   *
+   * @param loaders Supplies a new loader for each document
+   */
+  public ConcurrentLoader(@NotNull Supplier<? extends XMLLoader> loaders) {
+    this(loaders, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Creates a new loader using the specified executor.
+   *
+   * @param loaders  Supplies a new loader for each document
+   * @param executor The executor loading the second document and tokenizing large text nodes
+   */
+  public ConcurrentLoader(@NotNull Supplier<? extends XMLLoader> loaders, @NotNull Executor executor) {
+    this.loaders = loaders;
+    this.executor = executor;
+  }
+
+  /**
+   * Sets the minimum number of characters of the text nodes tokenized by the executor.
+   *
+   * @param threshold The number of characters or 0 to tokenize text on the parsing thread
+   */
+  public void setTextThreshold(int threshold) {
+    this.textThreshold = threshold;
+  }
+
+  /**
+   * Loads the two specified files concurrently.
+   *
+   * @param from The first document
+   * @param to   The second document
+   *
+   * @return An array containing the sequences of the first and second documents
+   * @throws LoadingException If thrown while loading either document.
+   * @throws IOException      Should an I/O error occur.
+   */
+  public Sequence[] load(@NotNull File from, @NotNull File to) throws LoadingException, IOException {
+    return load(loader -> loader.load(from), loader -> loader.load(to));
+  }
+
+  /**
+   * Loads the two specified input sources concurrently.
+   *
+   * @param from The first document
+   * @param to   The second document
+   *
+   * @return An array containing the sequences of the first and second documents
+   * @throws LoadingException If thrown while loading either document.
+   * @throws IOException      Should an I/O error occur.
+   */
+  public Sequence[] load(@NotNull InputSource from, @NotNull InputSource to) throws LoadingException, IOException {
+    return load(loader -> loader.load(from), loader -> loader.load(to));
+  }
+
+  private Sequence[] load(Load from, Load to) throws LoadingException, IOException {
+    TokenPool pool = new TokenPool();
+    FutureTask<Sequence> second = new FutureTask<>(() -> to.load(newLoader(pool)));
+    try {
+      this.executor.execute(second);
+    } catch (RejectedExecutionException ex) {
+      // Loaded below by the current thread
+    }
+    Sequence first;
+    try {
+      first = from.load(newLoader(pool));
+    } catch (LoadingException | IOException | RuntimeException | Error ex) {
+      second.cancel(true);
+      throw ex;
+    }
+    // Load on the current thread if the executor has not started yet
+    second.run();
+    try {
+      return new Sequence[]{first, second.get()};
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new LoadingException(ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof LoadingException) throw (LoadingException) cause;
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      if (cause instanceof Error) throw (Error) cause;
+      throw new LoadingException(ex);
+    }
+  }
+
+  private XMLLoader newLoader(@Nullable TokenPool pool) {
+    XMLLoader loader = this.loaders.get();
+    if (loader instanceof XMLLoaderBase && ((XMLLoaderBase) loader).getTokenPool() == null) {
+      ((XMLLoaderBase) loader).setTokenPool(pool);
+    }
+    int threshold = this.textThreshold;
+    if (loader instanceof SAXLoader && threshold > 0) {
+      ((SAXLoader) loader).setTextExecutor(this.executor, threshold);
+    }
+    return loader;
+  }
+
+  /**
+   * Loads a document using the specified loader.
+   */
+  @FunctionalInterface
+  private interface Load {
+    Sequence load(XMLLoader loader) throws LoadingException, IOException;
+  }
+
+}
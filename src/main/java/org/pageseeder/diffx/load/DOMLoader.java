@@ -120,8 +120,8 @@ public final class DOMLoader extends XMLLoaderBase implements XMLLoader {
    */
   public Sequence load(Node node) throws LoadingException {
     // initialise the state variables.
-    this.tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware());
-    this.tokenizer = TokenizerFactory.get(this.config);
+    this.tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware(), this.pool);
+    this.tokenizer = TokenizerFactory.get(this.config, this.pool);
     this.sequence = new Sequence();
     this.namespaces = this.sequence.getNamespaces();
     // start processing the nodes
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.pageseeder.diffx.api.Loader;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Loads the contents of a large text file as list of line tokens by mapping the file in memory.
+ *
+ * <p>Unlike the {@link LineLoader}, this loader does not read the file up front: line boundaries
+ * and a 64-bit hash of each line are computed directly on the mapped bytes, so that only 16 bytes
+ * per line are kept in the heap. Lines are only decoded when their characters are requested,
+ * typically for the lines written to the output.
+ *
+ * <p>The charset must be ASCII compatible so that line terminators can be found on the bytes. Lines
+ * are compared on their bytes, so both files must be loaded using the same charset.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MappedLineLoader implements Loader<MappedLineToken> {
+
+  /**
+   * Loads the contents of the specified file using the default charset.
+   *
+   * @param file The file to process.
+   *
+   * @return The recorded sequence of tokens.
+   * @throws IOException Should an I/O error occur.
+   */
+  @Override
+  public MappedLines load(File file) throws IOException {
+    return load(file, Charset.defaultCharset());
+  }
+
+  /**
+   * Loads the contents of the specified file using the charset provided.
+   *
+   * @param file    The file to process.
+   * @param charset The charset used to decode the lines.
+   *
+   * @return The corresponding sequence of tokens.
+   * @throws IOException              Should an I/O error occur.
+   * @throws IllegalArgumentException If the charset is not ASCII compatible.
+   */
+  @Override
+  public MappedLines load(File file, Charset charset) throws IOException {
+    checkCharset(charset);
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer[] segments = new ByteBuffer[(int) ((size + MappedLines.SEGMENT_SIZE - 1) >>> MappedLines.SEGMENT_SHIFT)];
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i << MappedLines.SEGMENT_SHIFT;
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MappedLines.SEGMENT_SIZE, size - position));
+      }
+      // The mapping remains valid after the channel is closed
+      return MappedLines.scan(segments, charset);
+    }
+  }
+
+  /**
+   * Loads the contents of the specified reader.
+   *
+   * <p>Since the contents cannot be mapped, they are read in memory and encoded in UTF-8.
+   *
+   * @return The corresponding sequence of tokens.
+   * @throws IOException Should an I/O error occur.
+   */
+  @Override
+  public MappedLines load(Reader reader) throws IOException {
+    StringBuilder text = new StringBuilder();
+    char[] buffer = new char[8192];
+    try (Reader r = reader) {
+      for (int n = r.read(buffer); n != -1; n = r.read(buffer)) {
+        text.append(buffer, 0, n);
+      }
+    }
+    return load(text.toString());
+  }
+
+  /**
+   * Runs this loader on the specified string.
+   *
+   * <p>The text is encoded in UTF-8 in the heap.
+   *
+   * @param text The text string to process.
+   *
+   * @return The recorded sequence of tokens.
+   */
+  @Override
+  public MappedLines load(String text) {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer[] segments = new ByteBuffer[(int) (((long) bytes.length + MappedLines.SEGMENT_SIZE - 1) >>> MappedLines.SEGMENT_SHIFT)];
+    for (int i = 0; i < segments.length; i++) {
+      int offset = i << MappedLines.SEGMENT_SHIFT;
+      segments[i] = ByteBuffer.wrap(bytes, offset, Math.min(MappedLines.SEGMENT_SIZE, bytes.length - offset)).slice();
+    }
+    return MappedLines.scan(segments, StandardCharsets.UTF_8);
+  }
+
+  private static void checkCharset(Charset charset) {
+    if (!Arrays.equals("\n\r".getBytes(charset), new byte[]{'\n', '\r'}))
+      throw new IllegalArgumentException("Charset must be ASCII compatible: " + charset);
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.XMLToken;
+
+/**
+ * A text token representing a single line of {@link MappedLines}.
+ *
+ * <p>Tokens are compared using the 64-bit hash of their bytes first, the bytes are only compared
+ * when the hashes are equal and the characters are only decoded when requested. Since lines are
+ * compared on their bytes, lines loaded using different charsets are never equal.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MappedLineToken implements TextToken {
+
+  private final MappedLines lines;
+
+  private final int index;
+
+  MappedLineToken(MappedLines lines, int index) {
+    this.lines = lines;
+    this.index = index;
+  }
+
+  /**
+   * Returns the characters of the line decoded using the charset of the lines.
+   *
+   * @return The characters that this line represents.
+   */
+  @Override
+  public String getCharacters() {
+    return this.lines.decode(this.index);
+  }
+
+  /**
+   * @return The line number.
+   */
+  public int getLineNumber() {
+    return this.index + 1;
+  }
+
+  @Override
+  public int hashCode() {
+    long hash = this.lines.hash(this.index);
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  /**
+   * Returns <code>true</code> if the token is a mapped line and the content is equivalent.
+   *
+   * @param token The token to compare with this token.
+   *
+   * @return <code>true</code> if considered equal;
+   * <code>false</code> otherwise.
+   */
+  @Override
+  public boolean equals(XMLToken token) {
+    if (token == null) return false;
+    if (this == token) return true;
+    if (token.getClass() != MappedLineToken.class) return false;
+    MappedLineToken line = (MappedLineToken) token;
+    if (line.lines == this.lines && line.index == this.index) return true;
+    return line.lines.getCharset().equals(this.lines.getCharset())
+        && line.lines.hash(line.index) == this.lines.hash(this.index)
+        && this.lines.sameBytes(this.index, line.lines, line.index);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (!(o instanceof XMLToken)) return false;
+    return equals((XMLToken) o);
+  }
+
+  @Override
+  public String toString() {
+    return "line:" + getLineNumber() + ": \"" + getCharacters() + '"';
+  }
+
+}
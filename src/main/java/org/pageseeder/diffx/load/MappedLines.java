@@ -0,0 +1,211 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The lines of a text loaded by the {@link MappedLineLoader}.
+ *
+ * <p>This list only keeps the offset and a 64-bit hash of each line, the bytes remain in the
+ * underlying buffers. The tokens returned by {@link #get(int)} are views created on demand and
+ * lines are only decoded when their characters are requested.
+ *
+ * <p>This class is immutable and thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MappedLines extends AbstractList<MappedLineToken> implements RandomAccess {
+
+  /**
+   * The number of bits of the offset within a segment.
+   */
+  static final int SEGMENT_SHIFT = 30;
+
+  /**
+   * The maximum number of bytes in each segment.
+   */
+  static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+
+  private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+  /**
+   * FNV-1a 64-bit offset basis.
+   */
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+
+  /**
+   * FNV-1a 64-bit prime.
+   */
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /**
+   * The bytes of the text split into segments of {@link #SEGMENT_SIZE} bytes.
+   */
+  private final ByteBuffer[] segments;
+
+  /**
+   * The charset used to decode the lines.
+   */
+  private final Charset charset;
+
+  /**
+   * The offset of the start of each line followed by the total number of bytes.
+   */
+  private final long[] starts;
+
+  /**
+   * The hash of the bytes of each line excluding the line terminator.
+   */
+  private final long[] hashes;
+
+  private MappedLines(ByteBuffer[] segments, Charset charset, long[] starts, long[] hashes) {
+    this.segments = segments;
+    this.charset = charset;
+    this.starts = starts;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Scans the specified segments for line boundaries and computes the hash of each line.
+   *
+   * <p>Lines are terminated by a line feed, a carriage return or a carriage return followed by a
+   * line feed as for {@link java.io.BufferedReader#readLine()}.
+   *
+   * @param segments The bytes to scan, all segments except the last must be {@link #SEGMENT_SIZE} bytes
+   * @param charset  The charset used to decode the lines
+   */
+  static MappedLines scan(ByteBuffer[] segments, Charset charset) {
+    long[] starts = new long[64];
+    long[] hashes = new long[64];
+    int count = 0;
+    long start = 0;
+    long hash = FNV_OFFSET;
+    boolean cr = false;
+    long base = 0;
+    for (ByteBuffer segment : segments) {
+      int limit = segment.limit();
+      for (int i = 0; i < limit; i++) {
+        byte b = segment.get(i);
+        if (b == '\n' || b == '\r') {
+          // A line feed after a carriage return terminates the same line
+          if (b == '\r' || !cr) {
+            if (count == hashes.length) {
+              starts = Arrays.copyOf(starts, count * 2);
+              hashes = Arrays.copyOf(hashes, count * 2);
+            }
+            starts[count] = start;
+            hashes[count++] = hash;
+          }
+          cr = b == '\r';
+          start = base + i + 1;
+          hash = FNV_OFFSET;
+        } else {
+          cr = false;
+          hash = (hash ^ (b & 0xFF)) * FNV_PRIME;
+        }
+      }
+      base += limit;
+    }
+    // Last line without a terminator
+    if (start < base) {
+      if (count == hashes.length) {
+        starts = Arrays.copyOf(starts, count + 1);
+        hashes = Arrays.copyOf(hashes, count + 1);
+      }
+      starts[count] = start;
+      hashes[count++] = hash;
+    }
+    starts = Arrays.copyOf(starts, count + 1);
+    starts[count] = base;
+    return new MappedLines(segments, charset, starts, Arrays.copyOf(hashes, count));
+  }
+
+  @Override
+  public MappedLineToken get(int index) {
+    if (index < 0 || index >= this.hashes.length)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.hashes.length);
+    return new MappedLineToken(this, index);
+  }
+
+  @Override
+  public int size() {
+    return this.hashes.length;
+  }
+
+  /**
+   * @return The charset used to decode the lines.
+   */
+  public Charset getCharset() {
+    return this.charset;
+  }
+
+  long hash(int index) {
+    return this.hashes[index];
+  }
+
+  long start(int index) {
+    return this.starts[index];
+  }
+
+  /**
+   * Returns the offset of the end of the line excluding the line terminator.
+   */
+  long end(int index) {
+    long start = this.starts[index];
+    long end = this.starts[index + 1];
+    if (end > start && byteAt(end - 1) == '\n') end--;
+    if (end > start && byteAt(end - 1) == '\r') end--;
+    return end;
+  }
+
+  byte byteAt(long offset) {
+    return this.segments[(int) (offset >>> SEGMENT_SHIFT)].get((int) (offset & SEGMENT_MASK));
+  }
+
+  /**
+   * Decodes the specified line.
+   */
+  String decode(int index) {
+    long start = start(index);
+    int length = (int) (end(index) - start);
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = byteAt(start + i);
+    }
+    return new String(bytes, this.charset);
+  }
+
+  /**
+   * Indicates whether the bytes of a line in this list and a line in another list are the same.
+   */
+  boolean sameBytes(int index, MappedLines other, int otherIndex) {
+    long start = start(index);
+    long end = end(index);
+    long otherStart = other.start(otherIndex);
+    if (end - start != other.end(otherIndex) - otherStart) return false;
+    for (long i = start, j = otherStart; i < end; i++, j++) {
+      if (byteAt(i) != other.byteAt(j)) return false;
+    }
+    return true;
+  }
+
+}
@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.load;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.api.LoadingException;
 import org.pageseeder.diffx.config.DiffConfig;
 import org.pageseeder.diffx.load.text.TextTokenizer;
@@ -33,6 +34,10 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Loads the SAX events in an {@link Sequence}.
@@ -41,6 +46,10 @@ import java.util.List;
  * By default, this class will try to use the Crimson parser
  * <code>org.apache.crimson.parser.XMLReaderImpl</code>.
  *
+ * <p>When an executor is specified using {@link #setTextExecutor(Executor, int)}, large text nodes
+ * are tokenized by the executor while the parser continues and the tokens are inserted in order
+ * once the document has been parsed.
+ *
  * <p>The XML reader implementation must support the following features settings
  * <pre>
  *   http://xml.org/sax/features/validation         => false
@@ -77,6 +86,21 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
    */
   private static String readerClassName = DEFAULT_XML_READER;
 
+  /**
+   * The default minimum number of characters of the text nodes tokenized by the executor.
+   */
+  public static final int DEFAULT_TEXT_THRESHOLD = 2048;
+
+  /**
+   * The executor to tokenize large text nodes (may be <code>null</code>).
+   */
+  private @Nullable Executor textExecutor;
+
+  /**
+   * The minimum number of characters of the text nodes tokenized by the executor.
+   */
+  private int textThreshold = DEFAULT_TEXT_THRESHOLD;
+
   /**
    * Runs the loader on the specified input source.
    *
@@ -89,7 +113,7 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
   @Override
   public Sequence load(InputSource is) throws LoadingException, IOException {
     XMLReader reader = newReader(this.config);
-    Handler handler = new Handler(this.config);
+    Handler handler = new Handler(this.config, this.pool, this.textExecutor, this.textThreshold);
     reader.setContentHandler(handler);
     reader.setErrorHandler(handler);
 
@@ -104,7 +128,22 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
     } catch (SAXException ex) {
       throw new LoadingException(ex);
     }
-    return handler.sequence;
+    return handler.getSequence();
+  }
+
+  /**
+   * Sets the executor used to tokenize large text nodes while the document is parsed.
+   *
+   * <p>Since the tokenizers are not thread-safe, each text node submitted to the executor is
+   * tokenized by a new tokenizer; using a {@link #setTokenPool(TokenPool) token pool} ensures that
+   * the tokens are still shared.
+   *
+   * @param executor  The executor to use or <code>null</code> to tokenize text as it is parsed (default)
+   * @param threshold The minimum number of characters of the text nodes tokenized by the executor
+   */
+  public void setTextExecutor(@Nullable Executor executor, int threshold) {
+    this.textExecutor = executor;
+    this.textThreshold = threshold;
   }
 
   /**
@@ -202,13 +241,51 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
      */
     private final TextTokenizer tokenizer;
 
-    Handler(DiffConfig config) {
-      this.tokenFactory = new XMLTokenFactory(config.isNamespaceAware());
-      this.tokenizer = TokenizerFactory.get(config);
+    private final DiffConfig config;
+
+    private final @Nullable TokenPool pool;
+
+    /**
+     * The executor to tokenize large text nodes (may be <code>null</code>).
+     */
+    private final @Nullable Executor executor;
+
+    private final int threshold;
+
+    /**
+     * The text nodes tokenized by the executor in document order.
+     */
+    private final List<PendingText> pending = new ArrayList<>();
+
+    Handler(DiffConfig config, @Nullable TokenPool pool, @Nullable Executor executor, int threshold) {
+      this.tokenFactory = new XMLTokenFactory(config.isNamespaceAware(), pool);
+      this.tokenizer = TokenizerFactory.get(config, pool);
+      this.config = config;
+      this.pool = pool;
+      this.executor = executor;
+      this.threshold = threshold;
     }
 
-    public Sequence getSequence() {
-      return this.sequence;
+    /**
+     * Returns the sequence including the tokens of the text nodes tokenized by the executor.
+     *
+     * @return the sequence of tokens for the document.
+     * @throws LoadingException If interrupted while waiting for the text to be tokenized.
+     */
+    public Sequence getSequence() throws LoadingException {
+      if (this.pending.isEmpty()) return this.sequence;
+      List<XMLToken> tokens = this.sequence.tokens();
+      Sequence assembled = new Sequence(this.sequence.getNamespaces());
+      int from = 0;
+      for (PendingText text : this.pending) {
+        assembled.addTokens(tokens.subList(from, text.index));
+        assembled.addTokens(text.get());
+        from = text.index;
+      }
+      assembled.addTokens(tokens.subList(from, tokens.size()));
+      this.pending.clear();
+      this.sequence = assembled;
+      return assembled;
     }
 
     @Override
@@ -268,7 +345,16 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
      * Records the characters which are in the buffer.
      */
     private void recordCharacters() {
-      if (this.ch.length() > 0) {
+      if (this.executor != null && this.ch.length() >= this.threshold) {
+        PendingText text = new PendingText(this.sequence.size(), this.ch.toString(), TokenizerFactory.get(this.config, this.pool));
+        this.pending.add(text);
+        try {
+          this.executor.execute(text.task);
+        } catch (RejectedExecutionException ex) {
+          // Will be tokenized when the sequence is assembled
+        }
+        this.ch.setLength(0);
+      } else if (this.ch.length() > 0) {
         List<TextToken> tokens = this.tokenizer.tokenize(this.ch);
         for (TextToken token : tokens) {
           this.sequence.addToken(token);
@@ -362,4 +448,35 @@ public final class SAXLoader extends XMLLoaderBase implements XMLLoader {
     }
   }
 
+  /**
+   * A text node tokenized by the executor and the position of its tokens in the sequence.
+   */
+  private static final class PendingText {
+
+    private final int index;
+
+    private final FutureTask<List<TextToken>> task;
+
+    PendingText(int index, String text, TextTokenizer tokenizer) {
+      this.index = index;
+      this.task = new FutureTask<>(() -> tokenizer.tokenize(text));
+    }
+
+    List<TextToken> get() throws LoadingException {
+      // Tokenize on the current thread if the executor has not started yet
+      this.task.run();
+      try {
+        return this.task.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new LoadingException(ex);
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        if (cause instanceof Error) throw (Error) cause;
+        throw new LoadingException(ex);
+      }
+    }
+  }
+
 }
@@ -87,9 +87,9 @@ public final class XMLEventLoader extends XMLLoaderBase implements XMLLoader {
    * @throws LoadingException Wraps any parsing {@link XMLStreamException}
    */
   public Sequence load(XMLEventReader reader) throws LoadingException {
-    XMLTokenFactory tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware());
+    XMLTokenFactory tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware(), this.pool);
     AttributeComparator comparator = new AttributeComparator();
-    TextTokenizer tokenizer = TokenizerFactory.get(this.config);
+    TextTokenizer tokenizer = TokenizerFactory.get(this.config, this.pool);
     List<StartElementToken> startElements = new ArrayList<>();
     Sequence sequence = new Sequence();
     sequence.addNamespace(XMLConstants.XML_NS_URI, XMLConstants.XML_NS_PREFIX);
@@ -100,7 +100,7 @@ public final class XMLEventLoader extends XMLLoaderBase implements XMLLoader {
         if (event.isStartElement()) {
           processNamespaces(event.asStartElement(), sequence);
           processStartElement(event.asStartElement(), sequence, tokenFactory, startElements);
-          processAttributes(event.asStartElement(), sequence, this.config.isNamespaceAware(), comparator);
+          processAttributes(event.asStartElement(), sequence, tokenFactory, this.config.isNamespaceAware(), comparator);
         } else if (event.isEndElement()) {
           processEndElement(event.asEndElement(), sequence, tokenFactory, startElements);
         } else if (event.isCharacters()) {
@@ -130,13 +130,13 @@ public final class XMLEventLoader extends XMLLoaderBase implements XMLLoader {
     startElements.add(startElement);
   }
 
-  private static void processAttributes(StartElement event, Sequence sequence, boolean namespaceAware, AttributeComparator comparator) {
+  private static void processAttributes(StartElement event, Sequence sequence, XMLTokenFactory factory, boolean namespaceAware, AttributeComparator comparator) {
     // `getAttributes` must return `Attribute` instances by contract
     List<AttributeToken> attributes = null;
     for (Iterator<?> it = event.getAttributes(); it.hasNext(); ) {
       Attribute attribute = (Attribute) it.next();
       if (attributes == null) attributes = new ArrayList<>();
-      attributes.add(toAttribute(attribute, namespaceAware));
+      attributes.add(toAttribute(attribute, factory, namespaceAware));
     }
     if (attributes != null) {
       if (attributes.size() > 1) {
@@ -178,13 +178,13 @@ public final class XMLEventLoader extends XMLLoaderBase implements XMLLoader {
     }
   }
 
-  private static AttributeToken toAttribute(Attribute attribute, boolean namespaceAware) {
+  private static AttributeToken toAttribute(Attribute attribute, XMLTokenFactory factory, boolean namespaceAware) {
     QName name = attribute.getName();
     if (namespaceAware)
-      return new XMLAttribute(name.getNamespaceURI(), name.getLocalPart(), attribute.getValue());
+      return factory.newAttribute(name.getNamespaceURI(), name.getLocalPart(), attribute.getValue());
     if (name.getPrefix().isEmpty())
-      return new XMLAttribute(name.getLocalPart(), attribute.getValue());
-    return new XMLAttribute(name.getPrefix() + ":" + name.getLocalPart(), attribute.getValue());
+      return factory.newAttribute(name.getLocalPart(), attribute.getValue());
+    return factory.newAttribute(name.getPrefix() + ":" + name.getLocalPart(), attribute.getValue());
   }
 
   private static XMLEventReader toXMLEventReader(XMLInputFactory factory, InputSource source)
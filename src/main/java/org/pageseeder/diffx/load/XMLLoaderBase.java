@@ -15,7 +15,9 @@
  */
 package org.pageseeder.diffx.load;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.token.TokenPool;
 
 /**
  * Base class for XML loaders.
@@ -30,6 +32,11 @@ abstract class XMLLoaderBase implements XMLLoader {
    */
   protected DiffConfig config = DiffConfig.legacyDefault();
 
+  /**
+   * The pool to intern the tokens (may be <code>null</code>)
+   */
+  protected @Nullable TokenPool pool;
+
   /**
    * Returns the configuration used by this loader.
    *
@@ -48,4 +55,25 @@ abstract class XMLLoaderBase implements XMLLoader {
     this.config = config;
   }
 
+  /**
+   * Returns the pool used to intern the tokens created by this loader.
+   *
+   * @return the pool used by this loader or <code>null</code>.
+   */
+  public @Nullable TokenPool getTokenPool() {
+    return this.pool;
+  }
+
+  /**
+   * Sets the pool used to intern the tokens created by this loader.
+   *
+   * <p>Using the same pool to load the documents to compare means that equal tokens are the same
+   * instance, which speeds up the comparison and reduces memory usage.
+   *
+   * @param pool The pool to use or <code>null</code> to not intern tokens (default)
+   */
+  public void setTokenPool(@Nullable TokenPool pool) {
+    this.pool = pool;
+  }
+
 }
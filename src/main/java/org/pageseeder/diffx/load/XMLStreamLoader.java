@@ -21,7 +21,6 @@ import org.pageseeder.diffx.load.text.TextTokenizer;
 import org.pageseeder.diffx.load.text.TokenizerFactory;
 import org.pageseeder.diffx.token.*;
 import org.pageseeder.diffx.token.impl.SpaceToken;
-import org.pageseeder.diffx.token.impl.XMLAttribute;
 import org.pageseeder.diffx.token.impl.XMLComment;
 import org.pageseeder.diffx.token.impl.XMLProcessingInstruction;
 import org.pageseeder.diffx.xml.Sequence;
@@ -117,8 +116,8 @@ public final class XMLStreamLoader extends XMLLoaderBase implements XMLLoader {
   }
 
   public Sequence load(XMLStreamReader reader) throws LoadingException {
-    XMLTokenFactory tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware());
-    TextTokenizer tokenizer = TokenizerFactory.get(this.config);
+    XMLTokenFactory tokenFactory = new XMLTokenFactory(this.config.isNamespaceAware(), this.pool);
+    TextTokenizer tokenizer = TokenizerFactory.get(this.config, this.pool);
     List<StartElementToken> startElements = new ArrayList<>();
     Sequence sequence = new Sequence();
     sequence.addNamespace(XMLConstants.XML_NS_URI, XMLConstants.XML_NS_PREFIX);
@@ -126,17 +125,7 @@ public final class XMLStreamLoader extends XMLLoaderBase implements XMLLoader {
     try {
       while (reader.hasNext()) {
         reader.next();
-        if (reader.isStartElement()) {
-          processNamespaces(reader, sequence);
-          processStartElement(reader, sequence, tokenFactory, startElements);
-          processAttributes(reader, sequence, this.config.isNamespaceAware());
-        } else if (reader.isEndElement()) {
-          processEndElement(reader, sequence, tokenFactory, startElements);
-        } else if (reader.isCharacters()) {
-          processText(reader, sequence, tokenizer);
-        } else {
-          processOther(reader, sequence);
-        }
+        process(reader, sequence, tokenFactory, tokenizer, startElements, this.config.isNamespaceAware());
       }
     } catch (XMLStreamException ex) {
       throw new LoadingException(ex);
@@ -144,6 +133,38 @@ public final class XMLStreamLoader extends XMLLoaderBase implements XMLLoader {
     return sequence;
   }
 
+  /**
+   * Returns a stream of the tokens read on demand from the specified reader.
+   *
+   * <p>Unlike the <code>load</code> methods, the tokens are not kept in memory, so that very large
+   * documents can be processed with bounded memory.</p>
+   *
+   * @param reader The XML stream reader to read the tokens from
+   *
+   * @return The stream of tokens.
+   */
+  public XMLTokenStream stream(XMLStreamReader reader) {
+    return new XMLTokenStream(reader, this.config, this.pool);
+  }
+
+  /**
+   * Add the tokens for the current event of the reader to the sequence.
+   */
+  static void process(XMLStreamReader reader, Sequence sequence, XMLTokenFactory tokenFactory, TextTokenizer tokenizer,
+                      List<StartElementToken> startElements, boolean namespaceAware) {
+    if (reader.isStartElement()) {
+      processNamespaces(reader, sequence);
+      processStartElement(reader, sequence, tokenFactory, startElements);
+      processAttributes(reader, sequence, tokenFactory, namespaceAware);
+    } else if (reader.isEndElement()) {
+      processEndElement(reader, sequence, tokenFactory, startElements);
+    } else if (reader.isCharacters()) {
+      processText(reader, sequence, tokenizer);
+    } else {
+      processOther(reader, sequence);
+    }
+  }
+
   static XMLInputFactory toFactory(DiffConfig config) {
     XMLInputFactory factory = XMLInputFactory.newInstance();
     factory.setProperty(XMLInputFactory.IS_COALESCING, true);
@@ -178,14 +199,14 @@ public final class XMLStreamLoader extends XMLLoaderBase implements XMLLoader {
     }
   }
 
-  private static void processAttributes(XMLStreamReader stream, Sequence sequence, boolean namespaceAware) {
+  private static void processAttributes(XMLStreamReader stream, Sequence sequence, XMLTokenFactory factory, boolean namespaceAware) {
     assert stream.isStartElement();
     // Add attributes immediately after
     int attributeCount = stream.getAttributeCount();
     if (attributeCount > 0) {
       AttributeToken[] attributes = new AttributeToken[attributeCount];
       for (int i = 0; i < attributeCount; i++) {
-        attributes[i] = toAttribute(stream, i, namespaceAware);
+        attributes[i] = toAttribute(stream, i, factory, namespaceAware);
       }
       Arrays.sort(attributes, new AttributeComparator());
       for (AttributeToken token : attributes) {
@@ -223,19 +244,19 @@ public final class XMLStreamLoader extends XMLLoaderBase implements XMLLoader {
     }
   }
 
-  private static AttributeToken toAttribute(XMLStreamReader stream, int i, boolean namespaceAware) {
+  private static AttributeToken toAttribute(XMLStreamReader stream, int i, XMLTokenFactory factory, boolean namespaceAware) {
     String localName = stream.getAttributeLocalName(i);
     String value = stream.getAttributeValue(i);
     if (namespaceAware) {
       String namespaceURI = stream.getAttributeNamespace(i);
       if (namespaceURI == null) namespaceURI = XMLConstants.NULL_NS_URI;
-      return new XMLAttribute(namespaceURI, localName, value);
+      return factory.newAttribute(namespaceURI, localName, value);
     }
     String prefix = stream.getAttributePrefix(i);
     if (prefix.isEmpty()) {
-      return new XMLAttribute(localName, value);
+      return factory.newAttribute(localName, value);
     }
-    return new XMLAttribute(prefix + ":" + localName, value);
+    return factory.newAttribute(prefix + ":" + localName, value);
   }
 
   private static XMLStreamReader toXMLStreamReader(XMLInputFactory factory, InputSource source)
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.jetbrains.annotations.Nullable;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.load.text.TextTokenizer;
+import org.pageseeder.diffx.load.text.TokenizerFactory;
+import org.pageseeder.diffx.token.StartElementToken;
+import org.pageseeder.diffx.token.TokenPool;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.XMLTokenFactory;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A stream of XML tokens read on demand from an {@link XMLStreamReader}.
+ *
+ * <p>The tokens are the same as the ones loaded by the {@link XMLStreamLoader}, but only the tokens
+ * of the current event of the reader are kept in memory.</p>
+ *
+ * <p>The namespaces are collected as the elements are read, so they are only complete once the
+ * end of the stream has been reached.</p>
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ * @see XMLStreamLoader#stream(XMLStreamReader)
+ */
+public final class XMLTokenStream {
+
+  private final XMLStreamReader reader;
+
+  private final XMLTokenFactory tokenFactory;
+
+  private final TextTokenizer tokenizer;
+
+  private final boolean isNamespaceAware;
+
+  private final List<StartElementToken> startElements = new ArrayList<>();
+
+  /**
+   * The tokens of the current event and the namespaces found so far.
+   */
+  private final Sequence buffer = new Sequence();
+
+  /**
+   * The index of the next token in the buffer.
+   */
+  private int index = 0;
+
+  XMLTokenStream(XMLStreamReader reader, DiffConfig config, @Nullable TokenPool pool) {
+    this.reader = reader;
+    this.tokenFactory = new XMLTokenFactory(config.isNamespaceAware(), pool);
+    this.tokenizer = TokenizerFactory.get(config, pool);
+    this.isNamespaceAware = config.isNamespaceAware();
+    this.buffer.addNamespace(XMLConstants.XML_NS_URI, XMLConstants.XML_NS_PREFIX);
+    this.buffer.addNamespace(XMLConstants.NULL_NS_URI, XMLConstants.DEFAULT_NS_PREFIX);
+  }
+
+  /**
+   * Returns the next token in the stream.
+   *
+   * @return the next token or <code>null</code> if the end of the stream has been reached.
+   *
+   * @throws LoadingException If thrown while parsing.
+   */
+  public XMLToken next() throws LoadingException {
+    try {
+      while (this.index == this.buffer.size()) {
+        this.buffer.tokens().clear();
+        this.index = 0;
+        if (!this.reader.hasNext()) return null;
+        this.reader.next();
+        XMLStreamLoader.process(this.reader, this.buffer, this.tokenFactory, this.tokenizer, this.startElements, this.isNamespaceAware);
+      }
+    } catch (XMLStreamException ex) {
+      throw new LoadingException(ex);
+    }
+    return this.buffer.getToken(this.index++);
+  }
+
+  /**
+   * @return the namespaces found so far.
+   */
+  public NamespaceSet getNamespaces() {
+    return this.buffer.getNamespaces();
+  }
+
+}
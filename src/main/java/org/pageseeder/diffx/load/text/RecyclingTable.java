@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load.text;
+
+import org.jetbrains.annotations.Nullable;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
+
+/**
+ * A table of text tokens which can be looked up using a range of characters in a sequence so that
+ * tokens can be recycled without creating a string for each occurrence.
+ *
+ * <p>The hash of the range must be computed like {@link String#hashCode()} which the scanners do as
+ * they read the characters, a string is only created when the token is not in the table yet.
+ *
+ * <p>When a {@link TokenPool} is specified, tokens are interned as they are added to the table so
+ * that the pool is only looked up once for each distinct token.
+ *
+ * <p>The table uses open addressing and does not allow tokens with the same characters.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+final class RecyclingTable {
+
+  /**
+   * The pool to intern tokens (may be <code>null</code>).
+   */
+  private final @Nullable TokenPool pool;
+
+  /**
+   * The tokens in the table.
+   */
+  private TextToken[] tokens = new TextToken[64];
+
+  /**
+   * The hash of the characters of the corresponding token.
+   */
+  private int[] hashes = new int[64];
+
+  /**
+   * Number of tokens in the table.
+   */
+  private int size = 0;
+
+  /**
+   * @param pool The pool to intern the tokens added to this table (may be <code>null</code>)
+   */
+  RecyclingTable(@Nullable TokenPool pool) {
+    this.pool = pool;
+  }
+
+  /**
+   * Returns the token with the same characters as the specified range.
+   *
+   * @param text  The characters
+   * @param start The start index of the range (inclusive)
+   * @param end   The end index of the range (exclusive)
+   * @param hash  The hash of the characters in the range as computed by <code>String#hashCode</code>
+   *
+   * @return the corresponding token or <code>null</code> if the table does not contain it.
+   */
+  TextToken get(CharSequence text, int start, int end, int hash) {
+    int mask = this.tokens.length - 1;
+    int i = spread(hash) & mask;
+    TextToken token;
+    while ((token = this.tokens[i]) != null) {
+      if (this.hashes[i] == hash && matches(token.getCharacters(), text, start, end)) return token;
+      i = (i + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * Add a token to the table.
+   *
+   * @param token The token to add, which must not be in the table already
+   * @param hash  The hash of the characters of the token as computed by <code>String#hashCode</code>
+   *
+   * @return the token added to the table, which is the canonical instance if a pool is used.
+   */
+  TextToken put(TextToken token, int hash) {
+    if (this.pool != null) token = this.pool.intern(token);
+    int mask = this.tokens.length - 1;
+    int i = spread(hash) & mask;
+    while (this.tokens[i] != null) i = (i + 1) & mask;
+    this.tokens[i] = token;
+    this.hashes[i] = hash;
+    if (++this.size > this.tokens.length / 2) resize();
+    return token;
+  }
+
+  /**
+   * @return the number of tokens in the table.
+   */
+  int size() {
+    return this.size;
+  }
+
+  private void resize() {
+    TextToken[] oldTokens = this.tokens;
+    int[] oldHashes = this.hashes;
+    this.tokens = new TextToken[oldTokens.length << 1];
+    this.hashes = new int[oldTokens.length << 1];
+    int mask = this.tokens.length - 1;
+    for (int j = 0; j < oldTokens.length; j++) {
+      if (oldTokens[j] != null) {
+        int i = spread(oldHashes[j]) & mask;
+        while (this.tokens[i] != null) i = (i + 1) & mask;
+        this.tokens[i] = oldTokens[j];
+        this.hashes[i] = oldHashes[j];
+      }
+    }
+  }
+
+  private static boolean matches(String characters, CharSequence text, int start, int end) {
+    if (characters.length() != end - start) return false;
+    for (int i = start; i < end; i++) {
+      if (characters.charAt(i - start) != text.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /**
+   * Spread the higher bits of the hash to the lower bits.
+   */
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
@@ -15,7 +15,9 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.impl.CharactersToken;
 import org.pageseeder.diffx.token.impl.SpaceToken;
 
@@ -34,6 +36,27 @@ import java.util.List;
  */
 public final class TokenizerByChar implements TextTokenizer {
 
+  /**
+   * Map characters to tokens in order to recycle tokens as they are created.
+   */
+  private final RecyclingTable recycling;
+
+  /**
+   * Creates a new tokenizer.
+   */
+  public TokenizerByChar() {
+    this(null);
+  }
+
+  /**
+   * Creates a new tokenizer interning the tokens it creates.
+   *
+   * @param pool the pool to intern the tokens (may be <code>null</code>)
+   */
+  public TokenizerByChar(@Nullable TokenPool pool) {
+    this.recycling = new RecyclingTable(pool);
+  }
+
   @Override
   public List<TextToken> tokenize(CharSequence text) {
     if (text == null) throw new NullPointerException("Character sequence is null");
@@ -46,7 +69,11 @@ public final class TokenizerByChar implements TextTokenizer {
       if (Character.isWhitespace(c)) {
         token = SpaceToken.getInstance(c);
       } else {
-        token = new CharactersToken(Character.toString(c));
+        token = this.recycling.get(text, i, i + 1, c);
+        if (token == null) {
+          token = new CharactersToken(Character.toString(c));
+          token = this.recycling.put(token, c);
+        }
       }
       tokens.add(token);
     }
@@ -15,16 +15,16 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.WhiteSpaceProcessing;
 import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.impl.CharactersToken;
 import org.pageseeder.diffx.token.impl.IgnorableSpaceToken;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Tokenizer returning text between punctuation marks.
@@ -46,6 +46,11 @@ public final class TokenizerByPunctuation implements TextTokenizer {
    */
   private final WhiteSpaceProcessing whitespace;
 
+  /**
+   * Map characters to tokens in order to recycle tokens as they are created.
+   */
+  private final RecyclingTable recycling;
+
   /**
    * Creates a new tokenizer.
    *
@@ -54,8 +59,21 @@ public final class TokenizerByPunctuation implements TextTokenizer {
    * @throws NullPointerException if the white space processing is not specified.
    */
   public TokenizerByPunctuation(WhiteSpaceProcessing whitespace) {
+    this(whitespace, null);
+  }
+
+  /**
+   * Creates a new tokenizer interning the tokens it creates.
+   *
+   * @param whitespace the whitespace processing for this tokenizer.
+   * @param pool       the pool to intern the tokens (may be <code>null</code>)
+   *
+   * @throws NullPointerException if the white space processing is not specified.
+   */
+  public TokenizerByPunctuation(WhiteSpaceProcessing whitespace, @Nullable TokenPool pool) {
     if (whitespace == null) throw new NullPointerException("the white space processing must be specified.");
     this.whitespace = whitespace;
+    this.recycling = new RecyclingTable(pool);
   }
 
   @Override
@@ -63,33 +81,54 @@ public final class TokenizerByPunctuation implements TextTokenizer {
     if (text == null) throw new NullPointerException("Character sequence is null");
     if (text.length() == 0) return Collections.emptyList();
     List<TextToken> tokens = new ArrayList<>(text.length());
-
-    Pattern p = Pattern.compile("[.,?!;]+");
-    Matcher m = p.matcher(text);
+    int length = text.length();
     int index = 0;
+    int hash = 0;
+    boolean punctuation = false;
 
-    while (m.find()) {
-      if (index < m.end()) {
-        CharSequence chunk = text.subSequence(index, m.end());
+    // Each chunk ends with the last of consecutive punctuation marks
+    for (int i = 0; i < length; i++) {
+      char c = text.charAt(i);
+      if (PUNCTUATION_MARKS.indexOf(c) >= 0) {
+        punctuation = true;
+      } else if (punctuation) {
         // Cannot be space as it necessarily contains a punctuation character
-        tokens.add(new CharactersToken(chunk));
+        tokens.add(getCharactersToken(text, index, i, hash));
+        index = i;
+        hash = 0;
+        punctuation = false;
       }
-      index = m.end();
+      hash = 31 * hash + c;
     }
 
-    if (index != text.length()) {
-      CharSequence chunk = text.subSequence(index, text.length());
-      TextToken token = toToken(chunk, this.whitespace);
-      if (token != null)
+    if (punctuation) {
+      tokens.add(getCharactersToken(text, index, length, hash));
+    } else if (index != length) {
+      TextToken token = this.recycling.get(text, index, length, hash);
+      if (token == null) {
+        token = this.recycling.put(toToken(text.subSequence(index, length)), hash);
+      }
+      if (!(token instanceof IgnorableSpaceToken) || this.whitespace != WhiteSpaceProcessing.IGNORE)
         tokens.add(token);
     }
 
     return tokens;
   }
 
-  private static TextToken toToken(CharSequence text, WhiteSpaceProcessing whitespace) {
-    if (Tokenizers.isWhitespace(text))
-      return whitespace == WhiteSpaceProcessing.IGNORE ? null : new IgnorableSpaceToken(text);
+  /**
+   * Returns the characters token corresponding to the specified chunk of text.
+   */
+  private TextToken getCharactersToken(CharSequence text, int start, int end, int hash) {
+    TextToken token = this.recycling.get(text, start, end, hash);
+    if (token == null) {
+      token = new CharactersToken(text.subSequence(start, end));
+      token = this.recycling.put(token, hash);
+    }
+    return token;
+  }
+
+  private static TextToken toToken(CharSequence text) {
+    if (Tokenizers.isWhitespace(text)) return new IgnorableSpaceToken(text);
     return new CharactersToken(text);
   }
 
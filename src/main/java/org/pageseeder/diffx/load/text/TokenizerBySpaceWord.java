@@ -15,15 +15,17 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.WhiteSpaceProcessing;
 import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.impl.IgnorableSpaceToken;
 import org.pageseeder.diffx.token.impl.SpaceToken;
 import org.pageseeder.diffx.token.impl.WordToken;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The tokenizer for characters tokens.
@@ -39,13 +41,18 @@ public final class TokenizerBySpaceWord implements TextTokenizer {
   /**
    * Map characters to tokens in order to recycle tokens as they are created.
    */
-  private final Map<String, TextToken> recycling = new HashMap<>();
+  private final RecyclingTable recycling;
 
   /**
    * Define the whitespace processing.
    */
   private final WhiteSpaceProcessing whitespace;
 
+  /**
+   * The hash of the characters of the last match.
+   */
+  private int hash;
+
   /**
    * Creates a new tokenizer.
    *
@@ -54,36 +61,60 @@ public final class TokenizerBySpaceWord implements TextTokenizer {
    * @throws NullPointerException if the white space processing is not specified.
    */
   public TokenizerBySpaceWord(WhiteSpaceProcessing whitespace) {
+    this(whitespace, null);
+  }
+
+  /**
+   * Creates a new tokenizer interning the tokens it creates.
+   *
+   * @param whitespace the whitespace processing for this tokenizer.
+   * @param pool       the pool to intern the tokens (may be <code>null</code>)
+   *
+   * @throws NullPointerException if the white space processing is not specified.
+   */
+  public TokenizerBySpaceWord(WhiteSpaceProcessing whitespace, @Nullable TokenPool pool) {
     if (whitespace == null) throw new NullPointerException("the white space processing must be specified.");
     this.whitespace = whitespace;
+    this.recycling = new RecyclingTable(pool);
   }
 
+  /**
+   * {@inheritDoc}
+   *
+   * <p>The text is scanned by hand to produce the same tokens as the regular expression:
+   * <pre>( ?[\p{L}\p{M}0-9_'@/$.-]*[\p{L}\p{M}0-9_%])|(\S)|( ?["(][^ \t\r\n\f'"()]+[")])</pre>
+   */
   @Override
   public List<TextToken> tokenize(CharSequence seq) {
     if (seq == null) throw new NullPointerException("Character sequence is null");
     if (seq.length() == 0) return Collections.emptyList();
     // We assume that on average we generate 1 token per 4 chars
     List<TextToken> tokens = new ArrayList<>(seq.length() / 4);
-    Pattern p = Pattern.compile("( ?[\\p{L}\\p{M}0-9_'@/$.-]*[\\p{L}\\p{M}0-9_%])|(\\S)|( ?[\"(][^ \\t\\r\\n\\f'\"()]+[\")])");
-    Matcher m = p.matcher(seq);
+    int length = seq.length();
     int index = 0;
+    int spaceHash = 0;
+    int i = 0;
 
-    // Add segments before each match found
-    while (m.find()) {
-      if (index != m.start() && whitespace != WhiteSpaceProcessing.IGNORE) {
-        String space = seq.subSequence(index, m.start()).toString();
-        tokens.add(getSpaceEvent(space));
+    while (i < length) {
+      int end = match(seq, i);
+      if (end < 0) {
+        // Only white space cannot be matched
+        spaceHash = 31 * spaceHash + seq.charAt(i++);
+        continue;
       }
       // We don't even need to record a white space if they are ignored!
-      String word = seq.subSequence(m.start(), m.end()).toString();
-      tokens.add(getWordEvent(word));
-      index = m.end();
+      if (index != i && this.whitespace != WhiteSpaceProcessing.IGNORE) {
+        tokens.add(getSpaceEvent(seq, index, i, spaceHash));
+      }
+      tokens.add(getWordEvent(seq, i, end, this.hash));
+      index = end;
+      i = end;
+      spaceHash = 0;
     }
 
-    // Add remaining word if any
-    if (index != seq.length()) {
-      String space = seq.subSequence(index, seq.length()).toString();
-      tokens.add(getSpaceEvent(space));
+    // Add remaining space if any
+    if (index != length) {
+      tokens.add(getSpaceEvent(seq, index, length, spaceHash));
     }
 
     return tokens;
@@ -94,18 +125,103 @@ public final class TokenizerBySpaceWord implements TextTokenizer {
     return tokenizer.tokenize(seq);
   }
 
+  /**
+   * Match a token at the specified position and compute its hash.
+   *
+   * @param seq   the text being tokenized
+   * @param start the index of the first character
+   *
+   * @return the end index of the token or -1 if no token starts at that position.
+   */
+  private int match(CharSequence seq, int start) {
+    int length = seq.length();
+    char c = seq.charAt(start);
+    // A word optionally preceded by a space
+    if (c == ' ' && start + 1 < length) {
+      int end = matchWord(seq, start + 1, ' ');
+      if (end > 0) return end;
+    }
+    int end = matchWord(seq, start, (char) 0);
+    if (end > 0) return end;
+    // Any other non-space character
+    if (!Tokenizers.isSpace(c)) {
+      int cp = Character.codePointAt(seq, start);
+      end = start + Character.charCount(cp);
+      this.hash = end - start == 1 ? c : 31 * c + seq.charAt(start + 1);
+      return end;
+    }
+    // Text in quotes or parentheses preceded by a space (only reachable with a space)
+    if (c == ' ' && start + 2 < length) {
+      char open = seq.charAt(start + 1);
+      if (open == '"' || open == '(') {
+        int h = 31 * c + open;
+        int i = start + 2;
+        for (; i < length && !isQuoteBoundary(c = seq.charAt(i)); i++) {
+          h = 31 * h + c;
+        }
+        if (i > start + 2 && i < length && (c == '"' || c == ')')) {
+          this.hash = 31 * h + c;
+          return i + 1;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Match a word, that is a sequence of letters, marks, digits and the characters <code>_'@/$.-</code>
+   * ending with a letter, mark, digit, <code>_</code> or <code>%</code>.
+   *
+   * @param seq    the text being tokenized
+   * @param start  the index of the first character
+   * @param prefix the character preceding the word or 0 if none
+   *
+   * @return the end index of the word or -1 if no word starts at that position.
+   */
+  private int matchWord(CharSequence seq, int start, char prefix) {
+    int length = seq.length();
+    int h = prefix;
+    int end = -1;
+    int i = start;
+    while (i < length) {
+      int cp = Character.codePointAt(seq, i);
+      if (Tokenizers.isWordCharacter(cp)) {
+        for (int n = Character.charCount(cp); n > 0; n--) h = 31 * h + seq.charAt(i++);
+        end = i;
+        this.hash = h;
+      } else if (cp == '\'' || cp == '@' || cp == '/' || cp == '$' || cp == '.' || cp == '-') {
+        h = 31 * h + cp;
+        i++;
+      } else {
+        if (cp == '%') {
+          end = i + 1;
+          this.hash = 31 * h + cp;
+        }
+        break;
+      }
+    }
+    return end;
+  }
+
+  private static boolean isQuoteBoundary(char c) {
+    return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f' || c == '\'' || c == '"' || c == '(' || c == ')';
+  }
+
   /**
    * Returns the word token corresponding to the specified characters.
    *
-   * @param word the characters of the word
+   * @param seq   the text being tokenized
+   * @param start the start index of the word
+   * @param end   the end index of the word
+   * @param hash  the hash of the characters of the word
    *
    * @return the corresponding word token
    */
-  private TextToken getWordEvent(String word) {
-    TextToken token = this.recycling.get(word);
+  private TextToken getWordEvent(CharSequence seq, int start, int end, int hash) {
+    TextToken token = this.recycling.get(seq, start, end, hash);
     if (token == null) {
-      token = new WordToken(word);
-      this.recycling.put(word, token);
+      token = new WordToken(seq.subSequence(start, end).toString());
+      token = this.recycling.put(token, hash);
     }
     return token;
   }
@@ -113,20 +229,24 @@ public final class TokenizerBySpaceWord implements TextTokenizer {
   /**
    * Returns the space token corresponding to the specified characters.
    *
-   * @param space the characters of the space
+   * @param seq   the text being tokenized
+   * @param start the start index of the space
+   * @param end   the end index of the space
+   * @param hash  the hash of the characters of the space
    *
    * @return the corresponding space token
    */
-  private TextToken getSpaceEvent(String space) {
+  private TextToken getSpaceEvent(CharSequence seq, int start, int end, int hash) {
     // preserve the actual white space used
-    TextToken token = this.recycling.get(space);
+    TextToken token = this.recycling.get(seq, start, end, hash);
     if (token == null) {
+      String space = seq.subSequence(start, end).toString();
       if (this.whitespace == WhiteSpaceProcessing.PRESERVE) {
         token = new IgnorableSpaceToken(space);
       } else {
         token = SpaceToken.getInstance(space);
       }
-      this.recycling.put(space, token);
+      token = this.recycling.put(token, hash);
     }
     return token;
   }
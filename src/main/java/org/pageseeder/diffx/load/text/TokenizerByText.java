@@ -15,8 +15,10 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.WhiteSpaceProcessing;
 import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.impl.CharactersToken;
 import org.pageseeder.diffx.token.impl.IgnorableSpaceToken;
 import org.pageseeder.diffx.token.impl.SpaceToken;
@@ -40,6 +42,11 @@ public final class TokenizerByText implements TextTokenizer {
    */
   private final WhiteSpaceProcessing whitespace;
 
+  /**
+   * The pool to intern tokens (may be <code>null</code>).
+   */
+  private final @Nullable TokenPool pool;
+
   /**
    * Creates a new tokenizer.
    *
@@ -48,8 +55,21 @@ public final class TokenizerByText implements TextTokenizer {
    * @throws NullPointerException if the white space processing is not specified.
    */
   public TokenizerByText(WhiteSpaceProcessing whitespace) {
+    this(whitespace, null);
+  }
+
+  /**
+   * Creates a new tokenizer interning the tokens it creates.
+   *
+   * @param whitespace the whitespace processing for this tokenizer.
+   * @param pool       the pool to intern the tokens (may be <code>null</code>)
+   *
+   * @throws NullPointerException if the white space processing is not specified.
+   */
+  public TokenizerByText(WhiteSpaceProcessing whitespace, @Nullable TokenPool pool) {
     if (whitespace == null) throw new NullPointerException("the white space processing must be specified.");
     this.whitespace = whitespace;
+    this.pool = pool;
   }
 
   @Override
@@ -60,21 +80,21 @@ public final class TokenizerByText implements TextTokenizer {
     int y = Tokenizers.getTrailingWhiteSpace(text);
     // no leading or trailing spaces return a singleton in all configurations
     if (x == 0 && y == 0) {
-      TextToken token = new CharactersToken(text);
+      TextToken token = intern(new CharactersToken(text));
       return Collections.singletonList(token);
     }
     // The text node is only white space (white space = leading space)
     if (x == text.length()) {
       switch (this.whitespace) {
         case COMPARE:
-          return Collections.singletonList(SpaceToken.getInstance(text.toString()));
+          return Collections.singletonList(intern(SpaceToken.getInstance(text.toString())));
         case PRESERVE:
-          return Collections.singletonList(new IgnorableSpaceToken(text.toString()));
+          return Collections.singletonList(intern(new IgnorableSpaceToken(text.toString())));
         case IGNORE:
           return Collections.emptyList();
         default:
       }
-      TextToken token = new CharactersToken(text);
+      TextToken token = intern(new CharactersToken(text));
       return Collections.singletonList(token);
     }
     // some trailing or leading whitespace, behaviour changes depending on whitespace processing
@@ -83,25 +103,25 @@ public final class TokenizerByText implements TextTokenizer {
       case COMPARE:
         tokens = new ArrayList<>(1 + (x > 0 ? 1 : 0) + (y > 0 ? 1 : 0));
         if (x > 0) {
-          tokens.add(SpaceToken.getInstance(text.subSequence(0, x)));
+          tokens.add(intern(SpaceToken.getInstance(text.subSequence(0, x))));
         }
-        tokens.add(new CharactersToken(text.subSequence(x, text.length() - y)));
+        tokens.add(intern(new CharactersToken(text.subSequence(x, text.length() - y))));
         if (y > 0) {
-          tokens.add(SpaceToken.getInstance(text.subSequence(text.length() - y, text.length())));
+          tokens.add(intern(SpaceToken.getInstance(text.subSequence(text.length() - y, text.length()))));
         }
         break;
       case PRESERVE:
         tokens = new ArrayList<>(1 + (x > 0 ? 1 : 0) + (y > 0 ? 1 : 0));
         if (x > 0) {
-          tokens.add(new IgnorableSpaceToken(text.subSequence(0, x)));
+          tokens.add(intern(new IgnorableSpaceToken(text.subSequence(0, x))));
         }
-        tokens.add(new CharactersToken(text.subSequence(x, text.length() - y)));
+        tokens.add(intern(new CharactersToken(text.subSequence(x, text.length() - y))));
         if (y > 0) {
-          tokens.add(new IgnorableSpaceToken(text.subSequence(text.length() - y, text.length())));
+          tokens.add(intern(new IgnorableSpaceToken(text.subSequence(text.length() - y, text.length()))));
         }
         break;
       case IGNORE:
-        TextToken token = new CharactersToken(text.subSequence(x, text.length() - y));
+        TextToken token = intern(new CharactersToken(text.subSequence(x, text.length() - y)));
         tokens = Collections.singletonList(token);
         break;
       default:
@@ -109,4 +129,8 @@ public final class TokenizerByText implements TextTokenizer {
     return tokens;
   }
 
+  private TextToken intern(TextToken token) {
+    return this.pool != null ? this.pool.intern(token) : token;
+  }
+
 }
@@ -15,15 +15,17 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.WhiteSpaceProcessing;
 import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
 import org.pageseeder.diffx.token.impl.IgnorableSpaceToken;
 import org.pageseeder.diffx.token.impl.SpaceToken;
 import org.pageseeder.diffx.token.impl.WordToken;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * The tokenizer for characters tokens.
@@ -38,7 +40,7 @@ public final class TokenizerByWord implements TextTokenizer {
   /**
    * Map characters to tokens in order to recycle tokens as they are created.
    */
-  private final Map<String, TextToken> recycling = new HashMap<>();
+  private final RecyclingTable recycling;
 
   /**
    * Define the whitespace processing.
@@ -53,8 +55,21 @@ public final class TokenizerByWord implements TextTokenizer {
    * @throws NullPointerException if the white space processing is not specified.
    */
   public TokenizerByWord(WhiteSpaceProcessing whitespace) {
+    this(whitespace, null);
+  }
+
+  /**
+   * Creates a new tokenizer interning the tokens it creates.
+   *
+   * @param whitespace the whitespace processing for this tokenizer.
+   * @param pool       the pool to intern the tokens (may be <code>null</code>)
+   *
+   * @throws NullPointerException if the white space processing is not specified.
+   */
+  public TokenizerByWord(WhiteSpaceProcessing whitespace, @Nullable TokenPool pool) {
     if (whitespace == null) throw new NullPointerException("the white space processing must be specified.");
     this.whitespace = whitespace;
+    this.recycling = new RecyclingTable(pool);
   }
 
   @Override
@@ -62,29 +77,26 @@ public final class TokenizerByWord implements TextTokenizer {
     if (text == null) throw new NullPointerException("Character sequence is null");
     if (text.length() == 0) return Collections.emptyList();
     List<TextToken> tokens = new ArrayList<>(text.length());
-
-    Pattern p = Pattern.compile("\\s+");
-    Matcher m = p.matcher(text);
+    int length = text.length();
     int index = 0;
 
-    // Add segments before each match found
-    while (m.find()) {
-      if (index != m.start()) {
-        String word = text.subSequence(index, m.start()).toString();
-        tokens.add(getWordEvent(word));
+    // Scan alternate runs of white space and other characters, computing the hash as we go
+    while (index < length) {
+      boolean space = Tokenizers.isSpace(text.charAt(index));
+      int hash = 0;
+      int i = index;
+      char c;
+      while (i < length && Tokenizers.isSpace(c = text.charAt(i)) == space) {
+        hash = 31 * hash + c;
+        i++;
       }
-      // We don't even need to record a white space if they are ignored!
-      if (whitespace != WhiteSpaceProcessing.IGNORE) {
-        String space = text.subSequence(m.start(), m.end()).toString();
-        tokens.add(getSpaceEvent(space));
+      if (!space) {
+        tokens.add(getWordEvent(text, index, i, hash));
+      } else if (this.whitespace != WhiteSpaceProcessing.IGNORE) {
+        // We don't even need to record a white space if they are ignored!
+        tokens.add(getSpaceEvent(text, index, i, hash));
       }
-      index = m.end();
-    }
-
-    // Add remaining word if any
-    if (index != text.length()) {
-      String word = text.subSequence(index, text.length()).toString();
-      tokens.add(getWordEvent(word));
+      index = i;
     }
 
     return tokens;
@@ -98,15 +110,18 @@ public final class TokenizerByWord implements TextTokenizer {
   /**
    * Returns the word token corresponding to the specified characters.
    *
-   * @param word the characters of the word
+   * @param text  the text being tokenized
+   * @param start the start index of the word
+   * @param end   the end index of the word
+   * @param hash  the hash of the characters of the word
    *
    * @return the corresponding word token
    */
-  private TextToken getWordEvent(String word) {
-    TextToken token = this.recycling.get(word);
+  private TextToken getWordEvent(CharSequence text, int start, int end, int hash) {
+    TextToken token = this.recycling.get(text, start, end, hash);
     if (token == null) {
-      token = new WordToken(word);
-      this.recycling.put(word, token);
+      token = new WordToken(text.subSequence(start, end).toString());
+      token = this.recycling.put(token, hash);
     }
     return token;
   }
@@ -114,20 +129,24 @@ public final class TokenizerByWord implements TextTokenizer {
   /**
    * Returns the space token corresponding to the specified characters.
    *
-   * @param space the characters of the space
+   * @param text  the text being tokenized
+   * @param start the start index of the space
+   * @param end   the end index of the space
+   * @param hash  the hash of the characters of the space
    *
    * @return the corresponding space token
    */
-  private TextToken getSpaceEvent(String space) {
+  private TextToken getSpaceEvent(CharSequence text, int start, int end, int hash) {
     // preserve the actual white space used
-    TextToken token = this.recycling.get(space);
+    TextToken token = this.recycling.get(text, start, end, hash);
     if (token == null) {
+      String space = text.subSequence(start, end).toString();
       if (this.whitespace == WhiteSpaceProcessing.PRESERVE) {
         token = new IgnorableSpaceToken(space);
       } else {
         token = SpaceToken.getInstance(space);
       }
-      this.recycling.put(space, token);
+      token = this.recycling.put(token, hash);
     }
     return token;
   }
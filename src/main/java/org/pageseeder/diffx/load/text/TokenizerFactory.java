@@ -15,8 +15,10 @@
  */
 package org.pageseeder.diffx.load.text;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.config.DiffConfig;
 import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.token.TokenPool;
 
 /**
  * Factory for tokenizers.
@@ -43,19 +45,32 @@ public final class TokenizerFactory {
    * @throws NullPointerException If the configuration is <code>null</code>.
    */
   public static TextTokenizer get(DiffConfig config) {
+    return get(config, null);
+  }
+
+  /**
+   * Returns the text tokenizer interning the tokens in the specified pool.
+   *
+   * @param config The configuration to use.
+   * @param pool   The pool to intern the tokens (may be <code>null</code>)
+   *
+   * @return the corresponding tokenizer.
+   * @throws NullPointerException If the configuration is <code>null</code>.
+   */
+  public static TextTokenizer get(DiffConfig config, @Nullable TokenPool pool) {
     if (config == null) throw new NullPointerException("The config should be specified");
     TextGranularity granularity = config.granularity();
     switch (granularity) {
       case CHARACTER:
-        return new TokenizerByChar();
+        return new TokenizerByChar(pool);
       case WORD:
-        return new TokenizerByWord(config.whitespace());
+        return new TokenizerByWord(config.whitespace(), pool);
       case SPACE_WORD:
-        return new TokenizerBySpaceWord(config.whitespace());
+        return new TokenizerBySpaceWord(config.whitespace(), pool);
       case PUNCTUATION:
-        return new TokenizerByPunctuation(config.whitespace());
+        return new TokenizerByPunctuation(config.whitespace(), pool);
       case TEXT:
-        return new TokenizerByText(config.whitespace());
+        return new TokenizerByText(config.whitespace(), pool);
       default:
         throw new IllegalArgumentException("Unsupported text granularity " + granularity);
     }
@@ -75,4 +75,33 @@ final class Tokenizers {
     return i;
   }
 
+  /**
+   * Indicates whether the specified character is a white space as defined by the <code>\s</code>
+   * character class of regular expressions, that is <code>[ \t\n\x0B\f\r]</code>.
+   *
+   * @param c the character to test
+   *
+   * @return <code>true</code> if the character is a white space.
+   */
+  static boolean isSpace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  /**
+   * Indicates whether the specified code point is a letter, a mark, an ASCII digit or an underscore,
+   * equivalent to the <code>[\p{L}\p{M}0-9_]</code> character class of regular expressions.
+   *
+   * @param cp the code point to test
+   *
+   * @return <code>true</code> if the character can be anywhere in a word.
+   */
+  static boolean isWordCharacter(int cp) {
+    if (cp < 0x80) {
+      return (cp >= 'a' && cp <= 'z') || (cp >= 'A' && cp <= 'Z') || (cp >= '0' && cp <= '9') || cp == '_';
+    }
+    if (Character.isLetter(cp)) return true;
+    int type = Character.getType(cp);
+    return type == Character.NON_SPACING_MARK || type == Character.ENCLOSING_MARK || type == Character.COMBINING_SPACING_MARK;
+  }
+
 }
@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.sequence;
+
+import org.pageseeder.diffx.token.AttributeToken;
+import org.pageseeder.diffx.token.EndElementToken;
+import org.pageseeder.diffx.token.StartElementToken;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The segmenter takes two sequences and cuts them into pairs of segments that can be compared
+ * independently.
+ *
+ * <p>Unlike the {@link TokenListSlicer} which only removes the common tokens at the start and end
+ * of the sequences, the segmenter looks for anchors in the middle: elements which are identical in both
+ * sequences, at the same level and unique among their siblings. Only anchors which appear in the same
+ * order in both sequences are kept.
+ *
+ * <p>When the tokens between anchors are a single element in each sequence with the same name and
+ * attributes, the segmenter looks for anchors among the children of that element as well.
+ *
+ * <p>Each segment which is not common is made of complete elements and text, so that it can be
+ * processed by any XML algorithm and the results can be joined to form well-formed XML.
+ *
+ * <p>The segmenter does NOT modify the original sequences which must be well-formed.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class TokenListSegmenter {
+
+  /**
+   * The first sequence of tokens to segment.
+   */
+  private final List<? extends XMLToken> sequence1;
+
+  /**
+   * The second sequence of tokens to segment.
+   */
+  private final List<? extends XMLToken> sequence2;
+
+  /**
+   * Creates a new sequence segmenter.
+   *
+   * @param seq0 The first sequence to segment.
+   * @param seq1 The second sequence to segment.
+   */
+  public TokenListSegmenter(List<? extends XMLToken> seq0, List<? extends XMLToken> seq1) {
+    this.sequence1 = seq0;
+    this.sequence2 = seq1;
+  }
+
+  /**
+   * Cuts the sequences into segments.
+   *
+   * @return The list of segments which cover both sequences in order.
+   * @throws IllegalStateException If the sequences are not well-formed
+   */
+  public List<Segment> segment() {
+    Tree tree1 = new Tree(this.sequence1);
+    Tree tree2 = new Tree(this.sequence2);
+    List<Segment> segments = new ArrayList<>();
+    segment(tree1, 0, this.sequence1.size(), tree2, 0, this.sequence2.size(), segments);
+    return segments;
+  }
+
+  private void segment(Tree tree1, int from1, int to1, Tree tree2, int from2, int to2, List<Segment> segments) {
+    List<int[]> anchors = findAnchors(tree1, from1, to1, tree2, from2, to2);
+    int i = from1;
+    int j = from2;
+    for (int[] anchor : anchors) {
+      gap(tree1, i, anchor[0], tree2, j, anchor[1], segments);
+      int length = tree1.next(anchor[0]) - anchor[0];
+      add(segments, true, anchor[0], anchor[0] + length, anchor[1], anchor[1] + length);
+      i = anchor[0] + length;
+      j = anchor[1] + length;
+    }
+    gap(tree1, i, to1, tree2, j, to2, segments);
+  }
+
+  /**
+   * Process the tokens between anchors, looking inside elements with the same name and attributes.
+   */
+  private void gap(Tree tree1, int from1, int to1, Tree tree2, int from2, int to2, List<Segment> segments) {
+    if (from1 == to1 && from2 == to2) return;
+    boolean single = from1 < to1 && from2 < to2 && tree1.next(from1) == to1 && tree2.next(from2) == to2;
+    if (single && this.sequence1.get(from1) instanceof StartElementToken) {
+      int content1 = tree1.content(from1);
+      int content2 = tree2.content(from2);
+      if (content1 - from1 == content2 - from2
+          && this.sequence1.subList(from1, content1).equals(this.sequence2.subList(from2, content2))) {
+        add(segments, true, from1, content1, from2, content2);
+        segment(tree1, content1, to1 - 1, tree2, content2, to2 - 1, segments);
+        add(segments, true, to1 - 1, to1, to2 - 1, to2);
+        return;
+      }
+    }
+    add(segments, false, from1, to1, from2, to2);
+  }
+
+  /**
+   * Find the elements which are unique among siblings and identical in both sequences, keeping the
+   * longest chain of anchors in the same order in both sequences.
+   *
+   * @return the list of start positions in the first and second sequence.
+   */
+  private List<int[]> findAnchors(Tree tree1, int from1, int to1, Tree tree2, int from2, int to2) {
+    Map<Integer, int[]> candidates = new HashMap<>();
+    for (int i = from1; i < to1; i = tree1.next(i)) {
+      if (!tree1.isElement(i)) continue;
+      int[] candidate = candidates.computeIfAbsent(tree1.hash(i), h -> new int[]{0, -1, 0, -1});
+      candidate[0]++;
+      candidate[1] = i;
+    }
+    for (int j = from2; j < to2; j = tree2.next(j)) {
+      if (!tree2.isElement(j)) continue;
+      int[] candidate = candidates.get(tree2.hash(j));
+      if (candidate != null) {
+        candidate[2]++;
+        candidate[3] = j;
+      }
+    }
+
+    // Unique in both and actually identical, ordered by position in the first sequence
+    List<int[]> pairs = new ArrayList<>();
+    for (int[] candidate : candidates.values()) {
+      if (candidate[0] == 1 && candidate[2] == 1 && isSame(tree1, candidate[1], tree2, candidate[3])) {
+        pairs.add(new int[]{candidate[1], candidate[3]});
+      }
+    }
+    pairs.sort((a, b) -> Integer.compare(a[0], b[0]));
+    return longestIncreasing(pairs);
+  }
+
+  private boolean isSame(Tree tree1, int i, Tree tree2, int j) {
+    int length = tree1.next(i) - i;
+    if (tree2.next(j) - j != length) return false;
+    return this.sequence1.subList(i, i + length).equals(this.sequence2.subList(j, j + length));
+  }
+
+  /**
+   * @return the longest subsequence of pairs with increasing positions in the second sequence.
+   */
+  private static List<int[]> longestIncreasing(List<int[]> pairs) {
+    int n = pairs.size();
+    int[] tails = new int[n];
+    int[] previous = new int[n];
+    int length = 0;
+    for (int k = 0; k < n; k++) {
+      int value = pairs.get(k)[1];
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (pairs.get(tails[middle])[1] < value) low = middle + 1;
+        else high = middle;
+      }
+      previous[k] = low > 0 ? tails[low - 1] : -1;
+      tails[low] = k;
+      if (low == length) length++;
+    }
+    int[][] chain = new int[length][];
+    for (int k = length > 0 ? tails[length - 1] : -1, c = length - 1; k >= 0; k = previous[k], c--) {
+      chain[c] = pairs.get(k);
+    }
+    return Arrays.asList(chain);
+  }
+
+  private void add(List<Segment> segments, boolean common, int from1, int to1, int from2, int to2) {
+    if (from1 == to1 && from2 == to2) return;
+    // Merge consecutive common segments
+    if (common && !segments.isEmpty()) {
+      Segment last = segments.get(segments.size() - 1);
+      if (last.common && last.to1 == from1 && last.to2 == from2) {
+        segments.set(segments.size() - 1, new Segment(true, last.from1, to1, last.from2, to2));
+        return;
+      }
+    }
+    segments.add(new Segment(common, from1, to1, from2, to2));
+  }
+
+  /**
+   * A pair of segments from both sequences.
+   */
+  public final class Segment {
+
+    private final boolean common;
+    private final int from1;
+    private final int to1;
+    private final int from2;
+    private final int to2;
+
+    private Segment(boolean common, int from1, int to1, int from2, int to2) {
+      this.common = common;
+      this.from1 = from1;
+      this.to1 = to1;
+      this.from2 = from2;
+      this.to2 = to2;
+    }
+
+    /**
+     * @return <code>true</code> if the tokens are identical in both segments.
+     */
+    public boolean isCommon() {
+      return this.common;
+    }
+
+    /**
+     * @return The tokens of the first sequence in this segment.
+     */
+    public List<? extends XMLToken> getSubSequence1() {
+      return TokenListSegmenter.this.sequence1.subList(this.from1, this.to1);
+    }
+
+    /**
+     * @return The tokens of the second sequence in this segment.
+     */
+    public List<? extends XMLToken> getSubSequence2() {
+      return TokenListSegmenter.this.sequence2.subList(this.from2, this.to2);
+    }
+
+    @Override
+    public String toString() {
+      return (this.common ? "=" : "~") + "[" + this.from1 + "," + this.to1 + ")[" + this.from2 + "," + this.to2 + ")";
+    }
+  }
+
+  /**
+   * The structure of the elements in a sequence.
+   */
+  private static final class Tree {
+
+    /**
+     * The index after the end of the element or token at each index.
+     */
+    private final int[] next;
+
+    /**
+     * The hash of the element at each start element index.
+     */
+    private final int[] hashes;
+
+    /**
+     * Whether the token at each index is a start element.
+     */
+    private final boolean[] elements;
+
+    /**
+     * Whether the token at each index is an attribute.
+     */
+    private final boolean[] attributes;
+
+    Tree(List<? extends XMLToken> tokens) {
+      int size = tokens.size();
+      this.next = new int[size];
+      this.hashes = new int[size];
+      this.elements = new boolean[size];
+      this.attributes = new boolean[size];
+      int[] stack = new int[16];
+      int depth = 0;
+      for (int i = 0; i < size; i++) {
+        XMLToken token = tokens.get(i);
+        this.next[i] = i + 1;
+        this.attributes[i] = token instanceof AttributeToken;
+        if (token instanceof StartElementToken) {
+          if (depth == stack.length) stack = Arrays.copyOf(stack, depth * 2);
+          stack[depth++] = i;
+          this.elements[i] = true;
+          this.hashes[i] = 31 + token.hashCode();
+        } else if (token instanceof EndElementToken) {
+          if (depth == 0) throw new IllegalStateException("Unexpected end element at " + i);
+          int start = stack[--depth];
+          this.next[start] = i + 1;
+          int hash = 31 * this.hashes[start] + token.hashCode();
+          this.hashes[start] = hash;
+          if (depth > 0) this.hashes[stack[depth - 1]] = 31 * this.hashes[stack[depth - 1]] + hash;
+        } else if (depth > 0) {
+          this.hashes[stack[depth - 1]] = 31 * this.hashes[stack[depth - 1]] + token.hashCode();
+        }
+      }
+      if (depth > 0) throw new IllegalStateException("Unclosed element at " + stack[depth - 1]);
+    }
+
+    int next(int i) {
+      return this.next[i];
+    }
+
+    int hash(int i) {
+      return this.hashes[i];
+    }
+
+    boolean isElement(int i) {
+      return this.elements[i];
+    }
+
+    /**
+     * @return the index of the first token after the start element and its attributes.
+     */
+    int content(int start) {
+      int i = start + 1;
+      while (i < this.next[start] - 1 && this.attributes[i]) i++;
+      return i;
+    }
+  }
+
+}
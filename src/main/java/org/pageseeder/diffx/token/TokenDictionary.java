@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.token;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * A dictionary assigning a dense integer id to each distinct token.
+ *
+ * <p>Two tokens are assigned the same id if and only if they are equal, the first token with a
+ * given id is kept as the canonical instance for that id. Since tokens are immutable, a sequence
+ * only needs to store the id of each of its tokens.
+ *
+ * <p>Ids are allocated sequentially from 0 and are never reused, so the dictionary should be
+ * scoped to the documents being compared.
+ *
+ * <p>This class is not synchronized.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class TokenDictionary {
+
+  /**
+   * Maximum load factor before the table is resized.
+   */
+  private static final float LOAD_FACTOR = .5f;
+
+  /**
+   * The canonical token for each id.
+   */
+  private XMLToken[] tokens;
+
+  /**
+   * The hash code of the token for each id.
+   */
+  private int[] hashes;
+
+  /**
+   * Hash table of the ids offset by one, 0 indicates an empty slot.
+   */
+  private int[] table;
+
+  /**
+   * Number of distinct tokens in this dictionary.
+   */
+  private int size = 0;
+
+  /**
+   * Creates a new dictionary with a default capacity.
+   */
+  public TokenDictionary() {
+    this(64);
+  }
+
+  /**
+   * Creates a new dictionary.
+   *
+   * @param expected The expected number of distinct tokens, used to size the dictionary.
+   */
+  public TokenDictionary(int expected) {
+    int capacity = Integer.highestOneBit(Math.max(16, (int) (expected / LOAD_FACTOR)) - 1) << 1;
+    this.table = new int[capacity];
+    this.tokens = new XMLToken[Math.max(16, expected)];
+    this.hashes = new int[this.tokens.length];
+  }
+
+  /**
+   * Returns the id of the specified token, allocating a new one if necessary.
+   *
+   * @param token The token to intern
+   *
+   * @return the corresponding id
+   */
+  public int intern(@NotNull XMLToken token) {
+    int hash = token.hashCode();
+    int mask = this.table.length - 1;
+    int i = spread(hash) & mask;
+    int slot;
+    while ((slot = this.table[i]) != 0) {
+      int id = slot - 1;
+      XMLToken key = this.tokens[id];
+      if (key == token || (this.hashes[id] == hash && key.equals(token))) return id;
+      i = (i + 1) & mask;
+    }
+    int id = this.size++;
+    if (id == this.tokens.length) {
+      this.tokens = Arrays.copyOf(this.tokens, id * 2);
+      this.hashes = Arrays.copyOf(this.hashes, id * 2);
+    }
+    this.tokens[id] = token;
+    this.hashes[id] = hash;
+    this.table[i] = id + 1;
+    if (this.size > this.table.length * LOAD_FACTOR) resize();
+    return id;
+  }
+
+  /**
+   * Returns the canonical token for the specified id.
+   *
+   * @param id The id of the token
+   *
+   * @return the corresponding token
+   * @throws IndexOutOfBoundsException If the id has not been allocated
+   */
+  public @NotNull XMLToken get(int id) {
+    if (id < 0 || id >= this.size) throw new IndexOutOfBoundsException("Unknown token id: " + id);
+    return this.tokens[id];
+  }
+
+  /**
+   * Returns the hash code of the token for the specified id.
+   *
+   * @param id The id of the token
+   *
+   * @return the hash code of the corresponding token
+   * @throws IndexOutOfBoundsException If the id has not been allocated
+   */
+  public int hash(int id) {
+    if (id < 0 || id >= this.size) throw new IndexOutOfBoundsException("Unknown token id: " + id);
+    return this.hashes[id];
+  }
+
+  /**
+   * @return the number of distinct tokens in this dictionary.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public String toString() {
+    return "TokenDictionary{size=" + this.size + '}';
+  }
+
+  private void resize() {
+    int capacity = this.table.length << 1;
+    int mask = capacity - 1;
+    int[] table = new int[capacity];
+    for (int id = 0; id < this.size; id++) {
+      int i = spread(this.hashes[id]) & mask;
+      while (table[i] != 0) i = (i + 1) & mask;
+      table[i] = id + 1;
+    }
+    this.table = table;
+  }
+
+  /**
+   * Spread the higher bits of the hash to the lower bits as tokens tend to have poor hash distributions.
+   */
+  private static int spread(int h) {
+    h *= 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+}
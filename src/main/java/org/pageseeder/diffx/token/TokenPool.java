@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.token;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A pool of canonical tokens so that equal tokens loaded from different documents or successive
+ * loads are the same instance.
+ *
+ * <p>Sharing a pool between the loaders of the two documents being compared means that most token
+ * comparisons succeed on identity and that the tokens common to both documents are only kept once
+ * in memory. A pool can also be scoped to a long-lived service to share tokens across comparisons,
+ * in which case its capacity bounds the number of tokens it retains: once it is full, tokens that
+ * are not already in the pool are returned as is.
+ *
+ * <p>Only immutable tokens should be interned, which is the case of the tokens created by the
+ * {@link XMLTokenFactory} and the text tokenizers.
+ *
+ * <p>This class is thread-safe.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class TokenPool {
+
+  /**
+   * The default maximum number of tokens in the pool.
+   */
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+
+  /**
+   * The canonical tokens.
+   */
+  private final ConcurrentMap<XMLToken, XMLToken> tokens;
+
+  /**
+   * The maximum number of tokens in the pool.
+   */
+  private final int capacity;
+
+  /**
+   * Creates a pool with the default capacity.
+   */
+  public TokenPool() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * Creates a pool with the specified capacity.
+   *
+   * @param capacity The maximum number of tokens in the pool
+   *
+   * @throws IllegalArgumentException If the capacity is negative
+   */
+  public TokenPool(int capacity) {
+    if (capacity < 0) throw new IllegalArgumentException("Capacity must be positive");
+    this.capacity = capacity;
+    this.tokens = new ConcurrentHashMap<>(Math.min(capacity, 1024));
+  }
+
+  /**
+   * Returns the canonical instance of the specified token.
+   *
+   * <p>If the pool does not contain an equal token, the specified token becomes the canonical
+   * instance unless the pool is full.
+   *
+   * @param token The token to intern
+   * @param <T>   The type of token
+   *
+   * @return the token in the pool equal to the specified token or the token itself.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends XMLToken> @NotNull T intern(@NotNull T token) {
+    XMLToken canonical = this.tokens.get(token);
+    if (canonical == null) {
+      if (this.tokens.size() >= this.capacity) return token;
+      canonical = this.tokens.putIfAbsent(token, token);
+      if (canonical == null) return token;
+    }
+    // Tokens of different classes may be equal, but cannot be used instead of one another
+    return canonical.getClass() == token.getClass() ? (T) canonical : token;
+  }
+
+  /**
+   * @return the number of tokens in the pool.
+   */
+  public int size() {
+    return this.tokens.size();
+  }
+
+  /**
+   * @return the maximum number of tokens in the pool.
+   */
+  public int capacity() {
+    return this.capacity;
+  }
+
+  /**
+   * Remove all the tokens from the pool.
+   */
+  public void clear() {
+    this.tokens.clear();
+  }
+
+  @Override
+  public String toString() {
+    return "TokenPool{size=" + size() + ", capacity=" + this.capacity + '}';
+  }
+}
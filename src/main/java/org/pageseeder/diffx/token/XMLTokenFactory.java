@@ -15,6 +15,7 @@
  */
 package org.pageseeder.diffx.token;
 
+import org.jetbrains.annotations.Nullable;
 import org.pageseeder.diffx.token.impl.XMLAttribute;
 import org.pageseeder.diffx.token.impl.XMLEndElement;
 import org.pageseeder.diffx.token.impl.XMLStartElement;
@@ -27,6 +28,9 @@ import org.pageseeder.diffx.token.impl.XMLStartElement;
  *
  * <p>Non-namespace aware objects are lighter than namespace aware ones.
  *
+ * <p>When a {@link TokenPool} is specified, the tokens are interned so that equal tokens are the
+ * same instance.
+ *
  * @author Christophe Lauret
  * @version 0.9.0
  * @since 0.5.0
@@ -38,11 +42,16 @@ public final class XMLTokenFactory {
    */
   private final boolean isNamespaceAware;
 
+  /**
+   * The pool to intern tokens (may be <code>null</code>).
+   */
+  private final @Nullable TokenPool pool;
+
   /**
    * Creates a new namespace aware factory for tokens.
    */
   public XMLTokenFactory() {
-    this.isNamespaceAware = true;
+    this(true, null);
   }
 
   /**
@@ -52,13 +61,32 @@ public final class XMLTokenFactory {
    *                         <code>false</code> otherwise.
    */
   public XMLTokenFactory(boolean isNamespaceAware) {
+    this(isNamespaceAware, null);
+  }
+
+  /**
+   * Creates a factory for tokens.
+   *
+   * @param isNamespaceAware <code>true</code> to create new namespace aware factory;
+   *                         <code>false</code> otherwise.
+   * @param pool             The pool to intern the tokens (may be <code>null</code>)
+   */
+  public XMLTokenFactory(boolean isNamespaceAware, @Nullable TokenPool pool) {
     this.isNamespaceAware = isNamespaceAware;
+    this.pool = pool;
   }
 
   public boolean isNamespaceAware() {
     return this.isNamespaceAware;
   }
 
+  /**
+   * @return the pool used to intern the tokens or <code>null</code>.
+   */
+  public @Nullable TokenPool getTokenPool() {
+    return this.pool;
+  }
+
   /**
    * Returns the open element token from the uri and name given.
    *
@@ -77,7 +105,7 @@ public final class XMLTokenFactory {
    * @return The open element token from the uri and name given.
    */
   public StartElementToken newStartElement(String uri, String name) {
-    return this.isNamespaceAware ? new XMLStartElement(uri, name) : new XMLStartElement(name);
+    return intern(this.isNamespaceAware ? new XMLStartElement(uri, name) : new XMLStartElement(name));
   }
 
   /**
@@ -96,7 +124,7 @@ public final class XMLTokenFactory {
    * @return The open element token from the uri and name given.
    */
   public StartElementToken newStartElement(String uri, String localName, String qName) {
-    return this.isNamespaceAware ? new XMLStartElement(uri, localName) : new XMLStartElement(qName);
+    return intern(this.isNamespaceAware ? new XMLStartElement(uri, localName) : new XMLStartElement(qName));
   }
 
   /**
@@ -107,7 +135,7 @@ public final class XMLTokenFactory {
    * @return The close element token from the corresponding open element token.
    */
   public EndElementToken newEndElement(StartElementToken open) {
-    return new XMLEndElement(open);
+    return intern(new XMLEndElement(open));
   }
 
   /**
@@ -127,7 +155,7 @@ public final class XMLTokenFactory {
    * @return The open element token from the uri and name given.
    */
   public AttributeToken newAttribute(String name, String value) {
-    return new XMLAttribute(name, value);
+    return intern(new XMLAttribute(name, value));
   }
 
   /**
@@ -149,7 +177,7 @@ public final class XMLTokenFactory {
    * @return The open element token from the uri and name given.
    */
   public AttributeToken newAttribute(String uri, String name, String value) {
-    return this.isNamespaceAware ? new XMLAttribute(uri, name, value) : new XMLAttribute(name, value);
+    return intern(this.isNamespaceAware ? new XMLAttribute(uri, name, value) : new XMLAttribute(name, value));
   }
 
   /**
@@ -169,7 +197,11 @@ public final class XMLTokenFactory {
    * @return The open element token from the uri and name given.
    */
   public AttributeToken newAttribute(String uri, String localName, String qName, String value) {
-    return this.isNamespaceAware ? new XMLAttribute(uri, localName, value) : new XMLAttribute(qName, value);
+    return intern(this.isNamespaceAware ? new XMLAttribute(uri, localName, value) : new XMLAttribute(qName, value));
+  }
+
+  private <T extends XMLToken> T intern(T token) {
+    return this.pool != null ? this.pool.intern(token) : token;
   }
 
 }
@@ -52,7 +52,7 @@ public abstract class CharactersTokenBase extends TokenBase implements TextToken
     if (seq == null)
       throw new NullPointerException("The characters cannot be null, use \"\"");
     this.characters = seq.toString();
-    this.hashCode = toHashCode(seq);
+    this.hashCode = toHashCode(this.characters);
   }
 
   @Override
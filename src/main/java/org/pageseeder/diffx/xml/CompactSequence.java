@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.xml;
+
+import org.jetbrains.annotations.NotNull;
+import org.pageseeder.diffx.token.TokenDictionary;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.XMLTokenType;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable sequence of XML tokens stored in columns.
+ *
+ * <p>Instead of a reference to a token object per position, this class stores the type and the id
+ * of the token in a {@link TokenDictionary} in parallel primitive arrays, that is 5 bytes per
+ * token. The tokens returned by {@link #get(int)} are the canonical instances of the dictionary,
+ * so each distinct token is only kept once in memory however many times it occurs.
+ *
+ * <p>When both sequences being compared share the same dictionary, equal tokens have the same id
+ * and the algorithms map the ids to symbols instead of interning the tokens again, provided that
+ * the dictionary is no larger than the two sequences combined.
+ *
+ * <p>Sub lists are views sharing the columns of this sequence.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class CompactSequence extends AbstractList<XMLToken> implements RandomAccess {
+
+  private static final XMLTokenType[] TYPES = XMLTokenType.values();
+
+  /**
+   * The dictionary the ids refer to.
+   */
+  private final TokenDictionary dictionary;
+
+  /**
+   * The prefix mapping for the elements in this sequence.
+   */
+  private final NamespaceSet namespaces;
+
+  /**
+   * The ordinal of the type of each token.
+   */
+  private final byte[] types;
+
+  /**
+   * The id of each token in the dictionary.
+   */
+  private final int[] ids;
+
+  /**
+   * The index of the first token of this sequence in the columns.
+   */
+  private final int offset;
+
+  /**
+   * The number of tokens in this sequence.
+   */
+  private final int size;
+
+  private CompactSequence(TokenDictionary dictionary, NamespaceSet namespaces, byte[] types, int[] ids, int offset, int size) {
+    this.dictionary = dictionary;
+    this.namespaces = namespaces;
+    this.types = types;
+    this.ids = ids;
+    this.offset = offset;
+    this.size = size;
+  }
+
+  /**
+   * Creates a compact sequence from the specified sequence.
+   *
+   * @param sequence   The sequence of tokens to copy
+   * @param dictionary The dictionary to intern the tokens with, shared by the sequences to compare
+   *
+   * @return a new compact sequence with the same tokens and namespaces.
+   */
+  public static CompactSequence of(@NotNull Sequence sequence, @NotNull TokenDictionary dictionary) {
+    return of(sequence, sequence.getNamespaces(), dictionary);
+  }
+
+  /**
+   * Creates a compact sequence from the specified list of tokens.
+   *
+   * @param tokens     The tokens to copy
+   * @param namespaces The prefix mapping for the elements in the sequence
+   * @param dictionary The dictionary to intern the tokens with, shared by the sequences to compare
+   *
+   * @return a new compact sequence with the same tokens.
+   */
+  public static CompactSequence of(@NotNull List<? extends XMLToken> tokens, @NotNull NamespaceSet namespaces,
+                                   @NotNull TokenDictionary dictionary) {
+    int size = tokens.size();
+    byte[] types = new byte[size];
+    int[] ids = new int[size];
+    int i = 0;
+    for (XMLToken token : tokens) {
+      types[i] = (byte) token.getType().ordinal();
+      ids[i++] = dictionary.intern(token);
+    }
+    NamespaceSet copy = new NamespaceSet();
+    copy.add(namespaces);
+    return new CompactSequence(dictionary, copy, types, ids, 0, size);
+  }
+
+  @Override
+  public XMLToken get(int index) {
+    return this.dictionary.get(this.ids[checkIndex(index)]);
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns the type of the token at the specified position without looking up the token.
+   *
+   * @param index The position of the token.
+   *
+   * @return the type of the token at that position.
+   */
+  public XMLTokenType getType(int index) {
+    return TYPES[this.types[checkIndex(index)]];
+  }
+
+  /**
+   * Returns the id of the token at the specified position in the dictionary.
+   *
+   * @param index The position of the token.
+   *
+   * @return the id of the token at that position.
+   */
+  public int getId(int index) {
+    return this.ids[checkIndex(index)];
+  }
+
+  /**
+   * Returns the hash code of the token at the specified position without looking up the token.
+   *
+   * @param index The position of the token.
+   *
+   * @return the hash code of the token at that position.
+   */
+  public int getHash(int index) {
+    return this.dictionary.hash(this.ids[checkIndex(index)]);
+  }
+
+  /**
+   * @return a copy of the ids of the tokens in this sequence.
+   */
+  public int[] ids() {
+    return Arrays.copyOfRange(this.ids, this.offset, this.offset + this.size);
+  }
+
+  /**
+   * @return the dictionary the ids of the tokens refer to.
+   */
+  public TokenDictionary getDictionary() {
+    return this.dictionary;
+  }
+
+  /**
+   * @return the prefix mapping for the namespace URIs in this sequence.
+   */
+  public NamespaceSet getNamespaces() {
+    return this.namespaces;
+  }
+
+  /**
+   * @return a new mutable sequence with the same tokens and namespaces.
+   */
+  public Sequence toSequence() {
+    Sequence sequence = new Sequence(this.namespaces);
+    sequence.addTokens(this);
+    return sequence;
+  }
+
+  @Override
+  public CompactSequence subList(int fromIndex, int toIndex) {
+    if (fromIndex < 0 || toIndex > this.size || fromIndex > toIndex)
+      throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex + ", size: " + this.size);
+    return new CompactSequence(this.dictionary, this.namespaces, this.types, this.ids, this.offset + fromIndex, toIndex - fromIndex);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (o == this) return true;
+    if (o instanceof CompactSequence && ((CompactSequence) o).dictionary == this.dictionary) {
+      CompactSequence other = (CompactSequence) o;
+      if (other.size != this.size) return false;
+      for (int i = 0; i < this.size; i++) {
+        if (this.ids[this.offset + i] != other.ids[other.offset + i]) return false;
+      }
+      return true;
+    }
+    return super.equals(o);
+  }
+
+  @Override
+  public int hashCode() {
+    return super.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "CompactSequence{namespaces=" + this.namespaces + ", tokens=" + super.toString() + '}';
+  }
+
+  private int checkIndex(int index) {
+    if (index < 0 || index >= this.size)
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+    return this.offset + index;
+  }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.algorithm.DataLengthException;
+import org.pageseeder.diffx.api.DeadlineExceededException;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.core.DefaultXMLProcessor;
+import org.pageseeder.diffx.core.OptimisticXMLProcessor;
+import org.pageseeder.diffx.test.DiffAssertions;
+import org.pageseeder.diffx.test.TestTokens;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiffServiceTest {
+
+  @Test
+  public void testSubmit() throws Exception {
+    try (DiffService service = new DiffService(2, 4)) {
+      String xml = service.submit(DiffService.Job.of("<p>The quick brown fox</p>", "<p>The quick red fox</p>")).get();
+      DiffAssertions.assertIsWellFormedXML(xml);
+      assertTrue(xml.contains("brown"));
+      assertTrue(xml.contains("red"));
+      DiffService.Statistics statistics = service.getStatistics();
+      assertEquals(1, statistics.getSubmittedCount());
+      assertEquals(1, statistics.getCompletedCount());
+      assertEquals(0, statistics.getFailedCount());
+    }
+  }
+
+  @Test
+  public void testSequences() throws Exception {
+    DiffService.Job job = DiffService.Job.of(
+        TestTokens.loadSequence("<p>A B</p>", TextGranularity.SPACE_WORD),
+        TestTokens.loadSequence("<p>A C</p>", TextGranularity.SPACE_WORD)).format(DiffService.Format.STRICT);
+    try (DiffService service = new DiffService(1, 1)) {
+      DiffAssertions.assertIsWellFormedXML(service.submit(job).get());
+    }
+  }
+
+  @Test
+  public void testMany() throws Exception {
+    List<Future<String>> futures = new ArrayList<>();
+    try (DiffService service = new DiffService(4, 8)) {
+      for (int i = 0; i < 100; i++) {
+        futures.add(service.submit(DiffService.Job.of("<p>Value " + i + "</p>", "<p>Value " + (i + 1) + "</p>")));
+      }
+      for (int i = 0; i < 100; i++) {
+        String xml = futures.get(i).get();
+        assertTrue(xml.contains(Integer.toString(i + 1)), xml);
+      }
+      DiffService.Statistics statistics = service.getStatistics();
+      assertEquals(100, statistics.getCompletedCount());
+      assertEquals(0, statistics.getRejectedCount());
+      assertTrue(statistics.getThroughput() > 0);
+    }
+  }
+
+  @Test
+  public void testBackpressure() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    ThreadFactory blocked = runnable -> {
+      Thread thread = new Thread(() -> {
+        try {
+          latch.await();
+        } catch (InterruptedException ex) {
+          return;
+        }
+        runnable.run();
+      });
+      thread.setDaemon(true);
+      return thread;
+    };
+    DiffService.Job job = DiffService.Job.of("<a/>", "<b/>");
+    try (DiffService service = new DiffService(1, 1, blocked)) {
+      Future<String> running = service.trySubmit(job);
+      Future<String> queued = service.trySubmit(job);
+      assertThrows(RejectedExecutionException.class, () -> service.trySubmit(job));
+      assertEquals(1, service.getStatistics().getQueueDepth());
+      assertEquals(1, service.getStatistics().getRejectedCount());
+      latch.countDown();
+      running.get();
+      queued.get();
+      // Room for more jobs once completed
+      service.submit(job).get();
+      assertEquals(3, service.getStatistics().getCompletedCount());
+    }
+  }
+
+  @Test
+  public void testLoadingError() throws InterruptedException {
+    try (DiffService service = new DiffService(1, 1)) {
+      Future<String> future = service.submit(DiffService.Job.of("<a>", "<a/>"));
+      ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+      assertTrue(ex.getCause() instanceof LoadingException);
+      assertEquals(1, service.getStatistics().getFailedCount());
+    }
+  }
+
+  @Test
+  public void testDataLength() throws InterruptedException {
+    DiffService.Job job = DiffService.Job.of("<p>A B C D E F</p>", "<p>G H I J K L</p>").processor(() -> {
+      DefaultXMLProcessor processor = new DefaultXMLProcessor();
+      processor.setThreshold(4);
+      return processor;
+    });
+    try (DiffService service = new DiffService(1, 1)) {
+      ExecutionException ex = assertThrows(ExecutionException.class, service.submit(job)::get);
+      assertTrue(ex.getCause() instanceof DataLengthException);
+      DiffService.Statistics statistics = service.getStatistics();
+      assertEquals(1, statistics.getDataLengthExceptionCount());
+      assertEquals(1.0, statistics.getDataLengthExceptionRate());
+    }
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    DiffService.Job blocking = DiffService.Job.of("<a/>", "<b/>").processor(() -> {
+      awaitQuietly(latch);
+      return new OptimisticXMLProcessor();
+    });
+    DiffService.Job job = DiffService.Job.of("<p>A</p>", "<p>B</p>").timeout(1, TimeUnit.MILLISECONDS);
+    try (DiffService service = new DiffService(1, 1)) {
+      Future<String> running = service.submit(blocking);
+      Future<String> queued = service.submit(job);
+      // The queued job expires while the only worker is blocked
+      Thread.sleep(5);
+      latch.countDown();
+      running.get();
+      ExecutionException ex = assertThrows(ExecutionException.class, queued::get);
+      assertTrue(ex.getCause() instanceof DeadlineExceededException);
+      assertEquals(1, service.getStatistics().getTimeoutCount());
+    }
+  }
+
+  @Test
+  public void testNoTimeout() throws Exception {
+    DiffService.Job job = DiffService.Job.of("<p>A</p>", "<p>B</p>").timeout(1, TimeUnit.MINUTES);
+    try (DiffService service = new DiffService(1, 1)) {
+      service.submit(job).get();
+      assertEquals(0, service.getStatistics().getTimeoutCount());
+    }
+  }
+
+  @Test
+  public void testCancelQueued() throws Exception {
+    CountDownLatch latch = new CountDownLatch(1);
+    DiffService.Job blocking = DiffService.Job.of("<a/>", "<b/>").processor(() -> {
+      awaitQuietly(latch);
+      return new OptimisticXMLProcessor();
+    });
+    DiffService.Job job = DiffService.Job.of("<a/>", "<b/>");
+    try (DiffService service = new DiffService(1, 1)) {
+      Future<String> running = service.submit(blocking);
+      Future<String> queued = service.trySubmit(job);
+      assertThrows(RejectedExecutionException.class, () -> service.trySubmit(job));
+      assertTrue(queued.cancel(false));
+      assertEquals(0, service.getStatistics().getQueueDepth());
+      // The permit of the cancelled job is available again
+      Future<String> next = service.trySubmit(job);
+      latch.countDown();
+      running.get();
+      next.get();
+      assertEquals(2, service.getStatistics().getCompletedCount());
+    }
+  }
+
+  @Test
+  public void testFallback() throws Exception {
+    DiffService.Job job = DiffService.Job.of("<a><b><c>x</c></b></a>", "<a><c><b>x</b></c></a>")
+        .processor(OptimisticXMLProcessor::new);
+    try (DiffService service = new DiffService(1, 1)) {
+      DiffAssertions.assertIsWellFormedXML(service.submit(job).get());
+      DiffService.Statistics statistics = service.getStatistics();
+      assertEquals(1, statistics.getFallbackCount());
+      assertEquals(1.0, statistics.getFallbackRate());
+    }
+  }
+
+  @Test
+  public void testClosed() {
+    DiffService service = new DiffService(1, 1);
+    service.close();
+    assertThrows(RejectedExecutionException.class, () -> service.trySubmit(DiffService.Job.of("<a/>", "<a/>")));
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.test.RandomStringFactory;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.impl.CharToken;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MatrixDirectionTest {
+
+  private static List<XMLToken> toCharTokens(String string) {
+    List<XMLToken> tokens = new ArrayList<>();
+    for (char c : string.toCharArray()) {
+      tokens.add(new CharToken(c));
+    }
+    return tokens;
+  }
+
+  @Test
+  public void testEmpty() {
+    MatrixDirection matrix = new MatrixDirection(true);
+    matrix.compute(new int[0], new int[0]);
+    assertEquals(1, matrix.size());
+    assertEquals(0, matrix.getLCSLength());
+  }
+
+  @Test
+  public void testReadOnly() {
+    MatrixDirection matrix = new MatrixDirection(false);
+    matrix.compute(new int[]{0}, new int[]{0});
+    assertThrows(UnsupportedOperationException.class, () -> matrix.get(0, 0));
+    assertThrows(UnsupportedOperationException.class, () -> matrix.set(0, 0, 1));
+    assertThrows(UnsupportedOperationException.class, () -> matrix.incrementPath(1, 1));
+    assertThrows(UnsupportedOperationException.class, () -> matrix.incrementByMaxPath(1, 1));
+  }
+
+  @Test
+  public void testMemoryEstimate() {
+    MatrixProcessor<XMLToken> processor = new MatrixProcessor<>();
+    processor.setBitVector(false);
+    long values = processor.getMemoryEstimate(1000, 1000);
+    processor.setDirectionOnly(true);
+    long directions = processor.getMemoryEstimate(1000, 1000);
+    assertTrue(directions * 8 <= values);
+  }
+
+  @Test
+  public void testSameAsShortMatrix() {
+    RandomStringFactory factory = new RandomStringFactory("abcd");
+    int[] lengths = {0, 1, 5, 31, 32, 33, 100};
+    for (int lengthA : lengths) {
+      for (int lengthB : lengths) {
+        String a = factory.getRandomString(lengthA, false);
+        String b = factory.getRandomString(lengthB, false);
+        assertSameDirections(toCharTokens(a), toCharTokens(b));
+      }
+    }
+  }
+
+  private static void assertSameDirections(List<XMLToken> a, List<XMLToken> b) {
+    for (boolean inverse : new boolean[]{false, true}) {
+      MatrixProcessor<XMLToken> processor = new MatrixProcessor<>();
+      processor.setInverse(inverse);
+      processor.setBitVector(false);
+      Matrix expected = processor.process(a, b);
+      processor.setDirectionOnly(true);
+      Matrix actual = processor.process(a, b);
+      assertEquals(expected.lengthX(), actual.lengthX());
+      assertEquals(expected.lengthY(), actual.lengthY());
+      assertEquals(expected.getLCSLength(), actual.getLCSLength());
+      for (int i = 0; i < expected.lengthX() - 1; i++) {
+        for (int j = 0; j < expected.lengthY() - 1; j++) {
+          String cell = "Direction at [" + i + "," + j + "]";
+          assertEquals(expected.isGreaterX(i, j), actual.isGreaterX(i, j), cell);
+          assertEquals(expected.isGreaterY(i, j), actual.isGreaterY(i, j), cell);
+          assertEquals(expected.isSameXY(i, j), actual.isSameXY(i, j), cell);
+        }
+      }
+    }
+  }
+
+}
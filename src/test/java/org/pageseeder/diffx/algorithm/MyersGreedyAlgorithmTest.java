@@ -32,6 +32,12 @@ public final class MyersGreedyAlgorithmTest {
     return new MyersGreedyAlgorithm<>();
   }
 
+  private <T> MyersGreedyAlgorithm<T> newBoundedAlgorithm() {
+    MyersGreedyAlgorithm<T> algorithm = new MyersGreedyAlgorithm<>();
+    algorithm.setMaxCost(2);
+    return algorithm;
+  }
+
   @Nested
   public class GeneralDiff extends BasicGeneralDiffTest {
     @Override
@@ -56,4 +62,12 @@ public final class MyersGreedyAlgorithmTest {
     }
   }
 
+  @Nested
+  public class BoundedRandomGeneralDiff extends RandomGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newBoundedAlgorithm();
+    }
+  }
+
 }
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.junit.jupiter.api.Nested;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.core.RandomXMLDiffTest;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Test case for the segmented XML algorithm.
+ *
+ * <p>Since each segment is compared without the context of the whole document, the results may differ
+ * from the expected results of the basic XML tests while still being correct.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class SegmentedXMLAlgorithmTest {
+
+  private SegmentedXMLAlgorithm newAlgorithm() {
+    return new SegmentedXMLAlgorithm();
+  }
+
+  private SegmentedXMLAlgorithm newParallelAlgorithm() {
+    return new SegmentedXMLAlgorithm(new MatrixXMLAlgorithm(), ForkJoinPool.commonPool());
+  }
+
+  @Nested
+  public class GeneralDiff extends BasicGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newAlgorithm();
+    }
+  }
+
+  @Nested
+  public class RandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newAlgorithm();
+    }
+  }
+
+  @Nested
+  public class ParallelRandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newParallelAlgorithm();
+    }
+  }
+
+}
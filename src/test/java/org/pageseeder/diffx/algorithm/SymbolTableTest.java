@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.token.TokenDictionary;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.token.impl.CharToken;
+import org.pageseeder.diffx.token.impl.WordToken;
+import org.pageseeder.diffx.xml.CompactSequence;
+import org.pageseeder.diffx.xml.NamespaceSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class SymbolTableTest {
+
+  @Test
+  public void testEmpty() {
+    SymbolTable<XMLToken> table = new SymbolTable<>();
+    assertEquals(0, table.size());
+    assertEquals(-1, table.get(new CharToken('x')));
+  }
+
+  @Test
+  public void testEqualTokens() {
+    SymbolTable<XMLToken> table = new SymbolTable<>();
+    int x = table.intern(new WordToken("x"));
+    int y = table.intern(new WordToken("y"));
+    assertNotEquals(x, y);
+    assertEquals(x, table.intern(new WordToken("x")));
+    assertEquals(y, table.get(new WordToken("y")));
+    assertEquals(2, table.size());
+  }
+
+  @Test
+  public void testClear() {
+    SymbolTable<XMLToken> table = new SymbolTable<>();
+    table.intern(new WordToken("x"));
+    table.intern(new WordToken("y"));
+    table.clear();
+    assertEquals(0, table.size());
+    assertEquals(-1, table.get(new WordToken("x")));
+    assertEquals(0, table.intern(new WordToken("y")));
+  }
+
+  @Test
+  public void testSharedTable() {
+    List<XMLToken> a = Arrays.asList(new CharToken('a'), new CharToken('b'), new CharToken('c'));
+    List<XMLToken> b = Arrays.asList(new CharToken('c'), new CharToken('a'), new CharToken('d'));
+    int[][] symbols = SymbolTable.intern(a, b);
+    assertArrayEquals(new int[]{0, 1, 2}, symbols[0]);
+    assertArrayEquals(new int[]{2, 0, 3}, symbols[1]);
+  }
+
+  @Test
+  public void testCompactSequences() {
+    List<XMLToken> a = Arrays.asList(new CharToken('a'), new CharToken('b'), new CharToken('c'));
+    List<XMLToken> b = Arrays.asList(new CharToken('c'), new CharToken('a'), new CharToken('d'));
+    TokenDictionary small = new TokenDictionary();
+    TokenDictionary large = new TokenDictionary();
+    for (int i = 0; i < 100; i++) large.intern(new WordToken("w" + i));
+    for (TokenDictionary dictionary : Arrays.asList(small, large)) {
+      CompactSequence x = CompactSequence.of(a, NamespaceSet.noNamespace(), dictionary);
+      CompactSequence y = CompactSequence.of(b, NamespaceSet.noNamespace(), dictionary);
+      // Symbols are dense whatever the size of the dictionary
+      int[][] symbols = SymbolTable.intern(x, y);
+      assertArrayEquals(new int[]{0, 1, 2}, symbols[0]);
+      assertArrayEquals(new int[]{2, 0, 3}, symbols[1]);
+    }
+  }
+
+  @Test
+  public void testResize() {
+    SymbolTable<XMLToken> table = new SymbolTable<>(1);
+    List<XMLToken> tokens = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      tokens.add(new WordToken("w" + i));
+    }
+    int[] symbols = table.intern(tokens);
+    assertEquals(1000, table.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, symbols[i]);
+      assertEquals(i, table.get(new WordToken("w" + i)));
+    }
+  }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.algorithm;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkspaceTest {
+
+  @Test
+  public void testReuse() {
+    int[] ints;
+    long[] longs;
+    try (Workspace workspace = Workspace.acquire()) {
+      ints = workspace.ints(0, 10);
+      longs = workspace.longs(0, 10);
+      ints[5] = 1;
+      longs[5] = 1L;
+    }
+    try (Workspace workspace = Workspace.acquire()) {
+      int[] reused = workspace.ints(0, 8);
+      assertSame(ints, reused);
+      assertEquals(0, reused[5]);
+      assertSame(longs, workspace.longs(0, 6));
+      assertEquals(0L, longs[5]);
+      assertNotSame(ints, workspace.ints(1, 8));
+    }
+  }
+
+  @Test
+  public void testNested() {
+    try (Workspace outer = Workspace.acquire()) {
+      int[] a = outer.ints(0, 10);
+      try (Workspace inner = Workspace.acquire()) {
+        assertNotSame(outer, inner);
+        assertNotSame(a, inner.ints(0, 10));
+      }
+    }
+  }
+
+  @Test
+  public void testLargeArraysNotRetained() {
+    int[] large;
+    try (Workspace workspace = Workspace.acquire()) {
+      large = workspace.ints(0, Workspace.MAX_RETAINED_LENGTH + 1);
+    }
+    try (Workspace workspace = Workspace.acquire()) {
+      assertNotSame(large, workspace.ints(0, 10));
+    }
+  }
+
+  @Test
+  public void testClosed() {
+    Workspace workspace = Workspace.acquire();
+    workspace.close();
+    assertThrows(IllegalStateException.class, () -> workspace.ints(0, 1));
+  }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.api;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.*;
+import org.pageseeder.diffx.test.GeneralToken;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeadlineTest {
+
+  @Test
+  public void testNone() {
+    Deadline deadline = Deadline.none();
+    deadline.cancel();
+    assertFalse(deadline.isBounded());
+    assertFalse(deadline.isExpired());
+    deadline.check();
+  }
+
+  @Test
+  public void testCancellable() {
+    Deadline deadline = Deadline.cancellable();
+    assertTrue(deadline.isBounded());
+    assertFalse(deadline.isExpired());
+    deadline.check();
+    deadline.cancel();
+    assertTrue(deadline.isExpired());
+    assertThrows(DeadlineExceededException.class, deadline::check);
+  }
+
+  @Test
+  public void testCancellableChild() {
+    Deadline parent = Deadline.cancellable();
+    Deadline child = Deadline.cancellable(parent);
+    Deadline other = Deadline.cancellable(parent);
+    child.cancel();
+    assertTrue(child.isExpired());
+    assertFalse(parent.isExpired());
+    other.check();
+    parent.cancel();
+    assertTrue(other.isExpired());
+    assertThrows(DeadlineExceededException.class, other::check);
+    Deadline expired = Deadline.cancellable(Deadline.after(0, TimeUnit.MILLISECONDS));
+    assertTrue(expired.isExpired());
+    assertThrows(DeadlineExceededException.class, expired::check);
+    assertTrue(Deadline.cancellable(Deadline.none()).isBounded());
+  }
+
+  @Test
+  public void testAfter() {
+    assertFalse(Deadline.after(1, TimeUnit.HOURS).isExpired());
+    Deadline expired = Deadline.after(0, TimeUnit.MILLISECONDS);
+    assertTrue(expired.isExpired());
+    assertThrows(DeadlineExceededException.class, expired::check);
+  }
+
+  @Test
+  public void testAlgorithmsCheckDeadline() {
+    List<GeneralToken> a = GeneralToken.toList("abcdefghijklmnopqrstuvwxyz");
+    List<GeneralToken> b = GeneralToken.toList("abcdxfghijklmnopqrstuvwyz");
+    Deadline deadline = Deadline.cancellable();
+    deadline.cancel();
+    List<DiffAlgorithm<GeneralToken>> algorithms = Arrays.asList(
+        new MyersGreedyAlgorithm<>(),
+        new MyersLinearAlgorithm<>(),
+        new KumarRanganAlgorithm<>(),
+        new HirschbergAlgorithm<>(),
+        new WagnerFischerAlgorithm<>()
+    );
+    for (DiffAlgorithm<GeneralToken> algorithm : algorithms) {
+      assertThrows(DeadlineExceededException.class, () -> algorithm.diff(a, b, new OperationsBuffer<>(), deadline), algorithm.toString());
+      // Same results when the deadline is not reached
+      OperationsBuffer<GeneralToken> expected = new OperationsBuffer<>();
+      OperationsBuffer<GeneralToken> actual = new OperationsBuffer<>();
+      algorithm.diff(a, b, expected);
+      algorithm.diff(a, b, actual, Deadline.after(1, TimeUnit.HOURS));
+      assertEquals(expected.getOperations(), actual.getOperations(), algorithm.toString());
+    }
+  }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.BasicGeneralDiffTest;
+import org.pageseeder.diffx.algorithm.BasicXMLDiffTest;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.load.SAXLoader;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for adaptive XML processor.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class AdaptiveXMLProcessorTest {
+
+  private AdaptiveXMLProcessor newProcessor() {
+    return new AdaptiveXMLProcessor();
+  }
+
+  @Nested
+  public class GeneralDiff extends BasicGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class BasicXMLDiff extends BasicXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class AdvancedXMLDiff extends AdvancedXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class CoalesceXMLDiff extends CoalesceXMLDiffTest {
+    @Override
+    public DiffProcessor<XMLToken> getProcessor() {
+      AdaptiveXMLProcessor processor = newProcessor();
+      processor.setCoalesce(true);
+      return processor;
+    }
+  }
+
+  @Nested
+  public class RandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class LinearRandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      AdaptiveXMLProcessor processor = newProcessor();
+      processor.setThreshold(1);
+      processor.setDownscaleAllowed(false);
+      return processor;
+    }
+  }
+
+  @Test
+  public void testIdentical() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    String xml = "<a><b>X</b><c>Y</c></a>";
+    assertEquals(AdaptiveXMLProcessor.Strategy.IDENTICAL, diff(processor, xml, xml));
+  }
+
+  @Test
+  public void testTextOnly() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    List<XMLToken> from = load("<a><b>X</b><c>Y</c></a>");
+    List<XMLToken> to = load("<a><b>X</b><c>Z</c></a>");
+    AdaptiveXMLProcessor.Profile profile = processor.profile(from, to);
+    assertEquals(2, profile.getEditEstimate());
+    assertFalse(profile.hasStructuralChanges());
+    assertEquals(AdaptiveXMLProcessor.Strategy.FAST, processor.choose(profile));
+  }
+
+  @Test
+  public void testStructural() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    String xml1 = "<a><b>X</b><c>Y</c></a>";
+    String xml2 = "<a><b>X</b><d>Y</d></a>";
+    assertEquals(AdaptiveXMLProcessor.Strategy.MATRIX, diff(processor, xml1, xml2));
+  }
+
+  @Test
+  public void testStructuralAboveThreshold() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    processor.setThreshold(16);
+    processor.setDownscaleAllowed(false);
+    String xml1 = "<a><b>X</b><c>one two three four five six</c></a>";
+    String xml2 = "<a><b>X</b><d>one two three four five six</d></a>";
+    assertEquals(AdaptiveXMLProcessor.Strategy.LINEAR, diff(processor, xml1, xml2));
+  }
+
+  @Test
+  public void testMovedFallback() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    String xml1 = "<a><b><c>x</c></b></a>";
+    String xml2 = "<a><c><b>x</b></c></a>";
+    assertEquals(0, processor.profile(load(xml1), load(xml2)).getEditEstimate());
+    assertEquals(AdaptiveXMLProcessor.Strategy.MYERS_XML, diff(processor, xml1, xml2));
+    assertTrue(processor.hasFallenBack());
+  }
+
+  @Test
+  public void testMovedAboveThreshold() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    processor.setThreshold(16);
+    String xml1 = "<a><b><c>x</c></b></a>";
+    String xml2 = "<a><c><b>x</b></c></a>";
+    // The edits are underestimated, so the fast path fails but Myers XML must not be used
+    assertEquals(AdaptiveXMLProcessor.Strategy.LINEAR, diff(processor, xml1, xml2));
+    assertTrue(processor.hasFallenBack());
+  }
+
+  @Test
+  public void testCoalesceAboveThreshold() throws DiffException {
+    AdaptiveXMLProcessor processor = newProcessor();
+    processor.setThreshold(64);
+    String xml1 = "<a><b>The quick brown fox jumps over the lazy dog</b></a>";
+    String xml2 = "<a><c>The quick brown fox jumps over the lazy dog</c></a>";
+    List<XMLToken> from = load(xml1);
+    List<XMLToken> to = load(xml2);
+    AdaptiveXMLProcessor.Profile profile = processor.profile(from, to);
+    assertTrue(profile.getTextRatio() > .5);
+    assertEquals(AdaptiveXMLProcessor.Strategy.COALESCED_MATRIX, diff(processor, xml1, xml2));
+  }
+
+  private static AdaptiveXMLProcessor.Strategy diff(AdaptiveXMLProcessor processor, String xml1, String xml2) throws DiffException {
+    processor.diff(load(xml1), load(xml2), new OperationsBuffer<>());
+    return processor.getLastStrategy();
+  }
+
+  private static List<XMLToken> load(String xml) throws DiffException {
+    SAXLoader loader = new SAXLoader();
+    loader.setConfig(DiffConfig.getDefault().granularity(TextGranularity.SPACE_WORD));
+    return loader.load(xml).tokens();
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Test case for the batch diff.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class BatchXMLDiffTest {
+
+  private static Sequence load(String xml) throws LoadingException {
+    return TestTokens.loadSequence(xml, TextGranularity.SPACE_WORD);
+  }
+
+  @Test
+  public void testSingle() throws LoadingException {
+    BatchXMLDiff batch = new BatchXMLDiff(load("<a><p>The quick brown fox</p></a>"));
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    batch.diff(load("<a><p>The quick red fox</p></a>"), handler);
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", handler.getOutput());
+  }
+
+  @Test
+  public void testIdentical() throws LoadingException {
+    BatchXMLDiff batch = new BatchXMLDiff(load("<a><p>The quick brown fox</p></a>"));
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    batch.diff(load("<a><p>The quick brown fox</p></a>"), buffer);
+    assertEquals(0, buffer.countEdits());
+    assertEquals(batch.getBase().size(), buffer.getOperations().size());
+  }
+
+  @Test
+  public void testIdenticalCoalescing() throws LoadingException {
+    Sequence base = load("<a><p>The quick brown fox</p></a>");
+    BatchXMLDiff batch = new BatchXMLDiff(base);
+    batch.setProcessor(() -> {
+      OptimisticXMLProcessor processor = new OptimisticXMLProcessor();
+      processor.setCoalesce(true);
+      return processor;
+    });
+    OperationsBuffer<XMLToken> expected = new OperationsBuffer<>();
+    OptimisticXMLProcessor processor = new OptimisticXMLProcessor();
+    processor.setCoalesce(true);
+    processor.diff(base.tokens(), load("<a><p>The quick brown fox</p></a>").tokens(), expected);
+    OperationsBuffer<XMLToken> actual = new OperationsBuffer<>();
+    batch.diff(load("<a><p>The quick brown fox</p></a>"), actual);
+    assertEquals(expected.getOperations(), actual.getOperations());
+  }
+
+  @Test
+  public void testMany() throws LoadingException, DiffException {
+    BatchXMLDiff batch = new BatchXMLDiff(load("<a><p>The quick brown fox</p></a>"));
+    List<Sequence> targets = Arrays.asList(
+        load("<a><p>The quick red fox</p></a>"),
+        load("<a><p>The quick brown fox</p></a>"),
+        load("<a><p>The quick brown fox</p><p>jumps</p></a>"),
+        load("<a><p>A quick brown dog</p></a>")
+    );
+    List<String> expected = Arrays.asList(
+        "<a><p>The quick-( brown)+( red) fox</p></a>",
+        "<a><p>The quick brown fox</p></a>",
+        "<a><p>The quick brown fox</p>+<p>+(jumps)+</p></a>",
+        "<a><p>-(The)+A quick brown-( fox)+( dog)</p></a>"
+    );
+    List<TestHandler> handlers = new ArrayList<>();
+    for (int i = 0; i < targets.size(); i++) handlers.add(new TestHandler(NamespaceSet.noNamespace()));
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      batch.setExecutor(executor);
+      batch.diff(targets, handlers::get);
+    } finally {
+      executor.shutdown();
+    }
+    for (int i = 0; i < targets.size(); i++) {
+      assertEquals(expected.get(i), handlers.get(i).getOutput());
+    }
+  }
+
+  @Test
+  public void testFailure() throws LoadingException {
+    BatchXMLDiff batch = new BatchXMLDiff(load("<a><p>The quick brown fox</p></a>"));
+    List<Sequence> targets = Arrays.asList(load("<a><p>The quick red fox</p></a>"), load("<a/>"));
+    TestHandler ok = new TestHandler(NamespaceSet.noNamespace());
+    DiffHandler<XMLToken> failing = (operator, token) -> {
+      throw new IllegalStateException("Failing handler");
+    };
+    assertThrows(DiffException.class, () -> batch.diff(targets, i -> i == 0 ? ok : failing));
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", ok.getOutput());
+  }
+
+}
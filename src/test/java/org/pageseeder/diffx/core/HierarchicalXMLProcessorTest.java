@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.algorithm.BasicGeneralDiffTest;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.Sequence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test case for hierarchical XML processor.
+ *
+ * <p>Since elements can only be matched at the same level, this processor is not tested against the
+ * expected results of the basic and advanced XML tests which include wrapping and unwrapping elements.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class HierarchicalXMLProcessorTest {
+
+  private HierarchicalXMLProcessor newProcessor() {
+    return new HierarchicalXMLProcessor();
+  }
+
+  @Nested
+  public class GeneralDiff extends BasicGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class CoalesceXMLDiff extends CoalesceXMLDiffTest {
+    @Override
+    public DiffProcessor<XMLToken> getProcessor() {
+      HierarchicalXMLProcessor processor = new HierarchicalXMLProcessor();
+      processor.setCoalesce(true);
+      return processor;
+    }
+  }
+
+  @Nested
+  public class RandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Test
+  public void testChangeInLargeDocument() throws DiffException {
+    StringBuilder a = new StringBuilder("<body>");
+    StringBuilder b = new StringBuilder("<body>");
+    for (int i = 0; i < 1000; i++) {
+      a.append("<p id=\"").append(i).append("\">Paragraph <b>number</b> ").append(i).append("</p>");
+      b.append("<p id=\"").append(i).append("\">Paragraph <b>").append(i == 500 ? "item" : "number").append("</b> ").append(i).append("</p>");
+    }
+    a.append("</body>");
+    b.append("</body>");
+    Sequence seqA = TestTokens.loadSequence(a.toString(), TextGranularity.SPACE_WORD);
+    Sequence seqB = TestTokens.loadSequence(b.toString(), TextGranularity.SPACE_WORD);
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    newProcessor().diff(seqA.tokens(), seqB.tokens(), buffer);
+    assertEquals(2, buffer.countEdits());
+  }
+
+  @Test
+  public void testChangeAttribute() throws DiffException {
+    Sequence seqA = TestTokens.loadSequence("<a><b x=\"1\" y=\"2\">X</b><c/></a>", TextGranularity.SPACE_WORD);
+    Sequence seqB = TestTokens.loadSequence("<a><b x=\"1\" y=\"3\">X</b><c/></a>", TextGranularity.SPACE_WORD);
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    newProcessor().diff(seqA.tokens(), seqB.tokens(), buffer);
+    assertEquals(2, buffer.countEdits());
+  }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.action.Operation;
+import org.pageseeder.diffx.action.Operations;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.format.DefaultXMLDiffOutput;
+import org.pageseeder.diffx.test.DOMUtils;
+import org.pageseeder.diffx.test.DiffAssertions;
+import org.pageseeder.diffx.test.RandomXMLFactory;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+import org.w3c.dom.Document;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test case for the incremental diff.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class IncrementalXMLDiffTest {
+
+  private static Sequence load(String xml) throws LoadingException {
+    return TestTokens.loadSequence(xml, TextGranularity.SPACE_WORD);
+  }
+
+  private static String toOutput(IncrementalXMLDiff diff) {
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    diff.applyTo(handler);
+    return handler.getOutput();
+  }
+
+  @Test
+  public void testInitial() throws LoadingException {
+    IncrementalXMLDiff diff = new IncrementalXMLDiff(load("<a><p>The quick brown fox</p></a>"), load("<a><p>The quick red fox</p></a>"));
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", toOutput(diff));
+  }
+
+  @Test
+  public void testEditTo() throws LoadingException {
+    IncrementalXMLDiff diff = new IncrementalXMLDiff(load("<a><p>The quick brown fox</p></a>"), load("<a><p>The quick red fox</p></a>"));
+    // Replace " red" by " brown"
+    diff.editTo(4, 5, Collections.singletonList(TestTokens.toTextToken(" brown")));
+    assertEquals("<a><p>The quick brown fox</p></a>", toOutput(diff));
+    assertEquals(load("<a><p>The quick brown fox</p></a>").tokens(), diff.getTo());
+  }
+
+  @Test
+  public void testEditFrom() throws LoadingException {
+    IncrementalXMLDiff diff = new IncrementalXMLDiff(load("<a><p>The quick brown fox</p></a>"), load("<a><p>The quick red fox</p></a>"));
+    // Delete " fox"
+    diff.editFrom(5, 6, Collections.emptyList());
+    assertEquals("<a><p>The quick-( brown)+( red)+( fox)</p></a>", toOutput(diff));
+  }
+
+  @Test
+  public void testWindow() throws LoadingException {
+    StringBuilder xml = new StringBuilder("<a>");
+    for (int i = 0; i < 200; i++) xml.append("<p>Paragraph ").append(i).append("</p>");
+    xml.append("</a>");
+    Sequence seq = load(xml.toString());
+    IncrementalXMLDiff diff = new IncrementalXMLDiff(seq, seq);
+    diff.setContext(2);
+    int index = seq.tokens().indexOf(TestTokens.toTextToken(" 100"));
+    int recomputed = diff.editTo(index, index + 1, Collections.singletonList(TestTokens.toTextToken(" 101")));
+    assertTrue(recomputed < 20, "Recomputed " + recomputed + " operations");
+    assertEquals(2, countEdits(diff));
+  }
+
+  @Test
+  public void testInvalidRange() throws LoadingException {
+    Sequence seq = load("<a><p>The quick brown fox</p></a>");
+    IncrementalXMLDiff diff = new IncrementalXMLDiff(seq, seq);
+    assertThrows(IndexOutOfBoundsException.class, () -> diff.editFrom(5, 10, Collections.emptyList()));
+  }
+
+  @Test
+  public void testRandom() throws LoadingException {
+    RandomXMLFactory factory = new RandomXMLFactory();
+    Random random = new Random();
+    for (int i = 0; i < 50; i++) {
+      Document docA = factory.getRandomXML(3, 3);
+      Document docB = factory.vary(docA, .2);
+      IncrementalXMLDiff diff = new IncrementalXMLDiff(load(DOMUtils.toString(docA, true)), load(DOMUtils.toString(docB, true)));
+      for (int j = 0; j < 20; j++) {
+        boolean first = random.nextBoolean();
+        List<XMLToken> tokens = first ? diff.getFrom() : diff.getTo();
+        int index = random.nextInt(tokens.size());
+        if (!(tokens.get(index) instanceof TextToken)) continue;
+        List<XMLToken> replacement = random.nextInt(3) == 0 ? Collections.emptyList()
+            : Collections.singletonList(TestTokens.toTextToken(" w" + random.nextInt(5)));
+        int end = random.nextBoolean() ? index + 1 : index;
+        if (first) diff.editFrom(index, end, replacement);
+        else diff.editTo(index, end, replacement);
+        assertIsCorrect(diff);
+      }
+    }
+  }
+
+  private static void assertIsCorrect(IncrementalXMLDiff diff) {
+    assertEquals(diff.getFrom(), Operations.generate(diff.getOperations(), false));
+    assertEquals(diff.getTo(), Operations.generate(diff.getOperations(), true));
+    StringWriter xml = new StringWriter();
+    diff.applyTo(new DefaultXMLDiffOutput(xml));
+    DiffAssertions.assertIsWellFormedXML(xml.toString());
+  }
+
+  private static int countEdits(IncrementalXMLDiff diff) {
+    int edits = 0;
+    for (Operation<XMLToken> operation : diff.getOperations()) {
+      if (operation.operator().isEdit()) edits++;
+    }
+    return edits;
+  }
+
+}
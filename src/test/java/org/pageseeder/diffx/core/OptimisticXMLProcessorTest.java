@@ -16,10 +16,26 @@
 package org.pageseeder.diffx.core;
 
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.ActionsBuffer;
 import org.pageseeder.diffx.algorithm.BasicGeneralDiffTest;
 import org.pageseeder.diffx.algorithm.BasicXMLDiffTest;
+import org.pageseeder.diffx.algorithm.HistogramAlgorithm;
+import org.pageseeder.diffx.api.Deadline;
 import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.test.DiffAssertions;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.test.TestTokens;
 import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * Test case for progressive XML processor.
@@ -77,4 +93,86 @@ public final class OptimisticXMLProcessorTest {
     }
   }
 
+  @Nested
+  public class HistogramBasicXMLDiff extends BasicXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      OptimisticXMLProcessor processor = newProcessor();
+      processor.setFastAlgorithm(new HistogramAlgorithm<>());
+      return processor;
+    }
+  }
+
+  @Nested
+  public class HistogramRandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      OptimisticXMLProcessor processor = newProcessor();
+      processor.setFastAlgorithm(new HistogramAlgorithm<>());
+      return processor;
+    }
+  }
+
+  @Nested
+  public class SpeculativeGeneralDiff extends BasicGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      OptimisticXMLProcessor processor = newProcessor();
+      processor.setExecutor(ForkJoinPool.commonPool());
+      return processor;
+    }
+  }
+
+  @Nested
+  public class SpeculativeBasicXMLDiff extends BasicXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      OptimisticXMLProcessor processor = newProcessor();
+      processor.setExecutor(ForkJoinPool.commonPool());
+      return processor;
+    }
+  }
+
+  @Nested
+  public class SpeculativeRandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      OptimisticXMLProcessor processor = newProcessor();
+      processor.setExecutor(ForkJoinPool.commonPool());
+      return processor;
+    }
+  }
+
+  @Test
+  public void testDeadline() throws DiffException {
+    List<XMLToken> from = TestTokens.loadTokens("<a><b>X</b><c>Y Z</c><d>Z</d></a>", TextGranularity.SPACE_WORD);
+    List<XMLToken> to = TestTokens.loadTokens("<a><b>X</b><c>Y W</c><d>Z</d></a>", TextGranularity.SPACE_WORD);
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    newProcessor().diff(from, to, handler, Deadline.after(1, TimeUnit.HOURS));
+    assertEquals("<a><b>X</b><c>Y-( Z)+( W)</c><d>Z</d></a>", handler.getOutput());
+  }
+
+  @Test
+  public void testExpiredDeadline() throws DiffException {
+    List<XMLToken> from = TestTokens.loadTokens("<a><b>X</b><c>Y Z</c><d>Z</d></a>", TextGranularity.SPACE_WORD);
+    List<XMLToken> to = TestTokens.loadTokens("<a><b>X</b><c>Y W</c><d>Z</d></a>", TextGranularity.SPACE_WORD);
+    Deadline deadline = Deadline.cancellable();
+    deadline.cancel();
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    newProcessor().diff(from, to, handler, deadline);
+    assertEquals("<a><b>X</b>-<c>-Y-( Z)-</c>+<c>+Y+( W)+</c><d>Z</d></a>", handler.getOutput());
+  }
+
+  @Test
+  public void testExpiredDeadlineAttributes() throws DiffException {
+    List<XMLToken> from = TestTokens.loadTokens("<root a='1'><x/></root>", TextGranularity.SPACE_WORD);
+    List<XMLToken> to = TestTokens.loadTokens("<root a='2'><y/></root>", TextGranularity.SPACE_WORD);
+    Deadline deadline = Deadline.cancellable();
+    deadline.cancel();
+    ActionsBuffer<XMLToken> buffer = new ActionsBuffer<>();
+    newProcessor().diff(from, to, buffer, deadline);
+    DiffAssertions.assertIsCorrect(from, to, buffer.getActions());
+    DiffAssertions.assertIsWellFormedXML(buffer.getActions());
+  }
+
 }
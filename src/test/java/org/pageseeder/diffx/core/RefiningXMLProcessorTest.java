@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.algorithm.BasicGeneralDiffTest;
+import org.pageseeder.diffx.algorithm.BasicXMLDiffTest;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test case for the refining XML processor.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class RefiningXMLProcessorTest {
+
+  private RefiningXMLProcessor newProcessor() {
+    return new RefiningXMLProcessor();
+  }
+
+  @Nested
+  public class GeneralDiff extends BasicGeneralDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class BasicXMLDiff extends BasicXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Nested
+  public class CoalesceXMLDiff extends CoalesceXMLDiffTest {
+    @Override
+    public DiffProcessor<XMLToken> getProcessor() {
+      RefiningXMLProcessor processor = newProcessor();
+      processor.setCoalesce(true);
+      return processor;
+    }
+  }
+
+  @Nested
+  public class RandomXMLDiff extends RandomXMLDiffTest {
+    @Override
+    public DiffAlgorithm<XMLToken> getDiffAlgorithm() {
+      return newProcessor();
+    }
+  }
+
+  @Test
+  public void testIdentical() throws DiffException {
+    String xml = "<a><p>The quick brown fox</p><p>jumps over the lazy dog</p></a>";
+    assertEquals(xml, diff(xml, xml));
+  }
+
+  @Test
+  public void testChangedParagraph() throws DiffException {
+    String xml1 = "<a><p>The quick brown fox</p><p>jumps over the lazy dog</p></a>";
+    String xml2 = "<a><p>The quick red fox</p><p>jumps over the lazy dog</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p><p>jumps over the lazy dog</p></a>", diff(xml1, xml2));
+  }
+
+  @Test
+  public void testChangedTextAndElement() throws DiffException {
+    String xml1 = "<a><p>The quick brown fox</p></a>";
+    String xml2 = "<a><p>The quick red fox<b>!</b></p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox+<b>+!+</b></p></a>", diff(xml1, xml2));
+  }
+
+  @Test
+  public void testCharacterGranularity() throws DiffException {
+    String xml1 = "<a><p>colour</p></a>";
+    String xml2 = "<a><p>color</p></a>";
+    RefiningXMLProcessor processor = newProcessor();
+    processor.setConfig(DiffConfig.getDefault().granularity(TextGranularity.CHARACTER));
+    assertEquals("<a><p>colo-ur</p></a>", diff(processor, xml1, xml2));
+  }
+
+  private String diff(String xml1, String xml2) throws DiffException {
+    return diff(newProcessor(), xml1, xml2);
+  }
+
+  private static String diff(RefiningXMLProcessor processor, String xml1, String xml2) throws DiffException {
+    List<XMLToken> from = TestTokens.loadTokens(xml1, TextGranularity.TEXT);
+    List<XMLToken> to = TestTokens.loadTokens(xml2, TextGranularity.TEXT);
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    processor.diff(from, to, handler);
+    return handler.getOutput();
+  }
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.action.Operations;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.format.DefaultXMLDiffOutput;
+import org.pageseeder.diffx.load.XMLStreamLoader;
+import org.pageseeder.diffx.test.DOMUtils;
+import org.pageseeder.diffx.test.DiffAssertions;
+import org.pageseeder.diffx.test.RandomXMLFactory;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.w3c.dom.Document;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test case for the streaming diff.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class StreamingXMLDiffTest {
+
+  private static XMLStreamReader toReader(String xml) throws XMLStreamException {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+    return factory.createXMLStreamReader(new StringReader(xml));
+  }
+
+  private static String diff(String from, String to, int window) throws XMLStreamException, LoadingException {
+    StreamingXMLDiff diff = new StreamingXMLDiff();
+    diff.setWindow(window);
+    TestHandler handler = new TestHandler(NamespaceSet.noNamespace());
+    diff.diff(toReader(from), toReader(to), handler);
+    return handler.getOutput();
+  }
+
+  @Test
+  public void testIdentical() throws XMLStreamException, LoadingException {
+    String xml = "<a><p>The quick brown fox</p></a>";
+    assertEquals(xml, diff(xml, xml, 16));
+  }
+
+  @Test
+  public void testText() throws XMLStreamException, LoadingException {
+    String from = "<a><p>The quick brown fox</p></a>";
+    String to = "<a><p>The quick red fox</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", diff(from, to, 16));
+  }
+
+  @Test
+  public void testAttributes() throws XMLStreamException, LoadingException {
+    String from = "<a x='1'><p>The quick brown fox</p></a>";
+    String to = "<a x='2'><p>The quick brown fox</p></a>";
+    assertEquals("<a>-@(x=1)+@(x=2)<p>The quick brown fox</p></a>", diff(from, to, 16));
+  }
+
+  @Test
+  public void testElementLargerThanWindow() throws XMLStreamException, LoadingException {
+    String from = "<a><p>The quick brown fox jumps over the lazy dog again and again</p></a>";
+    String to = "<a><h1>The quick brown fox jumps over the lazy dog again and again</h1></a>";
+    assertValid(from, to, 10);
+  }
+
+  @Test
+  public void testLargeDocument() throws XMLStreamException, LoadingException {
+    StringBuilder from = new StringBuilder("<a>");
+    StringBuilder to = new StringBuilder("<a>");
+    for (int i = 0; i < 2000; i++) {
+      from.append("<p>Paragraph number ").append(i).append("</p>");
+      to.append("<p>Paragraph number ").append(i % 500 == 0 ? "x" : String.valueOf(i)).append("</p>");
+    }
+    from.append("</a>");
+    to.append("</a>");
+    OperationsBuffer<XMLToken> buffer = assertValid(from.toString(), to.toString(), 64);
+    assertEquals(8, buffer.countEdits());
+  }
+
+  @Test
+  public void testRandom() throws XMLStreamException, LoadingException {
+    RandomXMLFactory factory = new RandomXMLFactory();
+    for (int i = 0; i < 100; i++) {
+      Document docA = factory.getRandomXML(3, 3);
+      Document docB = factory.vary(docA, .2);
+      String from = DOMUtils.toString(docA, true);
+      String to = DOMUtils.toString(docB, true);
+      assertValid(from, to, 16);
+      assertValid(from, to, 256);
+    }
+  }
+
+  private static OperationsBuffer<XMLToken> assertValid(String from, String to, int window) throws XMLStreamException, LoadingException {
+    StreamingXMLDiff diff = new StreamingXMLDiff();
+    diff.setWindow(window);
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    diff.diff(toReader(from), toReader(to), buffer);
+    // Results must be consistent with the documents loaded in full
+    XMLStreamLoader loader = new XMLStreamLoader();
+    loader.setConfig(DiffConfig.getDefault());
+    assertEquals(loader.load(toReader(from)).tokens(), Operations.generate(buffer.getOperations(), false));
+    assertEquals(loader.load(toReader(to)).tokens(), Operations.generate(buffer.getOperations(), true));
+    StringWriter xml = new StringWriter();
+    buffer.applyTo(new DefaultXMLDiffOutput(xml));
+    DiffAssertions.assertIsWellFormedXML(xml.toString());
+    return buffer;
+  }
+
+}
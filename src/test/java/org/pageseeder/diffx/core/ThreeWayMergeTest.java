@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.core;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.action.Operations;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.format.DefaultXMLDiffOutput;
+import org.pageseeder.diffx.test.DOMUtils;
+import org.pageseeder.diffx.test.DiffAssertions;
+import org.pageseeder.diffx.test.RandomXMLFactory;
+import org.pageseeder.diffx.test.TestHandler;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.NamespaceSet;
+import org.pageseeder.diffx.xml.Sequence;
+import org.w3c.dom.Document;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test case for the three-way merge.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class ThreeWayMergeTest {
+
+  private static Sequence load(String xml) throws LoadingException {
+    return TestTokens.loadSequence(xml, TextGranularity.SPACE_WORD);
+  }
+
+  private static String merge(String base, String ours, String theirs, int conflicts) throws DiffException {
+    ThreeWayMerge merge = new ThreeWayMerge(load(base));
+    TestHandler handler = new TestHandler(new NamespaceSet(ThreeWayMerge.NAMESPACE));
+    assertEquals(conflicts, merge.merge(load(ours), load(theirs), handler));
+    return handler.getOutput();
+  }
+
+  @Test
+  public void testIdentical() throws DiffException {
+    String xml = "<a><p>The quick brown fox</p></a>";
+    assertEquals(xml, merge(xml, xml, xml, 0));
+  }
+
+  @Test
+  public void testOursOnly() throws DiffException {
+    String base = "<a><p>The quick brown fox</p></a>";
+    String ours = "<a><p>The quick red fox</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", merge(base, ours, base, 0));
+  }
+
+  @Test
+  public void testTheirsOnly() throws DiffException {
+    String base = "<a><p>The quick brown fox</p></a>";
+    String theirs = "<a><p>The quick red fox</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", merge(base, base, theirs, 0));
+  }
+
+  @Test
+  public void testSameChange() throws DiffException {
+    String base = "<a><p>The quick brown fox</p></a>";
+    String both = "<a><p>The quick red fox</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p></a>", merge(base, both, both, 0));
+  }
+
+  @Test
+  public void testSeparateChanges() throws DiffException {
+    String base = "<a><p>The quick brown fox</p><p>jumps over the dog</p></a>";
+    String ours = "<a><p>The quick red fox</p><p>jumps over the dog</p></a>";
+    String theirs = "<a><p>The quick brown fox</p><p>jumps over the lazy dog</p></a>";
+    assertEquals("<a><p>The quick-( brown)+( red) fox</p><p>jumps over the+( lazy) dog</p></a>", merge(base, ours, theirs, 0));
+  }
+
+  @Test
+  public void testConflict() throws DiffException {
+    String base = "<a><p>The quick brown fox</p></a>";
+    String ours = "<a><p>The quick red fox</p></a>";
+    String theirs = "<a><p>The quick white fox</p></a>";
+    assertEquals("<a><p>The quick<diff:conflict><diff:ours>-( brown)+( red)</diff:ours><diff:theirs>-( brown)+( white)</diff:theirs></diff:conflict> fox</p></a>",
+        merge(base, ours, theirs, 1));
+  }
+
+  @Test
+  public void testConflictElement() throws DiffException {
+    String base = "<a><p>The quick brown fox</p></a>";
+    String ours = "<a><h1>The quick brown fox</h1></a>";
+    String theirs = "<a><p>The quick white fox</p></a>";
+    assertEquals(1, count(base, ours, theirs));
+  }
+
+  @Test
+  public void testAttributes() throws DiffException {
+    String base = "<a x='1' y='2'><p>The quick brown fox</p></a>";
+    String ours = "<a x='3' y='2'><p>The quick brown fox</p></a>";
+    String theirs = "<a x='1' y='4' z='5'><p>The quick brown fox</p></a>";
+    assertEquals("<a>-@(x=1)+@(x=3)-@(y=2)+@(y=4)+@(z=5)<p>The quick brown fox</p></a>", merge(base, ours, theirs, 0));
+  }
+
+  @Test
+  public void testAttributeConflict() throws DiffException {
+    String base = "<a x='1'><p>The quick brown fox</p></a>";
+    String ours = "<a x='2'><p>The quick brown fox</p></a>";
+    String theirs = "<a x='3'><p>The quick brown fox</p></a>";
+    assertEquals(1, count(base, ours, theirs));
+  }
+
+  @Test
+  public void testOutput() throws DiffException {
+    ThreeWayMerge merge = new ThreeWayMerge(load("<a><p>The quick brown fox</p></a>"));
+    StringWriter xml = new StringWriter();
+    DefaultXMLDiffOutput output = new DefaultXMLDiffOutput(xml);
+    merge.merge(load("<a><p>The quick red fox</p></a>"), load("<a><p>The slow brown fox</p></a>"), output);
+    DiffAssertions.assertIsWellFormedXML(xml.toString());
+  }
+
+  @Test
+  public void testRandom() throws DiffException {
+    RandomXMLFactory factory = new RandomXMLFactory();
+    for (int i = 0; i < 100; i++) {
+      Document base = factory.getRandomXML(3, 3);
+      Sequence a = load(DOMUtils.toString(base, true));
+      Sequence b = load(DOMUtils.toString(factory.vary(base, .2), true));
+      Sequence c = load(DOMUtils.toString(factory.vary(base, .2), true));
+      ThreeWayMerge merge = new ThreeWayMerge(a);
+      // A one-sided change is the change itself
+      assertEquals(b.tokens(), apply(merge, b, a));
+      assertEquals(c.tokens(), apply(merge, a, c));
+      // Any merge is well-formed
+      StringWriter xml = new StringWriter();
+      merge.merge(b, c, new DefaultXMLDiffOutput(xml));
+      DiffAssertions.assertIsWellFormedXML(xml.toString());
+    }
+  }
+
+  private static int count(String base, String ours, String theirs) throws DiffException {
+    ThreeWayMerge merge = new ThreeWayMerge(load(base));
+    StringWriter xml = new StringWriter();
+    int conflicts = merge.merge(load(ours), load(theirs), new DefaultXMLDiffOutput(xml));
+    DiffAssertions.assertIsWellFormedXML(xml.toString());
+    return conflicts;
+  }
+
+  private static List<XMLToken> apply(ThreeWayMerge merge, Sequence ours, Sequence theirs) throws DiffException {
+    OperationsBuffer<XMLToken> buffer = new OperationsBuffer<>();
+    merge.merge(ours, theirs, buffer);
+    return Operations.generate(buffer.getOperations(), true);
+  }
+
+}
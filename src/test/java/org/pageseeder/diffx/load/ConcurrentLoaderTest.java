@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.xml.Sequence;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class ConcurrentLoaderTest {
+
+  private static final DiffConfig CONFIG = DiffConfig.getDefault().granularity(TextGranularity.SPACE_WORD);
+
+  private static final Supplier<XMLLoader> SAX = () -> {
+    SAXLoader loader = new SAXLoader();
+    loader.setConfig(CONFIG);
+    return loader;
+  };
+
+  @Test
+  public void testLoad() throws LoadingException, IOException {
+    String xmlA = largeDocument("brown");
+    String xmlB = largeDocument("red");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      ConcurrentLoader loader = new ConcurrentLoader(SAX, executor);
+      loader.setTextThreshold(16);
+      Sequence[] sequences = loader.load(source(xmlA), source(xmlB));
+      assertEquals(SAX.get().load(source(xmlA)), sequences[0]);
+      assertEquals(SAX.get().load(source(xmlB)), sequences[1]);
+      // Tokens are shared between both documents
+      assertSame(sequences[0].getToken(0), sequences[1].getToken(0));
+      assertSame(sequences[0].getToken(2), sequences[1].getToken(2));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testOtherLoader() throws LoadingException, IOException {
+    ConcurrentLoader loader = new ConcurrentLoader(() -> {
+      XMLStreamLoader stream = new XMLStreamLoader();
+      stream.setConfig(CONFIG);
+      return stream;
+    });
+    Sequence[] sequences = loader.load(source("<p>A B</p>"), source("<p>A C</p>"));
+    assertEquals(SAX.get().load(source("<p>A B</p>")), sequences[0]);
+    assertEquals(SAX.get().load(source("<p>A C</p>")), sequences[1]);
+  }
+
+  @Test
+  public void testRejectingExecutor() throws LoadingException, IOException {
+    ConcurrentLoader loader = new ConcurrentLoader(SAX, runnable -> {
+      throw new RejectedExecutionException();
+    });
+    loader.setTextThreshold(1);
+    String xml = largeDocument("brown");
+    Sequence[] sequences = loader.load(source(xml), source(xml));
+    assertEquals(SAX.get().load(source(xml)), sequences[0]);
+    assertEquals(sequences[0], sequences[1]);
+  }
+
+  @Test
+  public void testError() {
+    ConcurrentLoader loader = new ConcurrentLoader(SAX);
+    assertThrows(LoadingException.class, () -> loader.load(source("<p>A</p>"), source("<p>")));
+    assertThrows(LoadingException.class, () -> loader.load(source("<p>"), source("<p>A</p>")));
+  }
+
+  private static InputSource source(String xml) {
+    return new InputSource(new StringReader(xml));
+  }
+
+  private static String largeDocument(String color) {
+    StringBuilder xml = new StringBuilder("<doc>");
+    for (int i = 0; i < 200; i++) {
+      xml.append("<p id='").append(i).append("'>The quick ").append(color).append(" fox jumps over the lazy dog ").append(i).append("</p>");
+    }
+    return xml.append("</doc>").toString();
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.core.TextOnlyProcessor;
+import org.pageseeder.diffx.test.TestUtils;
+import org.pageseeder.diffx.token.impl.LineToken;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class MappedLineLoaderTest {
+
+  final MappedLineLoader loader = new MappedLineLoader();
+
+  @Test
+  public void testSimpleLine() {
+    assertSameLines("line 1\nline2\n");
+    assertSameLines("line #1\nline #2\nline #3\nline #4");
+  }
+
+  @Test
+  public void testEmptyLines() {
+    assertSameLines("");
+    assertSameLines("\n");
+    assertSameLines("line #1\n\nline #3\n\n");
+  }
+
+  @Test
+  public void testLineTerminators() {
+    assertSameLines("line #1\r\nline #2\r\n");
+    assertSameLines("line #1\rline #2\r");
+    assertSameLines("line #1\r\rline #3\n\r\nline #5");
+  }
+
+  @Test
+  public void testEncoding() {
+    assertSameLines("café\n耒\n&lt;");
+  }
+
+  @Test
+  public void testEquals() {
+    MappedLines a = this.loader.load("A\nB\nC\nA");
+    MappedLines b = this.loader.load("A\r\nC\r\nB");
+    assertEquals(a.get(0), b.get(0));
+    assertEquals(a.get(0), a.get(3));
+    assertEquals(a.get(1), b.get(2));
+    assertEquals(a.get(1).hashCode(), b.get(2).hashCode());
+    assertNotEquals(a.get(1), b.get(1));
+    assertNotEquals(a.get(0), new LineToken("A", 1));
+  }
+
+  @Test
+  public void testFile() throws IOException {
+    File dir = TestUtils.getTempDirectory(MappedLineLoader.class);
+    dir.mkdirs();
+    File from = new File(dir, "from.txt");
+    File to = new File(dir, "to.txt");
+    Files.write(from.toPath(), "alpha\nbeta\ngamma\ndelta\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(to.toPath(), "alpha\ngamma\ndelta\nepsilon\n".getBytes(StandardCharsets.UTF_8));
+    MappedLines a = this.loader.load(from, StandardCharsets.UTF_8);
+    MappedLines b = this.loader.load(to, StandardCharsets.UTF_8);
+    assertEquals(4, a.size());
+    assertEquals("gamma", a.get(2).getCharacters());
+    assertEquals(3, a.get(2).getLineNumber());
+    OperationsBuffer<MappedLineToken> buffer = new OperationsBuffer<>();
+    new TextOnlyProcessor<MappedLineToken>().diff(a, b, buffer);
+    assertEquals(5, buffer.getOperations().size());
+  }
+
+  @Test
+  public void testUnsupportedCharset() {
+    File file = new File(TestUtils.getTempDirectory(MappedLineLoader.class), "none.txt");
+    assertThrows(IllegalArgumentException.class, () -> this.loader.load(file, StandardCharsets.UTF_16));
+  }
+
+  /**
+   * Checks that the lines are the same as the lines loaded by the line loader.
+   *
+   * @param text The text to load
+   */
+  private void assertSameLines(String text) {
+    List<LineToken> exp = new LineLoader().load(text);
+    MappedLines lines = this.loader.load(text);
+    List<String> got = new ArrayList<>();
+    for (MappedLineToken line : lines) got.add(line.getCharacters());
+    List<String> expected = new ArrayList<>();
+    for (LineToken line : exp) expected.add(line.getCharacters());
+    assertEquals(expected, got);
+  }
+
+}
@@ -18,6 +18,9 @@ package org.pageseeder.diffx.load;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.token.TokenPool;
+
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * @author Christophe Lauret
@@ -31,6 +34,14 @@ public final class SAXLoaderTest {
     return recorder;
   }
 
+  public XMLLoader configureConcurrentLoader(DiffConfig config) {
+    SAXLoader recorder = new SAXLoader();
+    recorder.setConfig(config);
+    recorder.setTokenPool(new TokenPool());
+    recorder.setTextExecutor(ForkJoinPool.commonPool(), 1);
+    return recorder;
+  }
+
   @Nested
   @DisplayName("Text / No namespace")
   public class Text_NoNamespace extends XMLLoader_Text_NoNS {
@@ -66,4 +77,22 @@ public final class SAXLoaderTest {
       return configureLoader(config);
     }
   }
+
+  @Nested
+  @DisplayName("Word / Namespace aware / Text executor")
+  public class Word_NamespaceAware_Concurrent extends XMLLoader_Word_NS {
+    @Override
+    public XMLLoader newXMLLoader(DiffConfig config) {
+      return configureConcurrentLoader(config);
+    }
+  }
+
+  @Nested
+  @DisplayName("SpaceWord / Namespace aware / Text executor")
+  public class SpaceWord_NamespaceAware_Concurrent extends XMLLoader_SpaceWord_NS {
+    @Override
+    public XMLLoader newXMLLoader(DiffConfig config) {
+      return configureConcurrentLoader(config);
+    }
+  }
 }
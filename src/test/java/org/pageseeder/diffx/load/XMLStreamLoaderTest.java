@@ -17,7 +17,18 @@ package org.pageseeder.diffx.load;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.api.LoadingException;
 import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.token.XMLToken;
+import org.pageseeder.diffx.xml.Sequence;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
  * @author Christophe Lauret
@@ -31,6 +42,18 @@ public final class XMLStreamLoaderTest {
     return loader;
   }
 
+  @Test
+  public void testStream() throws LoadingException, XMLStreamException {
+    String xml = "<a xmlns:x='https://example.org/x' x:b='1'><p>The quick <x:i>brown</x:i> fox</p><!-- comment --></a>";
+    XMLStreamLoader loader = new XMLStreamLoader();
+    Sequence sequence = loader.load(xml);
+    XMLTokenStream stream = loader.stream(XMLStreamLoader.toFactory(loader.getConfig()).createXMLStreamReader(new StringReader(xml)));
+    List<XMLToken> tokens = new ArrayList<>();
+    for (XMLToken token = stream.next(); token != null; token = stream.next()) tokens.add(token);
+    assertEquals(sequence.tokens(), tokens);
+    assertEquals(sequence.getNamespaces(), stream.getNamespaces());
+  }
+
   @Nested
   @DisplayName("Text / No namespace")
   public class Text_NoNamespace extends XMLLoader_Text_NoNS {
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load.text;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.TokenPool;
+import org.pageseeder.diffx.token.impl.WordToken;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class RecyclingTableTest {
+
+  @Test
+  public void testGet() {
+    RecyclingTable table = new RecyclingTable(null);
+    TextToken token = new WordToken("cat");
+    table.put(token, "cat".hashCode());
+    assertSame(token, table.get("the cat sat", 4, 7, "cat".hashCode()));
+    assertSame(token, table.get(new StringBuilder("cat"), 0, 3, "cat".hashCode()));
+    assertNull(table.get("the cat sat", 0, 3, "the".hashCode()));
+    assertNull(table.get("cats", 0, 4, "cats".hashCode()));
+  }
+
+  @Test
+  public void testCollisions() {
+    // "Aa" and "BB" have the same hash code
+    RecyclingTable table = new RecyclingTable(null);
+    TextToken aa = new WordToken("Aa");
+    TextToken bb = new WordToken("BB");
+    table.put(aa, "Aa".hashCode());
+    table.put(bb, "BB".hashCode());
+    assertSame(aa, table.get("Aa", 0, 2, "Aa".hashCode()));
+    assertSame(bb, table.get("BB", 0, 2, "BB".hashCode()));
+  }
+
+  @Test
+  public void testResize() {
+    RecyclingTable table = new RecyclingTable(null);
+    for (int i = 0; i < 1000; i++) {
+      String word = "w" + i;
+      table.put(new WordToken(word), word.hashCode());
+    }
+    assertEquals(1000, table.size());
+    for (int i = 0; i < 1000; i++) {
+      String word = "w" + i;
+      assertEquals(word, table.get(word, 0, word.length(), word.hashCode()).getCharacters());
+    }
+  }
+
+  @Test
+  public void testPool() {
+    TokenPool pool = new TokenPool();
+    TextToken canonical = pool.intern(new WordToken("cat"));
+    RecyclingTable table = new RecyclingTable(pool);
+    assertSame(canonical, table.put(new WordToken("cat"), "cat".hashCode()));
+    assertSame(canonical, table.get("cat", 0, 3, "cat".hashCode()));
+  }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.load.text;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.config.WhiteSpaceProcessing;
+import org.pageseeder.diffx.token.TextToken;
+import org.pageseeder.diffx.token.impl.CharactersToken;
+import org.pageseeder.diffx.token.impl.IgnorableSpaceToken;
+import org.pageseeder.diffx.token.impl.SpaceToken;
+import org.pageseeder.diffx.token.impl.WordToken;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Checks that the scanning tokenizers produce the same tokens as the regular expressions they replace.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class TokenizerScanTest {
+
+  private static final Pattern WORD = Pattern.compile("\\s+");
+
+  private static final Pattern SPACE_WORD = Pattern.compile("( ?[\\p{L}\\p{M}0-9_'@/$.-]*[\\p{L}\\p{M}0-9_%])|(\\S)|( ?[\"(][^ \\t\\r\\n\\f'\"()]+[\")])");
+
+  private static final Pattern PUNCTUATION = Pattern.compile("[.,?!;]+");
+
+  /**
+   * Characters likely to hit every branch of the scanners, including a supplementary letter and a mark.
+   */
+  private static final String[] ALPHABET = {
+      "a", "B", "é", "7", "_", "'", "@", "/", "$", ".", "-", "%", "\"", "(", ")", ",", "?", "!", ";",
+      " ", " ", " ", "\t", "\n", "\r", "\f", "\u000B", " ", "́", "𝐀", "#", "+"
+  };
+
+  @Test
+  public void testRandom() {
+    Random random = new Random(42);
+    for (int n = 0; n < 5_000; n++) {
+      String text = randomText(random, random.nextInt(40) + 1);
+      for (WhiteSpaceProcessing whitespace : WhiteSpaceProcessing.values()) {
+        assertEquals(byWord(text, whitespace), TokenizerByWord.tokenize(text, whitespace), text);
+        assertEquals(bySpaceWord(text, whitespace), TokenizerBySpaceWord.tokenize(text, whitespace), text);
+        assertEquals(byPunctuation(text, whitespace), TokenizerByPunctuation.tokenize(text, whitespace), text);
+      }
+    }
+  }
+
+  @Test
+  public void testRecycling() {
+    TextTokenizer tokenizer = new TokenizerBySpaceWord(WhiteSpaceProcessing.PRESERVE);
+    List<TextToken> first = tokenizer.tokenize("The cat (and) the dog");
+    List<TextToken> second = tokenizer.tokenize(new StringBuilder("The dog (and) the cat"));
+    assertSame(first.get(0), second.get(0));
+    assertSame(first.get(1), second.get(4));
+    assertSame(first.get(2), second.get(2));
+    assertSame(first.get(4), second.get(1));
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      text.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+    }
+    return text.toString();
+  }
+
+  private static List<TextToken> byWord(String text, WhiteSpaceProcessing whitespace) {
+    List<TextToken> tokens = new ArrayList<>();
+    Matcher m = WORD.matcher(text);
+    int index = 0;
+    while (m.find()) {
+      if (index != m.start()) tokens.add(new WordToken(text.substring(index, m.start())));
+      if (whitespace != WhiteSpaceProcessing.IGNORE) tokens.add(space(text.substring(m.start(), m.end()), whitespace));
+      index = m.end();
+    }
+    if (index != text.length()) tokens.add(new WordToken(text.substring(index)));
+    return tokens;
+  }
+
+  private static List<TextToken> bySpaceWord(String text, WhiteSpaceProcessing whitespace) {
+    List<TextToken> tokens = new ArrayList<>();
+    Matcher m = SPACE_WORD.matcher(text);
+    int index = 0;
+    while (m.find()) {
+      if (index != m.start() && whitespace != WhiteSpaceProcessing.IGNORE) {
+        tokens.add(space(text.substring(index, m.start()), whitespace));
+      }
+      tokens.add(new WordToken(text.substring(m.start(), m.end())));
+      index = m.end();
+    }
+    if (index != text.length()) tokens.add(space(text.substring(index), whitespace));
+    return tokens;
+  }
+
+  private static List<TextToken> byPunctuation(String text, WhiteSpaceProcessing whitespace) {
+    List<TextToken> tokens = new ArrayList<>();
+    Matcher m = PUNCTUATION.matcher(text);
+    int index = 0;
+    while (m.find()) {
+      tokens.add(new CharactersToken(text.substring(index, m.end())));
+      index = m.end();
+    }
+    if (index != text.length()) {
+      String chunk = text.substring(index);
+      if (!Tokenizers.isWhitespace(chunk)) tokens.add(new CharactersToken(chunk));
+      else if (whitespace != WhiteSpaceProcessing.IGNORE) tokens.add(new IgnorableSpaceToken(chunk));
+    }
+    return tokens;
+  }
+
+  private static TextToken space(String space, WhiteSpaceProcessing whitespace) {
+    return whitespace == WhiteSpaceProcessing.PRESERVE ? new IgnorableSpaceToken(space) : SpaceToken.getInstance(space);
+  }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.profile;
+
+import org.pageseeder.diffx.algorithm.*;
+import org.pageseeder.diffx.api.DiffAlgorithm;
+import org.pageseeder.diffx.api.DiffHandler;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.test.TestTokens;
+import org.pageseeder.diffx.token.XMLToken;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Compares the memory allocated per diff with and without reusing workspaces.
+ */
+public class WorkspaceProfiler {
+
+  public static void main(String[] args) throws LoadingException {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+      System.err.println("Thread allocated memory is not supported by this JVM");
+      return;
+    }
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+    if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) {
+      System.err.println("Thread allocated memory is not enabled");
+      return;
+    }
+
+    List<XMLToken> from = TestTokens.loadTokens("<p>The quick <b>brown</b> fox jumps over the lazy dog and runs away</p>", TextGranularity.SPACE_WORD);
+    List<XMLToken> to = TestTokens.loadTokens("<p>The quick <i>red</i> fox jumped over the dog and ran away quickly</p>", TextGranularity.SPACE_WORD);
+    DiffHandler<XMLToken> handler = (operator, token) -> {};
+    DiffAlgorithm<?>[] algorithms = new DiffAlgorithm<?>[]{
+        new MyersGreedyAlgorithm<>(), new MyersGreedyXMLAlgorithm(), new HirschbergAlgorithm<>(), new MatrixXMLAlgorithm()
+    };
+    try {
+      for (DiffAlgorithm<?> algorithm : algorithms) {
+        @SuppressWarnings("unchecked")
+        DiffAlgorithm<XMLToken> a = (DiffAlgorithm<XMLToken>) algorithm;
+        Workspace.setPooling(false);
+        long before = allocatedPerDiff(threads, a, from, to, handler);
+        Workspace.setPooling(true);
+        long after = allocatedPerDiff(threads, a, from, to, handler);
+        System.out.println(Profilers.toName(algorithm) + ": " + before + " -> " + after + " bytes per diff");
+      }
+    } finally {
+      Workspace.setPooling(true);
+    }
+  }
+
+  private static long allocatedPerDiff(com.sun.management.ThreadMXBean threads, DiffAlgorithm<XMLToken> algorithm,
+                                       List<XMLToken> from, List<XMLToken> to, DiffHandler<XMLToken> handler) {
+    final int runs = 2_000;
+    // Warm up so that the measure does not include class loading or the first workspace
+    for (int i = 0; i < runs; i++) algorithm.diff(from, to, handler);
+    long id = Thread.currentThread().getId();
+    long start = threads.getThreadAllocatedBytes(id);
+    for (int i = 0; i < runs; i++) algorithm.diff(from, to, handler);
+    return (threads.getThreadAllocatedBytes(id) - start) / runs;
+  }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.sequence;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.DiffException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.load.SAXLoader;
+import org.pageseeder.diffx.xml.Sequence;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Test case for the sequence segmenter.
+ *
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class TokenListSegmenterTest {
+
+  @Test
+  public void testIdentical() throws DiffException {
+    List<TokenListSegmenter.Segment> segments = segment("<a><b>X</b></a>", "<a><b>X</b></a>");
+    assertEquals("=[0,5)[0,5)", toString(segments));
+  }
+
+  @Test
+  public void testAnchorsInMiddle() throws DiffException {
+    String xml1 = "<a><p>A</p><p>B</p><p>C</p><p>D</p><p>E</p></a>";
+    String xml2 = "<a><p>X</p><p>B</p><p>C</p><p>Y</p><p>E</p></a>";
+    List<TokenListSegmenter.Segment> segments = segment(xml1, xml2);
+    assertEquals("=[0,2)[0,2) ~[2,3)[2,3) =[3,11)[3,11) ~[11,12)[11,12) =[12,17)[12,17)", toString(segments));
+  }
+
+  @Test
+  public void testDescendWithSameAttributes() throws DiffException {
+    String xml1 = "<a><b x=\"1\"><p>A</p><p>B</p></b><c/></a>";
+    String xml2 = "<a><b x=\"1\"><p>A</p><p>C</p></b><c/></a>";
+    List<TokenListSegmenter.Segment> segments = segment(xml1, xml2);
+    assertEquals("=[0,7)[0,7) ~[7,8)[7,8) =[8,13)[8,13)", toString(segments));
+  }
+
+  @Test
+  public void testNoDescendWithSeveralElements() throws DiffException {
+    String xml1 = "<a><b><p>A</p></b><c/></a>";
+    String xml2 = "<a><b><p>B</p></b><d/></a>";
+    List<TokenListSegmenter.Segment> segments = segment(xml1, xml2);
+    assertEquals("=[0,1)[0,1) ~[1,8)[1,8) =[8,9)[8,9)", toString(segments));
+  }
+
+  @Test
+  public void testNoDescendWithDifferentAttributes() throws DiffException {
+    String xml1 = "<a><b x=\"1\"><p>A</p></b></a>";
+    String xml2 = "<a><b x=\"2\"><p>A</p></b></a>";
+    List<TokenListSegmenter.Segment> segments = segment(xml1, xml2);
+    assertEquals("=[0,1)[0,1) ~[1,7)[1,7) =[7,8)[7,8)", toString(segments));
+  }
+
+  @Test
+  public void testMovedElement() throws DiffException {
+    String xml1 = "<a><p>A</p><p>B</p><p>C</p></a>";
+    String xml2 = "<a><p>C</p><p>A</p><p>B</p></a>";
+    List<TokenListSegmenter.Segment> segments = segment(xml1, xml2);
+    assertEquals("=[0,1)[0,1) ~[1,1)[1,4) =[1,7)[4,10) ~[7,10)[10,10) =[10,11)[10,11)", toString(segments));
+  }
+
+  private static List<TokenListSegmenter.Segment> segment(String xml1, String xml2) throws DiffException {
+    SAXLoader loader = new SAXLoader();
+    loader.setConfig(DiffConfig.getDefault().granularity(TextGranularity.TEXT));
+    Sequence seqA = loader.load(xml1);
+    Sequence seqB = loader.load(xml2);
+    return new TokenListSegmenter(seqA.tokens(), seqB.tokens()).segment();
+  }
+
+  private static String toString(List<TokenListSegmenter.Segment> segments) {
+    return segments.stream().map(Object::toString).collect(Collectors.joining(" "));
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.token;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.config.WhiteSpaceProcessing;
+import org.pageseeder.diffx.load.SAXLoader;
+import org.pageseeder.diffx.token.impl.CharactersToken;
+import org.pageseeder.diffx.token.impl.WordToken;
+import org.pageseeder.diffx.token.impl.XMLStartElement;
+import org.pageseeder.diffx.xml.Sequence;
+import org.xml.sax.InputSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public final class TokenPoolTest {
+
+  @Test
+  public void testIntern() {
+    TokenPool pool = new TokenPool();
+    XMLToken a = new XMLStartElement("p");
+    XMLToken b = new XMLStartElement("p");
+    assertSame(a, pool.intern(a));
+    assertSame(a, pool.intern(b));
+    assertEquals(1, pool.size());
+    pool.clear();
+    assertSame(b, pool.intern(b));
+  }
+
+  @Test
+  public void testCapacity() {
+    TokenPool pool = new TokenPool(2);
+    XMLToken a = pool.intern(new WordToken("a"));
+    pool.intern(new WordToken("b"));
+    XMLToken c = new WordToken("c");
+    assertSame(c, pool.intern(c));
+    assertNotSame(c, pool.intern(new WordToken("c")));
+    assertSame(a, pool.intern(new WordToken("a")));
+    assertEquals(2, pool.size());
+  }
+
+  @Test
+  public void testDifferentClasses() {
+    TokenPool pool = new TokenPool();
+    XMLToken word = pool.intern(new WordToken("a"));
+    XMLToken characters = new CharactersToken("a");
+    assertSame(characters, pool.intern(characters));
+    assertSame(word, pool.intern(new WordToken("a")));
+  }
+
+  @Test
+  public void testFactory() {
+    TokenPool pool = new TokenPool();
+    XMLTokenFactory factory = new XMLTokenFactory(true, pool);
+    StartElementToken start = factory.newStartElement("", "p");
+    assertSame(start, factory.newStartElement("", "p"));
+    assertSame(factory.newEndElement(start), factory.newEndElement(new XMLTokenFactory().newStartElement("", "p")));
+    assertSame(factory.newAttribute("", "id", "1"), factory.newAttribute("", "id", "1"));
+    assertNotSame(factory.newAttribute("", "id", "1"), factory.newAttribute("", "id", "2"));
+  }
+
+  @Test
+  public void testSharedByLoads() throws LoadingException, IOException {
+    SAXLoader loader = new SAXLoader();
+    loader.setConfig(new DiffConfig(WhiteSpaceProcessing.COMPARE, TextGranularity.SPACE_WORD));
+    loader.setTokenPool(new TokenPool());
+    Sequence a = loader.load(new InputSource(new StringReader("<p id='1'>The quick brown fox</p>")));
+    Sequence b = loader.load(new InputSource(new StringReader("<p id='1'>The quick red fox</p>")));
+    assertEquals(a.size(), b.size());
+    for (int i = 0; i < a.size(); i++) {
+      if (a.getToken(i).equals(b.getToken(i))) assertSame(a.getToken(i), b.getToken(i));
+      else assertNotSame(a.getToken(i), b.getToken(i));
+    }
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    TokenPool pool = new TokenPool();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<List<XMLToken>>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(executor.submit(() -> {
+          List<XMLToken> tokens = new ArrayList<>();
+          for (int i = 0; i < 1000; i++) tokens.add(pool.intern(new WordToken("w" + i)));
+          return tokens;
+        }));
+      }
+      List<XMLToken> first = futures.get(0).get();
+      for (Future<List<XMLToken>> future : futures) {
+        List<XMLToken> tokens = future.get();
+        for (int i = 0; i < tokens.size(); i++) assertSame(first.get(i), tokens.get(i));
+      }
+      assertEquals(1000, pool.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
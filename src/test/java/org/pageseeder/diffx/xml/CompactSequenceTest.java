@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2010-2021 Allette Systems (Australia)
+ *    http://www.allette.com.au
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.pageseeder.diffx.xml;
+
+import org.junit.jupiter.api.Test;
+import org.pageseeder.diffx.action.OperationsBuffer;
+import org.pageseeder.diffx.api.LoadingException;
+import org.pageseeder.diffx.config.DiffConfig;
+import org.pageseeder.diffx.config.TextGranularity;
+import org.pageseeder.diffx.core.DefaultXMLProcessor;
+import org.pageseeder.diffx.core.TextOnlyProcessor;
+import org.pageseeder.diffx.load.SAXLoader;
+import org.pageseeder.diffx.token.TokenDictionary;
+import org.pageseeder.diffx.token.XMLToken;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Christophe Lauret
+ * @version 0.9.0
+ */
+public final class CompactSequenceTest {
+
+  @Test
+  public void testOf() throws LoadingException {
+    Sequence sequence = load("<a xmlns:x='urn:x' x:b='1'>A B <c>A</c><!--C--></a>");
+    CompactSequence compact = CompactSequence.of(sequence, new TokenDictionary());
+    assertEquals(sequence.size(), compact.size());
+    for (int i = 0; i < sequence.size(); i++) {
+      assertEquals(sequence.get(i), compact.get(i));
+      assertEquals(sequence.get(i).getType(), compact.getType(i));
+      assertEquals(sequence.get(i).hashCode(), compact.getHash(i));
+    }
+    assertEquals(sequence, compact.toSequence());
+    assertEquals(sequence.getNamespaces().getPrefix("urn:x"), compact.getNamespaces().getPrefix("urn:x"));
+  }
+
+  @Test
+  public void testSharedDictionary() throws LoadingException {
+    TokenDictionary dictionary = new TokenDictionary();
+    CompactSequence a = CompactSequence.of(load("<a>A B A B</a>"), dictionary);
+    CompactSequence b = CompactSequence.of(load("<a>B A B</a>"), dictionary);
+    assertEquals(a.getId(2), a.getId(4));
+    assertEquals(a.getId(2), b.getId(3));
+    assertEquals(a.getId(3), b.getId(2));
+    assertNotEquals(a.getId(1), a.getId(3));
+    assertSame(a.get(2), b.get(3));
+    assertEquals(6, dictionary.size());
+  }
+
+  @Test
+  public void testSubList() throws LoadingException {
+    TokenDictionary dictionary = new TokenDictionary();
+    CompactSequence a = CompactSequence.of(load("<a>A B C</a>"), dictionary);
+    CompactSequence sub = a.subList(1, 4);
+    assertEquals(3, sub.size());
+    assertEquals(a.get(1), sub.get(0));
+    assertArrayEquals(new int[]{a.getId(1), a.getId(2), a.getId(3)}, sub.ids());
+    assertEquals(a.subList(2, 3), sub.subList(1, 2));
+    assertEquals(a.subList(1, 4), CompactSequence.of(load("<a>A B C</a>"), dictionary).subList(1, 4));
+    assertThrows(IndexOutOfBoundsException.class, () -> sub.get(3));
+    assertThrows(IndexOutOfBoundsException.class, () -> a.subList(2, 8));
+  }
+
+  @Test
+  public void testDiff() throws LoadingException {
+    Sequence a = load("<a><b>The quick brown fox</b><c>jumps over</c><d>the lazy dog</d></a>");
+    Sequence b = load("<a><b>The quick red fox</b><d>the lazy dog</d><c>jumps</c></a>");
+    TokenDictionary dictionary = new TokenDictionary();
+    CompactSequence x = CompactSequence.of(a, dictionary);
+    CompactSequence y = CompactSequence.of(b, dictionary);
+    OperationsBuffer<XMLToken> expected = new OperationsBuffer<>();
+    OperationsBuffer<XMLToken> actual = new OperationsBuffer<>();
+    new DefaultXMLProcessor().diff(a, b, expected);
+    new DefaultXMLProcessor().diff(x, y, actual);
+    assertEquals(expected.getOperations(), actual.getOperations());
+    expected = new OperationsBuffer<>();
+    actual = new OperationsBuffer<>();
+    new TextOnlyProcessor<XMLToken>(TextOnlyProcessor.Algorithm.HISTOGRAM).diff(a, b, expected);
+    new TextOnlyProcessor<XMLToken>(TextOnlyProcessor.Algorithm.HISTOGRAM).diff(x, y, actual);
+    assertEquals(expected.getOperations(), actual.getOperations());
+  }
+
+  private static Sequence load(String xml) throws LoadingException {
+    SAXLoader loader = new SAXLoader();
+    loader.setConfig(DiffConfig.getDefault().granularity(TextGranularity.SPACE_WORD));
+    return loader.load(xml);
+  }
+
+}